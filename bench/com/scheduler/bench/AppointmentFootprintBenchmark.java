@@ -0,0 +1,60 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+/**
+ * Retained heap per appointment, and bytes allocated per booking, for bulk
+ * scheduling into one Hospital. Uses com.sun.management for the per-thread
+ * allocation counter, so it needs a HotSpot-based JVM.
+ *
+ * Run: java -cp out com.scheduler.bench.AppointmentFootprintBenchmark [appointments]
+ */
+public class AppointmentFootprintBenchmark {
+
+    private static final int DOCTORS = 200;
+    private static final int PATIENTS = 1_000;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    public static void main(String[] args) throws AppointmentException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Prebuild the names and times so the loop below measures only Hospital's own allocation.
+        String[] patientNames = new String[PATIENTS];
+        String[] doctorNames = new String[DOCTORS];
+        LocalDateTime[] slots = new LocalDateTime[size / DOCTORS + 1];
+        for (int i = 0; i < PATIENTS; i++) patientNames[i] = "Patient " + i;
+        for (int i = 0; i < DOCTORS; i++) doctorNames[i] = "Doctor " + i;
+        for (int i = 0; i < slots.length; i++) slots[i] = START.plusMinutes(15L * i);
+
+        Hospital hospital = new Hospital();
+        for (String name : patientNames) hospital.addPatient(new Patient(name, 40, "F", "Checkup", false));
+        for (String name : doctorNames) hospital.addDoctor(new Doctor(name, "General"));
+
+        long heapBefore = usedHeap();
+        long allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            hospital.scheduleAppointment(patientNames[i % PATIENTS], doctorNames[i % DOCTORS], slots[i / DOCTORS]);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedBefore;
+        long heapAfter = usedHeap();
+
+        System.out.printf("%d appointments: %.0f bytes retained/appointment, %.0f bytes allocated/booking, %d ns/booking%n",
+                size, (heapAfter - heapBefore) / (double) size, allocated / (double) size, elapsed / size);
+        if (hospital.getAppointmentCount() != size) throw new AssertionError("lost bookings");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
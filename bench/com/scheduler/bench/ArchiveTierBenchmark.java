@@ -0,0 +1,133 @@
+package com.scheduler.bench;
+
+import com.scheduler.model.Appointment;
+import com.scheduler.model.AppointmentHistory;
+import com.scheduler.util.AppointmentArchive;
+import com.scheduler.util.TieredArchive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * The flat AppointmentArchive against the TieredArchive (compressed monthly segments
+ * behind a recent tier) holding the same years of history, archived a day at a time
+ * as DataManager does: bytes on disk, time to open, and time to read back a day,
+ * a month and a year, plus point lookups.
+ *
+ * Run: java -cp target/classes:target/test-classes com.scheduler.bench.ArchiveTierBenchmark [years] [perDay]
+ */
+public class ArchiveTierBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final int PATIENTS = 50_000;
+    private static final int DOCTORS = 300;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int years = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int perDay = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        Path dir = Files.createTempDirectory("archive-bench");
+        try {
+            int days = 365 * years;
+            AppointmentArchive flat = AppointmentArchive.open(dir.resolve("flat.archive"));
+            TieredArchive tiered = TieredArchive.open(dir.resolve("hospital.archive"), dir.resolve("segments"));
+            long flatAppend = 0, tieredAppend = 0;
+            Random random = new Random(42);
+            long id = 1;
+            long[] ids = new long[perDay];
+            int[] patients = new int[perDay], doctors = new int[perDay], minutes = new int[perDay];
+            for (int day = 0; day < days; day++) {
+                int dayStart = Appointment.toEpochMinute(START.plusDays(day));
+                // A clinic day, 8:00 to 20:00 in 15-minute slots, in time order.
+                for (int i = 0; i < perDay; i++) {
+                    minutes[i] = dayStart + 8 * 60 + 15 * (int) ((long) i * 48 / perDay);
+                    ids[i] = id++;
+                    patients[i] = random.nextInt(PATIENTS);
+                    doctors[i] = random.nextInt(DOCTORS);
+                }
+                int until = Appointment.toEpochMinute(START.plusDays(day + 1));
+                long t0 = System.nanoTime();
+                flat.append(ids, patients, doctors, minutes, perDay, until);
+                long t1 = System.nanoTime();
+                tiered.append(ids, patients, doctors, minutes, perDay, until);
+                tiered.settle();
+                flatAppend += t1 - t0;
+                tieredAppend += System.nanoTime() - t1;
+            }
+            flat.close();
+            tiered.close();
+            System.out.printf("%d appointments over %d days; daily archive run: flat %.2f ms, tiered %.2f ms (sealing included)%n",
+                    id - 1, days, flatAppend / 1e6 / days, tieredAppend / 1e6 / days);
+
+            long flatBytes = Files.size(dir.resolve("flat.archive"));
+            long tieredBytes = sizeOf(dir.resolve("segments")) + Files.size(dir.resolve("hospital.archive"));
+            System.out.printf("on disk: flat %.1f MB (%.1f bytes each), tiered %.1f MB (%.1f bytes each)%n",
+                    flatBytes / 1e6, flatBytes / (double) (id - 1), tieredBytes / 1e6, tieredBytes / (double) (id - 1));
+
+            System.out.printf("%-10s %12s %12s %12s %12s %12s%n", "", "open", "day", "month", "year", "lookup");
+            for (int round = 0; round < ROUNDS; round++) {
+                report("flat", () -> AppointmentArchive.open(dir.resolve("flat.archive")), days, round == ROUNDS - 1);
+                report("tiered", () -> TieredArchive.open(dir.resolve("hospital.archive"), dir.resolve("segments")), days,
+                        round == ROUNDS - 1);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private interface Opener<T extends AppointmentHistory & Closeable> {
+        T open() throws IOException;
+    }
+
+    // Times are for the history's middle: a day, the month around it, the year around it.
+    private static <T extends AppointmentHistory & Closeable> void report(String name, Opener<T> opener, int days, boolean print)
+            throws IOException {
+        long t0 = System.nanoTime();
+        T history = opener.open();
+        long open = System.nanoTime() - t0;
+        try {
+            LocalDateTime middle = START.plusDays(days / 2);
+            long day = scan(history, middle, middle.plusDays(1));
+            long month = scan(history, middle.withDayOfMonth(1), middle.withDayOfMonth(1).plusMonths(1));
+            long year = scan(history, middle.withDayOfYear(1), middle.withDayOfYear(1).plusYears(1));
+            Random random = new Random(7);
+            int lookups = 1000, found = 0;
+            long t1 = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                int minute = Appointment.toEpochMinute(START.plusDays(random.nextInt(days)).plusHours(8 + random.nextInt(12)));
+                if (history.isBooked(random.nextInt(DOCTORS), minute)) found++;
+            }
+            long lookup = (System.nanoTime() - t1) / lookups;
+            if (print) {
+                System.out.printf("%-10s %10.2fms %10.2fms %10.2fms %10.1fms %10.1fus   (%d of %d lookups booked)%n", name,
+                        open / 1e6, day / 1e6, month / 1e6, year / 1e6, lookup / 1e3, found, lookups);
+            }
+        } finally {
+            history.close();
+        }
+    }
+
+    private static long scan(AppointmentHistory history, LocalDateTime from, LocalDateTime to) {
+        long[] sum = {0};
+        long t0 = System.nanoTime();
+        history.forEachBetween(Appointment.toEpochMinute(from), Appointment.toEpochMinute(to),
+                (id, patient, doctor, minute) -> sum[0] += id + patient + doctor + minute);
+        long elapsed = System.nanoTime() - t0;
+        if (sum[0] == 42) System.out.print(""); // keep the sum live
+        return elapsed;
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+}
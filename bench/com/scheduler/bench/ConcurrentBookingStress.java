@@ -0,0 +1,102 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hammers one Hospital from many threads, all competing for a small set of
+ * slots, then checks that no doctor ended up double booked and that every
+ * successful booking (and nothing else) is in the schedule.
+ * Exits with status 1 if any check fails.
+ *
+ * Run: java -cp out com.scheduler.bench.ConcurrentBookingStress [threads] [attemptsPerThread]
+ */
+public class ConcurrentBookingStress {
+
+    private static final int DOCTORS = 8;
+    private static final int SLOTS = 200;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int attempts = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        Hospital hospital = new Hospital();
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, "General"));
+        }
+        for (int t = 0; t < threads; t++) {
+            hospital.addPatient(new Patient("Patient " + t, 30, "F", "Checkup", false));
+        }
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger canceled = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            String patient = "Patient " + t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < attempts; i++) {
+                    String doctor = "Doctor " + random.nextInt(DOCTORS);
+                    if (random.nextInt(10) == 0) {
+                        if (hospital.cancelAppointment(patient, doctor).startsWith("Successfully")) {
+                            canceled.incrementAndGet();
+                        }
+                        continue;
+                    }
+                    try {
+                        hospital.scheduleAppointment(patient, doctor, START.plusMinutes(15L * random.nextInt(SLOTS)));
+                        booked.incrementAndGet();
+                    } catch (AppointmentException expected) {
+                        // Slot already taken; that is the point of the test.
+                    }
+                }
+            });
+            workers[t].start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long millis = (System.nanoTime() - began) / 1_000_000;
+
+        boolean ok = true;
+        Set<String> seen = new HashSet<>();
+        int listed = 0;
+        for (Appointment a : hospital.getAllAppointments()) {
+            listed++;
+            if (!seen.add(a.getDoctor().getName() + "@" + a.getAppointmentDateTime())) {
+                System.out.println("DOUBLE BOOKING: " + a);
+                ok = false;
+            }
+        }
+        int expected = booked.get() - canceled.get();
+        if (listed != expected || hospital.getAppointmentCount() != expected) {
+            System.out.println("COUNT MISMATCH: booked-canceled=" + expected + ", listed=" + listed
+                    + ", getAppointmentCount=" + hospital.getAppointmentCount());
+            ok = false;
+        }
+
+        System.out.println(threads + " threads, " + (threads * attempts) + " operations in " + millis + " ms: "
+                + booked.get() + " booked, " + canceled.get() + " canceled, " + listed + " held -> " + (ok ? "OK" : "FAILED"));
+        if (!ok) System.exit(1);
+    }
+}
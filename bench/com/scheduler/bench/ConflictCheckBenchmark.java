@@ -0,0 +1,85 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the per-doctor slot index used by Hospital.scheduleAppointment
+ * against the old linear double-booking scan, at growing appointment counts.
+ * The indexed column should stay flat while the scan grows with N.
+ *
+ * Run: java -cp out com.scheduler.bench.ConflictCheckBenchmark
+ */
+public class ConflictCheckBenchmark {
+
+    private static final int DOCTORS = 50;
+    private static final int PROBES = 2_000;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws AppointmentException {
+        int[] sizes = {1_000, 10_000, 100_000, 300_000};
+        System.out.printf("%12s %18s %18s%n", "appointments", "indexed (ns/op)", "linear scan (ns/op)");
+        for (int size : sizes) {
+            Hospital hospital = populate(size);
+            List<Appointment> snapshot = new ArrayList<>(hospital.getAllAppointments());
+
+            // Warm up both paths before measuring.
+            runIndexed(hospital, size, 1);
+            runLinear(snapshot, hospital, 1);
+
+            long indexed = runIndexed(hospital, size, 2);
+            long linear = runLinear(snapshot, hospital, 2);
+            System.out.printf("%12d %18d %18d%n", size, indexed / PROBES, linear / PROBES);
+        }
+    }
+
+    private static Hospital populate(int size) throws AppointmentException {
+        Hospital hospital = new Hospital();
+        hospital.addPatient(new Patient("Bench Patient", 40, "F", "Checkup", false));
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, "General"));
+        }
+        for (int i = 0; i < size; i++) {
+            hospital.scheduleAppointment("Bench Patient", "Doctor " + (i % DOCTORS), slot(i / DOCTORS));
+        }
+        return hospital;
+    }
+
+    // Books PROBES fresh slots per round, past the ones used by populate().
+    private static long runIndexed(Hospital hospital, int size, int round) throws AppointmentException {
+        int base = size / DOCTORS + round * PROBES;
+        long start = System.nanoTime();
+        for (int i = 0; i < PROBES; i++) {
+            hospital.scheduleAppointment("Bench Patient", "Doctor " + (i % DOCTORS), slot(base + i));
+        }
+        return System.nanoTime() - start;
+    }
+
+    // The check Hospital used to run on every booking: a stream over every appointment.
+    private static long runLinear(List<Appointment> appointments, Hospital hospital, int round) {
+        Doctor doctor = hospital.findDoctorByName("Doctor 0").orElseThrow();
+        int base = appointments.size() / DOCTORS + round * PROBES;
+        long start = System.nanoTime();
+        int hits = 0;
+        for (int i = 0; i < PROBES; i++) {
+            LocalDateTime dateTime = slot(base + i);
+            if (appointments.stream().anyMatch(a -> a.getDoctor().equals(doctor) && a.getAppointmentDateTime().equals(dateTime))) {
+                hits++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (hits < 0) System.out.println(hits);
+        return elapsed;
+    }
+
+    private static LocalDateTime slot(int index) {
+        return START.plusMinutes(15L * index);
+    }
+}
@@ -0,0 +1,121 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.HospitalListener;
+import com.scheduler.model.Patient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A synthetic hospital for the JMH benchmarks, plus an undo log so a benchmark
+ * that changes it can put it back the way it was before the next invocation.
+ *
+ * Appointment i is for patient (i % patients) with doctor (i % DOCTORS) in that
+ * doctor's slot (i / DOCTORS); slots are SLOT_MINUTES apart from START, so every
+ * doctor's day is fully booked from START up to its last slot and free after it.
+ */
+final class HospitalFixture implements HospitalListener {
+
+    static final int DOCTORS = 200;
+    static final int EMERGENCY_PATIENTS = 100;
+    static final int SLOT_MINUTES = 15;
+    static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    final Hospital hospital = new Hospital();
+    final int appointments;
+    final int patients;
+
+    private final List<Change> changes = new ArrayList<>();
+    private boolean recording;
+
+    HospitalFixture(int appointments) throws AppointmentException {
+        this.appointments = appointments;
+        this.patients = Math.max(10, Math.min(appointments / 10, 100_000));
+        for (int p = 0; p < patients; p++) {
+            hospital.addPatient(new Patient(patientName(p), 20 + p % 60, p % 2 == 0 ? "F" : "M", "Checkup", false));
+        }
+        for (int p = 0; p < EMERGENCY_PATIENTS; p++) {
+            hospital.addPatient(new Patient(emergencyPatientName(p), 50, "M", "Trauma", true));
+        }
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor(doctorName(d), "General"));
+        }
+        for (int i = 0; i < appointments; i++) {
+            hospital.scheduleAppointment(patientName(i % patients), doctorName(i % DOCTORS), slot(i / DOCTORS));
+        }
+        hospital.addListener(this);
+    }
+
+    static String patientName(int p) { return "Patient " + p; }
+    static String emergencyPatientName(int p) { return "Emergency Patient " + p; }
+    static String doctorName(int d) { return "Doctor " + d; }
+
+    static LocalDateTime slot(int k) {
+        return START.plusMinutes((long) SLOT_MINUTES * k);
+    }
+
+    /**
+     * Number of booked slots the doctor has; slots from here on are free.
+     */
+    int slotsBooked(int doctor) {
+        return (appointments - doctor + DOCTORS - 1) / DOCTORS;
+    }
+
+    /**
+     * Starts logging changes; undo() reverts everything logged since.
+     */
+    void record() {
+        changes.clear();
+        recording = true;
+    }
+
+    void undo() {
+        recording = false;
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            Change c = changes.get(i);
+            if (c.restore) {
+                hospital.restoreAppointment(c.id, c.patient, c.doctor, c.epochMinute);
+            } else {
+                hospital.restoreCancellation(c.id);
+            }
+        }
+        changes.clear();
+    }
+
+    @Override
+    public void appointmentScheduled(Appointment appointment) {
+        if (recording) changes.add(new Change(false, appointment, appointment.getEpochMinute()));
+    }
+
+    @Override
+    public void appointmentMoved(Appointment appointment, LocalDateTime previousDateTime) {
+        if (recording) changes.add(new Change(true, appointment, Appointment.toEpochMinute(previousDateTime)));
+    }
+
+    @Override
+    public void appointmentCanceled(Appointment appointment) {
+        if (recording) changes.add(new Change(true, appointment, appointment.getEpochMinute()));
+    }
+
+    // What undo() has to do: cancel the appointment again, or put it back at epochMinute.
+    private static final class Change {
+        final boolean restore;
+        final long id;
+        final Patient patient;
+        final Doctor doctor;
+        final int epochMinute;
+
+        Change(boolean restore, Appointment appointment, int epochMinute) {
+            this.restore = restore;
+            this.id = appointment.getId();
+            this.patient = appointment.getPatient();
+            this.doctor = appointment.getDoctor();
+            this.epochMinute = epochMinute;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.scheduler.bench;
+
+import com.scheduler.server.ShardMap;
+import com.scheduler.server.ShardRouter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs a partitioned deployment on this machine and drives it: starts 'shards'
+ * HospitalServer processes, each in its own directory with its own data files (and
+ * pinned to its own core with taskset where there are enough), puts a ShardRouter in
+ * front of them, registers patients and doctors of several specializations through it,
+ * books from 'threads' client threads, then checks the routing: every appointment id
+ * came from the shard holding its doctor, merged listings are in time order with no
+ * appointment missing or repeated, and cancel and reschedule by id reach the right shard.
+ * Reports booking throughput and latency through the router, then stops the shards,
+ * which save their data on the way out.
+ *
+ * Run: java -cp target/classes:target/test-classes com.scheduler.bench.LocalCluster [shards] [threads] [bookings] [keep]
+ * With "keep" the shards' directories are left behind (their paths are printed) to look at.
+ */
+public class LocalCluster {
+
+    static final String[] SPECIALIZATIONS = {"Cardiology", "Neurology", "Pediatrics", "Surgery", "Oncology", "Dermatology"};
+    static final int DOCTORS_PER_SPECIALIZATION = 4;
+    static final int PATIENTS = 200;
+    static final LocalDateTime START = LocalDateTime.of(2030, 1, 7, 8, 0);
+    static final int DAYS = 20;
+    static final int SLOTS_PER_DAY = 48;
+
+    private static final Pattern APPOINTMENT = Pattern.compile(
+            "\\{\"id\":(\\d+),\"patient\":\"[^\"]*\",\"doctor\":\"([^\"]*)\",\"dateTime\":\"([^\"]*)\"}");
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    public static void main(String[] args) throws Exception {
+        int shards = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int bookings = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        boolean keep = args.length > 3 && args[3].equals("keep");
+
+        Path root = Files.createTempDirectory("hospital-cluster");
+        List<Process> processes = new ArrayList<>();
+        ShardRouter router = null;
+        try {
+            StringBuilder conf = new StringBuilder("# shard URL, then its specializations; * takes the rest\n");
+            int cpus = Runtime.getRuntime().availableProcessors();
+            boolean pin = cpus > shards && new File("/usr/bin/taskset").canExecute();
+            for (int k = 0; k < shards; k++) {
+                int port = freePort();
+                Path dir = Files.createDirectories(root.resolve("shard-" + k));
+                List<String> command = new ArrayList<>();
+                if (pin) command.addAll(Arrays.asList("taskset", "-c", Integer.toString(k + 1))); // core 0 for the router
+                command.addAll(Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-cp", absoluteClassPath(), "com.scheduler.main.Main",
+                        "--server", Integer.toString(port), "127.0.0.1", "--shard", k + "/" + shards));
+                processes.add(new ProcessBuilder(command).directory(dir.toFile())
+                        .redirectErrorStream(true).redirectOutput(dir.resolve("shard.log").toFile()).start());
+                conf.append("http://127.0.0.1:").append(port).append(' ');
+                List<String> mine = new ArrayList<>();
+                for (int s = k; s < SPECIALIZATIONS.length; s += shards) mine.add(SPECIALIZATIONS[s]);
+                if (k == shards - 1) mine.add("*");
+                conf.append(String.join(", ", mine)).append('\n');
+            }
+            Path confFile = root.resolve("shards.conf");
+            Files.write(confFile, conf.toString().getBytes(StandardCharsets.UTF_8));
+            ShardMap map = ShardMap.load(confFile);
+            for (int k = 0; k < shards; k++) {
+                awaitUp(map.get(k), processes.get(k));
+            }
+            router = new ShardRouter(map, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            router.start();
+            URI base = URI.create("http://127.0.0.1:" + router.getPort());
+            System.out.printf("%d shards%s, router on %s; data under %s%n", shards, pin ? " pinned to cores 1-" + shards : "",
+                    base, root);
+
+            // Registration.
+            for (int p = 0; p < PATIENTS; p++) {
+                expect(201, send(base, "POST", "/patients", "name", "Patient " + p, "age", "40", "gender", "F",
+                        "healthIssue", "Checkup", "emergency", Boolean.toString(p % 40 == 0)));
+            }
+            expect(409, send(base, "POST", "/patients", "name", "patient 0", "age", "40", "gender", "F",
+                    "healthIssue", "Checkup"));
+            List<String> doctors = new ArrayList<>();
+            for (String specialization : SPECIALIZATIONS) {
+                for (int d = 0; d < DOCTORS_PER_SPECIALIZATION; d++) {
+                    String name = specialization + " Doctor " + d;
+                    expect(201, send(base, "POST", "/doctors", "name", name, "specialization", specialization));
+                    doctors.add(name);
+                }
+            }
+            expect(409, send(base, "POST", "/doctors", "name", doctors.get(0).toUpperCase(), "specialization", "Oncology"));
+            expect(200, send(base, "GET", "/doctors", "name", doctors.get(doctors.size() - 1)));
+            // Every doctor is on the shard that holds their specialization, and nowhere else.
+            for (int k = 0; k < shards; k++) {
+                String listing = send(map.get(k), "GET", "/doctors").body();
+                for (int i = 0; i < doctors.size(); i++) {
+                    boolean here = listing.contains("\"" + doctors.get(i) + "\"");
+                    check(here == (map.shardFor(SPECIALIZATIONS[i / DOCTORS_PER_SPECIALIZATION]) == k),
+                            doctors.get(i) + (here ? " is" : " is not") + " on shard " + k);
+                }
+            }
+
+            // Bookings from several client threads; some collide on purpose, which the shards refuse.
+            long[] latency = new long[bookings];
+            AtomicInteger next = new AtomicInteger(), booked = new AtomicInteger(), refused = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            Thread[] workers = new Thread[threads];
+            long start = System.nanoTime();
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                workers[t] = new Thread(() -> {
+                    for (int i = next.getAndIncrement(); i < bookings; i = next.getAndIncrement()) {
+                        LocalDateTime time = START.plusDays(random.nextInt(DAYS)).plusMinutes(15L * random.nextInt(SLOTS_PER_DAY));
+                        long began = System.nanoTime();
+                        try {
+                            int status = send(base, "POST", "/appointments", "patient", "Patient " + random.nextInt(PATIENTS),
+                                    "doctor", doctors.get(random.nextInt(doctors.size())), "dateTime", time.toString()).statusCode();
+                            (status == 201 ? booked : status == 409 ? refused : failed).incrementAndGet();
+                        } catch (IOException | InterruptedException e) {
+                            failed.incrementAndGet();
+                        }
+                        latency[i] = System.nanoTime() - began;
+                    }
+                }, "client-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(latency);
+            System.out.printf("%d bookings from %d threads in %.2f s: %.0f/s; %d booked, %d refused, %d failed%n",
+                    bookings, threads, seconds, bookings / seconds, booked.get(), refused.get(), failed.get());
+            System.out.printf("latency through the router: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    latency[bookings / 2] / 1e6, latency[Math.max(0, (int) Math.ceil(bookings * 0.99) - 1)] / 1e6,
+                    latency[bookings - 1] / 1e6);
+            check(failed.get() == 0, failed.get() + " bookings failed");
+
+            // The merged listing: everything booked, once, in time order, each id from its doctor's shard.
+            long listStart = System.nanoTime();
+            List<String[]> all = appointments(send(base, "GET", "/appointments", "from", START.toString(),
+                    "to", START.plusDays(DAYS).toString()).body());
+            System.out.printf("merged listing of %d appointments from %d shards in %.1f ms%n", all.size(), shards,
+                    (System.nanoTime() - listStart) / 1e6);
+            check(all.size() == booked.get(), "listed " + all.size() + " of " + booked.get() + " booked");
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < all.size(); i++) {
+                long id = Long.parseLong(all.get(i)[0]);
+                check(ids.add(id), "appointment " + id + " listed twice");
+                if (i > 0) check(ORDER.compare(all.get(i - 1), all.get(i)) < 0, "listing out of order at " + all.get(i)[0]);
+                String specialization = all.get(i)[1].substring(0, all.get(i)[1].indexOf(' '));
+                check(map.shardForId(id) == map.shardFor(specialization), "appointment " + id + " is not from its doctor's shard");
+            }
+            List<String[]> mine = appointments(send(base, "GET", "/appointments", "patient", "Patient 1").body());
+            for (int i = 1; i < mine.size(); i++) {
+                check(ORDER.compare(mine.get(i - 1), mine.get(i)) < 0, "patient listing out of order");
+            }
+
+            // By id: cancel some, reschedule one; each lands on the owning shard.
+            int canceled = 0;
+            for (int i = 0; i < all.size() && canceled < 10; i += Math.max(1, all.size() / 10), canceled++) {
+                expect(200, send(base, "DELETE", "/appointments", "id", all.get(i)[0]));
+                expect(404, send(base, "DELETE", "/appointments", "id", all.get(i)[0]));
+            }
+            String[] last = all.get(all.size() - 1);
+            LocalDateTime later = LocalDateTime.parse(last[2]).plusDays(1);
+            expect(200, send(base, "PUT", "/appointments", "id", last[0], "dateTime", later.toString()));
+            List<String[]> after = appointments(send(base, "GET", "/appointments", "from", START.toString(),
+                    "to", later.plusMinutes(1).toString()).body());
+            check(after.size() == all.size() - canceled, "listed " + after.size() + " after canceling " + canceled);
+            check(after.get(after.size() - 1)[0].equals(last[0]), "rescheduled appointment is not last");
+            System.out.println("Routing checks passed.");
+        } finally {
+            if (router != null) router.stop(0);
+            for (Process p : processes) {
+                p.destroy(); // SIGTERM: the shard saves its data in its shutdown hook
+            }
+            for (Process p : processes) {
+                p.waitFor();
+            }
+            if (keep) {
+                System.out.println("Shard directories kept under " + root);
+            } else {
+                delete(root);
+            }
+        }
+    }
+
+    // Listing entries (id, doctor, dateTime) compare in the order the server lists them.
+    private static final Comparator<String[]> ORDER = Comparator.<String[], LocalDateTime>comparing(a -> LocalDateTime.parse(a[2]))
+            .thenComparingLong(a -> Long.parseLong(a[0]));
+
+    private static List<String[]> appointments(String json) {
+        List<String[]> list = new ArrayList<>();
+        Matcher m = APPOINTMENT.matcher(json);
+        while (m.find()) {
+            list.add(new String[] {m.group(1), m.group(2), m.group(3)});
+        }
+        return list;
+    }
+
+    private static HttpResponse<String> send(URI base, String method, String path, String... params)
+            throws IOException, InterruptedException {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < params.length; i += 2) {
+            if (i > 0) form.append('&');
+            form.append(params[i]).append('=').append(URLEncoder.encode(params[i + 1], StandardCharsets.UTF_8));
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path + (form.length() > 0 ? "?" + form : "")));
+        return CLIENT.send(request.method(method, HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void expect(int status, HttpResponse<String> response) {
+        check(response.statusCode() == status, response.request().method() + " " + response.request().uri() + ": expected "
+                + status + ", got " + response.statusCode() + " " + response.body());
+    }
+
+    private static void check(boolean ok, String problem) {
+        if (!ok) throw new IllegalStateException(problem);
+    }
+
+    private static void awaitUp(URI shard, Process process) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) throw new IllegalStateException("Shard at " + shard + " exited with " + process.exitValue());
+            try {
+                if (send(shard, "GET", "/doctors").statusCode() == 200) return;
+            } catch (IOException e) {
+                // Not listening yet.
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Shard at " + shard + " did not start");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // The shards run elsewhere, so relative class path entries must be made absolute.
+    private static String absoluteClassPath() {
+        return Stream.of(System.getProperty("java.class.path").split(File.pathSeparator))
+                .map(entry -> Paths.get(entry).toAbsolutePath().toString())
+                .collect(Collectors.joining(File.pathSeparator));
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(p);
+            }
+        }
+    }
+}
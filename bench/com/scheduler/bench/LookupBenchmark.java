@@ -0,0 +1,123 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths: findPatientByName, getAllAppointments both walked in full
+ * (what refreshing the appointments table costs) and for one screenful only,
+ * and the next free slots for one doctor and for a specialization. Every fixture
+ * doctor is booked solid from START, so the free-slot searches have to skip all
+ * of those days first. searchPatients is the typeahead, given part of a name as
+ * typed and the same with two letters swapped; every fixture name starts with
+ * "Patient ", which is the hard case for the typo-tolerant walk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    static final int PAGE = 50;
+    static final int FREE_SLOTS = 8;
+    static final int SUGGESTIONS = 8;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    private HospitalFixture fixture;
+    private String[] names;
+    private String[] typed;
+    private String[] typos;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void build() throws AppointmentException {
+        fixture = new HospitalFixture(appointments);
+        Random random = new Random(42);
+        names = new String[1024];
+        for (int i = 0; i < names.length; i++) {
+            String name = HospitalFixture.patientName(random.nextInt(fixture.patients));
+            // Typed in by hand, so not always in the stored case.
+            names[i] = i % 2 == 0 ? name : name.toUpperCase(Locale.ROOT);
+        }
+        typed = new String[names.length];
+        typos = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            String prefix = names[i].substring(0, 3 + random.nextInt(names[i].length() - 2));
+            typed[i] = prefix;
+            int swap = random.nextInt(prefix.length() - 1);
+            typos[i] = prefix.substring(0, swap) + prefix.charAt(swap + 1) + prefix.charAt(swap) + prefix.substring(swap + 2);
+        }
+        // Sorts the index once, as the UI does at startup.
+        fixture.hospital.searchPatients("", 0);
+    }
+
+    @Benchmark
+    public Object findPatientByName() {
+        next = (next + 1) & (names.length - 1);
+        return fixture.hospital.findPatientByName(names[next]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object searchPatients() {
+        next = (next + 1) & (names.length - 1);
+        return fixture.hospital.searchPatients(typed[next], SUGGESTIONS);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object searchPatientsTypo() {
+        next = (next + 1) & (names.length - 1);
+        return fixture.hospital.searchPatients(typos[next], SUGGESTIONS);
+    }
+
+    @Benchmark
+    public Object findFreeSlots() throws AppointmentException {
+        next = (next + 1) & (names.length - 1);
+        return fixture.hospital.findFreeSlots(HospitalFixture.doctorName(next % HospitalFixture.DOCTORS), HospitalFixture.START, FREE_SLOTS);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object findFreeSlotsBySpecialization() throws AppointmentException {
+        return fixture.hospital.findFreeSlotsBySpecialization("General", HospitalFixture.START, FREE_SLOTS);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void getAllAppointments(Blackhole bh) {
+        for (Appointment a : fixture.hospital.getAllAppointments()) {
+            bh.consume(a);
+        }
+    }
+
+    @Benchmark
+    public void getAllAppointmentsFirstPage(Blackhole bh) {
+        Iterator<Appointment> it = fixture.hospital.getAllAppointments().iterator();
+        for (int i = 0; i < PAGE && it.hasNext(); i++) {
+            bh.consume(it.next());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Hospital;
+import com.scheduler.util.DataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DataManager.saveData and loadData. DataManager works on hospital.* in the
+ * working directory, so run these from a scratch directory (the Maven exec
+ * setup uses target/bench-work); any hospital.* files there are deleted.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    private Hospital hospital;
+    private Hospital loaded;
+
+    @Setup(Level.Trial)
+    public void build() throws AppointmentException, IOException {
+        deleteDataFiles();
+        hospital = new HospitalFixture(appointments).hospital;
+        DataManager.saveData(hospital);
+    }
+
+    @TearDown(Level.Trial)
+    public void clean() throws IOException {
+        deleteDataFiles();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeLoaded() {
+        if (loaded != null) {
+            DataManager.close(loaded);
+            loaded = null;
+        }
+    }
+
+    @Benchmark
+    public void saveData() {
+        DataManager.saveData(hospital);
+    }
+
+    @Benchmark
+    public Hospital loadData() {
+        loaded = DataManager.loadData();
+        if (loaded.getAppointmentCount() != appointments) {
+            throw new IllegalStateException("Loaded " + loaded.getAppointmentCount() + " of " + appointments + " appointments");
+        }
+        return loaded;
+    }
+
+    private static void deleteDataFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("."), "hospital.*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.scheduler.bench;
+
+import com.scheduler.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HashMap put/get with Patient keys, which exercises Person.hashCode and
+ * Person.equals on every probe. Lookups use distinct but equal Patient objects,
+ * as a caller holding its own copy would, so equals always runs in full.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersonHashBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Patient[] keys;
+    private Patient[] probes;
+    private Map<Patient, Integer> map;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void build() {
+        keys = new Patient[size];
+        probes = new Patient[size];
+        map = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            keys[i] = new Patient("Patient Number " + i, 40, "F", "Checkup", false);
+            probes[i] = new Patient("PATIENT NUMBER " + i, 40, "F", "Checkup", false);
+            map.put(keys[i], i);
+        }
+    }
+
+    @Benchmark
+    public Integer put() {
+        int i = advance();
+        return map.put(keys[i], i);
+    }
+
+    @Benchmark
+    public Integer get() {
+        return map.get(probes[advance()]);
+    }
+
+    private int advance() {
+        if (++next == size) next = 0;
+        return next;
+    }
+}
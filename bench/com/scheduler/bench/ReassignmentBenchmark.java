@@ -0,0 +1,96 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+import com.scheduler.model.ReassignmentReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hospital.reassignAppointments for one doctor's full week, in a department of
+ * 'doctors' colleagues who are each booked into 'busy' percent of a 12-hour clinic
+ * day (8:00 to 20:00), so most appointments keep their time and the rest need a
+ * later slot. The moves are put back outside the measured time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 40)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReassignmentBenchmark {
+
+    static final int DAYS = 7;
+    static final int SLOTS_PER_DAY = 48;
+    static final int PATIENTS = 10_000;
+    static final LocalDateTime WEEK = LocalDateTime.of(2030, 1, 7, 0, 0);
+
+    @Param({"10", "50"})
+    public int doctors;
+
+    @Param({"80", "95"})
+    public int busy;
+
+    private final Hospital hospital = new Hospital();
+    private ReassignmentReport last;
+
+    @Setup(Level.Trial)
+    public void build() throws AppointmentException {
+        for (int p = 0; p < PATIENTS; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 30, "F", "Checkup", p % 50 == 0));
+        }
+        // Some other department's doctors too, so the colleagues are a subset of the registry.
+        for (int d = 0; d < doctors; d++) {
+            hospital.addDoctor(new Doctor("Cardiologist " + d, "Cardiology"));
+            hospital.addDoctor(new Doctor("Surgeon " + d, "Surgery"));
+        }
+        Random random = new Random(42);
+        for (int d = 0; d < doctors; d++) {
+            for (int day = 0; day < DAYS; day++) {
+                for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+                    // The absent doctor's day is full; that is the worst case to hand out.
+                    if (d > 0 && random.nextInt(100) >= busy) continue;
+                    LocalDateTime time = WEEK.plusDays(day).plusHours(8).plusMinutes(15L * slot);
+                    String patient = "Patient " + random.nextInt(PATIENTS);
+                    hospital.scheduleAppointment(patient, "Cardiologist " + d, time);
+                    hospital.scheduleAppointment(patient, "Surgeon " + d, time);
+                }
+            }
+        }
+        hospital.setEndOfDay(LocalTime.of(20, 0));
+    }
+
+    @TearDown(Level.Invocation)
+    public void undo() {
+        List<ReassignmentReport.Move> moves = last.getMoves();
+        for (ReassignmentReport.Move m : moves) {
+            hospital.restoreAppointment(m.getAppointment().getId(), m.getAppointment().getPatient(),
+                    m.getPreviousDoctor(), m.getPreviousDateTime());
+        }
+    }
+
+    @Benchmark
+    public ReassignmentReport reassignWeek() throws AppointmentException {
+        last = hospital.reassignAppointments("Cardiologist 0", WEEK, WEEK.plusDays(DAYS));
+        return last;
+    }
+}
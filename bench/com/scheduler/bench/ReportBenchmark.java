@@ -0,0 +1,70 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.util.HospitalAnalytics;
+import com.scheduler.util.HospitalReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report latency against hospital size: the live HospitalAnalytics report for a day
+ * and a week should stay flat as appointments grow, while the fork-join recompute
+ * over the same week (and over the whole booked range) grows with what it reads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+    static final LocalDate DAY = HospitalFixture.START.toLocalDate();
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    private HospitalFixture fixture;
+    private HospitalAnalytics analytics;
+    private LocalDate end;
+
+    @Setup(Level.Trial)
+    public void build() throws AppointmentException {
+        fixture = new HospitalFixture(appointments);
+        analytics = new HospitalAnalytics(fixture.hospital);
+        end = HospitalFixture.slot(fixture.slotsBooked(0)).toLocalDate().plusDays(1);
+    }
+
+    @Benchmark
+    public HospitalReport liveDay() {
+        return analytics.report(DAY);
+    }
+
+    @Benchmark
+    public HospitalReport liveWeek() {
+        return analytics.report(DAY, DAY.plusDays(7));
+    }
+
+    @Benchmark
+    public HospitalReport recomputeWeek() {
+        return HospitalAnalytics.recompute(fixture.hospital, DAY, DAY.plusDays(7));
+    }
+
+    @Benchmark
+    public HospitalReport recomputeAll() {
+        return HospitalAnalytics.recompute(fixture.hospital, DAY, end);
+    }
+}
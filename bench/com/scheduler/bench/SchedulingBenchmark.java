@@ -0,0 +1,170 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.BookingRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hospital.scheduleAppointment (normal, conflict and emergency paths), the same
+ * bookings as one scheduleAll batch, cancelAppointment (by names and by id) and
+ * rescheduleAppointment against synthetic hospitals of growing size.
+ *
+ * Each invocation runs a batch of operations and the score is per operation.
+ * Whatever the batch changed is undone outside the measured time, so every
+ * invocation sees the same hospital.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 40)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SchedulingBenchmark {
+
+    static final int BATCH = 1_000;
+    static final int EMERGENCY_CHAIN = 8;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int appointments;
+
+    private HospitalFixture fixture;
+
+    private final String[] patients = new String[BATCH];
+    private final String[] doctors = new String[BATCH];
+    private final LocalDateTime[] freeSlots = new LocalDateTime[BATCH];
+    private final LocalDateTime[] bookedSlots = new LocalDateTime[BATCH];
+    private final String[] emergencyPatients = new String[BATCH];
+    private final LocalDateTime[] emergencySlots = new LocalDateTime[BATCH];
+    private final String[] cancelPatients = new String[BATCH];
+    private final String[] cancelDoctors = new String[BATCH];
+    private final long[] appointmentIds = new long[BATCH];
+    private final LocalDateTime[] rescheduleSlots = new LocalDateTime[BATCH];
+    private final List<BookingRequest> normalBatch = new ArrayList<>(BATCH);
+    private final List<BookingRequest> conflictBatch = new ArrayList<>(BATCH);
+
+    @Setup(Level.Trial)
+    public void build() throws AppointmentException {
+        fixture = new HospitalFixture(appointments);
+        Random random = new Random(42);
+        for (int j = 0; j < BATCH; j++) {
+            int doctor = j % HospitalFixture.DOCTORS;
+            patients[j] = HospitalFixture.patientName(random.nextInt(fixture.patients));
+            doctors[j] = HospitalFixture.doctorName(doctor);
+            // A distinct free slot per booking, just past the doctor's last appointment.
+            freeSlots[j] = HospitalFixture.slot(fixture.slotsBooked(doctor) + j / HospitalFixture.DOCTORS);
+            bookedSlots[j] = HospitalFixture.slot(random.nextInt(Math.max(1, fixture.slotsBooked(doctor))));
+            emergencyPatients[j] = HospitalFixture.emergencyPatientName(random.nextInt(HospitalFixture.EMERGENCY_PATIENTS));
+            // Near the end of the doctor's booked run, so each emergency's bump chain is at most a few slots long
+            // (and stays clear of midnight) rather than running through a solidly booked day.
+            int booked = Math.max(1, fixture.slotsBooked(doctor));
+            emergencySlots[j] = HospitalFixture.slot(booked - 1 - random.nextInt(Math.min(EMERGENCY_CHAIN, booked)));
+            normalBatch.add(new BookingRequest(patients[j], doctors[j], freeSlots[j]));
+            conflictBatch.add(new BookingRequest(patients[j], doctors[j], bookedSlots[j]));
+        }
+        for (int j = 0; j < BATCH; j++) {
+            int i = random.nextInt(appointments);
+            cancelPatients[j] = HospitalFixture.patientName(i % fixture.patients);
+            cancelDoctors[j] = HospitalFixture.doctorName(i % HospitalFixture.DOCTORS);
+            // The fixture books appointment i first, so it has id i + 1.
+            appointmentIds[j] = i + 1;
+            rescheduleSlots[j] = HospitalFixture.slot(fixture.slotsBooked(i % HospitalFixture.DOCTORS) + j);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void record() {
+        fixture.record();
+    }
+
+    @TearDown(Level.Invocation)
+    public void undo() {
+        fixture.undo();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void scheduleNormal(Blackhole bh) throws AppointmentException {
+        for (int j = 0; j < BATCH; j++) {
+            bh.consume(fixture.hospital.scheduleAppointment(patients[j], doctors[j], freeSlots[j]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void scheduleConflict(Blackhole bh) {
+        for (int j = 0; j < BATCH; j++) {
+            try {
+                fixture.hospital.scheduleAppointment(patients[j], doctors[j], bookedSlots[j]);
+                throw new IllegalStateException("Expected a conflict at " + bookedSlots[j]);
+            } catch (AppointmentException e) {
+                bh.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void scheduleEmergency(Blackhole bh) throws AppointmentException {
+        for (int j = 0; j < BATCH; j++) {
+            bh.consume(fixture.hospital.scheduleAppointment(emergencyPatients[j], doctors[j], emergencySlots[j]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object scheduleAllNormal() {
+        return fixture.hospital.scheduleAll(normalBatch);
+    }
+
+    // Every row conflicts; reported per row rather than thrown.
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object scheduleAllConflict() {
+        return fixture.hospital.scheduleAll(conflictBatch, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void cancel(Blackhole bh) {
+        for (int j = 0; j < BATCH; j++) {
+            bh.consume(fixture.hospital.cancelAppointment(cancelPatients[j], cancelDoctors[j]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void cancelById(Blackhole bh) {
+        for (int j = 0; j < BATCH; j++) {
+            bh.consume(fixture.hospital.cancelAppointment(appointmentIds[j]));
+        }
+    }
+
+    // Each to its own free slot past the doctor's booked run; an id drawn twice just moves again.
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void rescheduleById(Blackhole bh) throws AppointmentException {
+        for (int j = 0; j < BATCH; j++) {
+            bh.consume(fixture.hospital.rescheduleAppointment(appointmentIds[j], rescheduleSlots[j]));
+        }
+    }
+}
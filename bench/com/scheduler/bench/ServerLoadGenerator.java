@@ -0,0 +1,182 @@
+package com.scheduler.bench;
+
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+import com.scheduler.server.HospitalServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives a HospitalServer with a mix of requests from many client threads and
+ * reports throughput and p50/p99/p99.9 latency. Without a URL it starts a server
+ * on a free local port over a synthetic hospital; with one it loads that server,
+ * which must already have "Doctor 0".."Doctor 49" and "Patient 0".."Patient 999".
+ *
+ * The mix, per request: 40% find a patient, 25% next free slots, 25% book
+ * (a conflict is a normal answer), 10% list a doctor-day's worth of time.
+ *
+ * Uses HttpURLConnection, whose kept-alive connections give each client thread its own
+ * socket, so the figures are the server's and not a shared client's.
+ *
+ * Run: java -cp target/classes:target/test-classes com.scheduler.bench.ServerLoadGenerator [threads] [seconds] [url]
+ */
+public class ServerLoadGenerator {
+
+    private static final int DOCTORS = 50;
+    private static final int PATIENTS = 1000;
+    private static final int DAYS = 30;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        HospitalServer server = null;
+        String base;
+        if (args.length > 2) {
+            base = args[2].endsWith("/") ? args[2].substring(0, args[2].length() - 1) : args[2];
+        } else {
+            server = new HospitalServer(seed(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            base = "http://127.0.0.1:" + server.getPort();
+        }
+
+        long[][] latencies = new long[threads][];
+        int[] counts = new int[threads];
+        AtomicInteger unexpected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        // The first second is warm-up and not counted.
+        long measureFrom = System.nanoTime() + 1_000_000_000L;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] mine = new long[1 << 16];
+                int n = 0;
+                try {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        String[] request = next(base, random);
+                        long began = System.nanoTime();
+                        int status = send(request);
+                        long took = System.nanoTime() - began;
+                        if (status != 200 && status != 201 && status != 409) {
+                            if (unexpected.getAndIncrement() < 5) {
+                                System.out.println("Unexpected " + status + " for " + request[0]);
+                            }
+                        }
+                        if (began < measureFrom) continue;
+                        if (n == mine.length) mine = Arrays.copyOf(mine, n * 2);
+                        mine[n++] = took;
+                    }
+                } catch (IOException | InterruptedException e) {
+                    System.err.println("Client thread failed: " + e);
+                }
+                latencies[worker] = mine;
+                counts[worker] = n;
+            });
+            workers[t].start();
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (server != null) server.stop(0);
+
+        int total = 0;
+        for (int c : counts) total += c;
+        long[] all = new long[total];
+        int at = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, at, counts[t]);
+            at += counts[t];
+        }
+        Arrays.sort(all);
+        double measured = seconds - 1;
+        System.out.printf("%d threads, %d requests in %.0f s: %.0f req/s%n", threads, total, measured, total / measured);
+        if (total > 0) {
+            System.out.printf("latency p50 %s, p99 %s, p99.9 %s, max %s%n", micros(all, 0.50), micros(all, 0.99),
+                    micros(all, 0.999), micros(all, 1.0));
+        }
+        System.out.println(unexpected.get() + " unexpected responses");
+        if (unexpected.get() > 0) System.exit(1);
+    }
+
+    // {url} for a GET, {url, form body} for a POST.
+    private static String[] next(String base, ThreadLocalRandom random) {
+        String patient = encode("Patient " + random.nextInt(PATIENTS));
+        String doctor = encode("Doctor " + random.nextInt(DOCTORS));
+        LocalDateTime when = START.plusDays(random.nextInt(DAYS)).plusMinutes(15L * random.nextInt(40));
+        int pick = random.nextInt(100);
+        if (pick < 40) {
+            return new String[] {base + "/patients?name=" + patient};
+        } else if (pick < 65) {
+            return new String[] {base + "/slots?doctor=" + doctor + "&after=" + when + "&count=5"};
+        } else if (pick < 90) {
+            return new String[] {base + "/appointments", "patient=" + patient + "&doctor=" + doctor + "&dateTime=" + when};
+        } else {
+            return new String[] {base + "/appointments?from=" + when + "&to=" + when.plusHours(2)};
+        }
+    }
+
+    // Reads the whole body, error or not, so the connection goes back for reuse.
+    private static int send(String[] request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(request[0]).openConnection();
+        if (request.length > 1) {
+            byte[] form = request[1].getBytes(StandardCharsets.UTF_8);
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            connection.setFixedLengthStreamingMode(form.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form);
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            try (in) {
+                in.readAllBytes();
+            }
+        }
+        return status;
+    }
+
+    private static Hospital seed() {
+        Hospital hospital = new Hospital();
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, "General"));
+        }
+        for (int p = 0; p < PATIENTS; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 20 + p % 60, p % 2 == 0 ? "F" : "M", "Checkup", false));
+        }
+        return hospital;
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+
+    private static String micros(long[] sorted, double quantile) {
+        int i = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+        return (sorted[Math.max(0, i)] / 1000) + " us";
+    }
+}
@@ -0,0 +1,92 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+import com.scheduler.util.HospitalSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Save/load time and file size of the binary HospitalSnapshot format against
+ * the Java serialization DataManager used before, at growing data sizes.
+ *
+ * Run: java -cp out com.scheduler.bench.SnapshotBenchmark
+ */
+public class SnapshotBenchmark {
+
+    private static final int DOCTORS = 200;
+    private static final int ROUNDS = 3;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10_000, 100_000, 500_000};
+        Path dir = Files.createTempDirectory("snapshot-bench");
+        Path serialized = dir.resolve("hospital.ser");
+        Path binary = dir.resolve("hospital.snap");
+
+        System.out.printf("%12s | %10s %10s %10s | %10s %10s %10s%n", "appointments",
+                "ser save", "ser load", "ser KB", "bin save", "bin load", "bin KB");
+        for (int size : sizes) {
+            Hospital hospital = populate(size);
+            long serSave = Long.MAX_VALUE, serLoad = Long.MAX_VALUE, binSave = Long.MAX_VALUE, binLoad = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                writeSerialized(hospital, serialized);
+                long t1 = System.nanoTime();
+                readSerialized(serialized);
+                long t2 = System.nanoTime();
+                HospitalSnapshot.write(hospital, binary);
+                long t3 = System.nanoTime();
+                HospitalSnapshot.read(binary);
+                long t4 = System.nanoTime();
+                serSave = Math.min(serSave, t1 - t0);
+                serLoad = Math.min(serLoad, t2 - t1);
+                binSave = Math.min(binSave, t3 - t2);
+                binLoad = Math.min(binLoad, t4 - t3);
+            }
+            System.out.printf("%12d | %8dms %8dms %10d | %8dms %8dms %10d%n", size,
+                    serSave / 1_000_000, serLoad / 1_000_000, Files.size(serialized) / 1024,
+                    binSave / 1_000_000, binLoad / 1_000_000, Files.size(binary) / 1024);
+        }
+        Files.deleteIfExists(serialized);
+        Files.deleteIfExists(binary);
+        Files.deleteIfExists(dir);
+    }
+
+    private static Hospital populate(int size) throws AppointmentException {
+        Hospital hospital = new Hospital();
+        int patients = Math.max(1, size / 4);
+        for (int p = 0; p < patients; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 20 + p % 60, p % 2 == 0 ? "F" : "M", "Issue " + (p % 50), false));
+        }
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, "Specialization " + (d % 20)));
+        }
+        for (int i = 0; i < size; i++) {
+            hospital.scheduleAppointment("Patient " + (i % patients), "Doctor " + (i % DOCTORS), START.plusMinutes(15L * (i / DOCTORS)));
+        }
+        return hospital;
+    }
+
+    // What DataManager did before the binary format.
+    private static void writeSerialized(Hospital hospital, Path path) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeObject(hospital);
+        }
+    }
+
+    private static Hospital readSerialized(Path path) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return (Hospital) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.scheduler.bench;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Hospital;
+import com.scheduler.util.OperationLog;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a recorded operation log (see OperationLog, recorded with
+ * -Dscheduler.recordTo=file) from several threads against a fresh Hospital holding
+ * what the recorded one held when recording started (see OperationLog.readStart),
+ * and reports throughput, latency percentiles per kind of call, and how much the
+ * worker threads allocated. A macro-benchmark built from real traffic, to go with
+ * the JMH microbenchmarks.
+ *
+ * Threads take calls in recorded order. A call waits for every addPatient and
+ * addDoctor recorded before it, so it never fails for a name that was not yet
+ * registered. Other calls may overlap and finish out of order, so with more than
+ * one thread some bookings may be refused that were accepted when recorded (and
+ * ids, which are handed out in order, may differ); refusals are counted, not errors.
+ *
+ * With a speed of 0 the calls go as fast as the threads can make them. Otherwise
+ * each is started at its recorded time divided by the speed (1 is the recorded pace),
+ * and its latency is counted from then, not from when a thread got to it, so a
+ * backlog shows up in the figures instead of hiding in the gaps.
+ *
+ * Each round replays the whole log into a new Hospital, loaded before the clock
+ * starts; the first rounds also warm up the JIT.
+ *
+ * Run: java -cp target/classes:target/test-classes com.scheduler.bench.WorkloadReplay log [threads] [speed] [rounds]
+ */
+public class WorkloadReplay {
+
+    private static final int SPINS = 100;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: WorkloadReplay log [threads] [speed] [rounds]");
+            System.exit(2);
+        }
+        Path log = Paths.get(args[0]);
+        List<OperationLog.Operation> operations = OperationLog.read(log);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double speed = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        if (operations.isEmpty()) {
+            System.out.println("The log is empty.");
+            return;
+        }
+        long recordedMicros = operations.get(operations.size() - 1).getOffsetMicros();
+        System.out.printf("%d calls over %.1f s recorded; %d threads, %s%n", operations.size(), recordedMicros / 1e6,
+                threads, speed == 0 ? "as fast as possible" : speed + "x the recorded pace");
+        for (int round = 1; round <= rounds; round++) {
+            System.out.println("Round " + round + ":");
+            replay(OperationLog.readStart(log), operations, threads, speed);
+        }
+    }
+
+    private static void replay(Hospital hospital, List<OperationLog.Operation> operations, int threads, double speed)
+            throws InterruptedException {
+        int n = operations.size();
+        OperationLog.Operation[] ops = operations.toArray(new OperationLog.Operation[0]);
+        // How many registrations come before each call; it starts once that many are done.
+        int[] registrationsBefore = new int[n];
+        int registrations = 0;
+        for (int i = 0; i < n; i++) {
+            registrationsBefore[i] = registrations;
+            if (ops[i].isRegistration()) registrations++;
+        }
+
+        long[] latency = new long[n];
+        boolean[] refused = new boolean[n];
+        long[] allocated = new long[threads];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger registered = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        boolean countsAllocation = threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+        long[] startNanos = new long[1];
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                long allocatedBefore = allocatedBytes(threadBean, countsAllocation);
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long start = startNanos[0];
+                for (int i = next.getAndIncrement(); i < n; i = next.getAndIncrement()) {
+                    // Registrations are quick, so spin briefly, then yield in case the thread making one needs this CPU.
+                    for (int spins = 0; registered.get() < registrationsBefore[i]; spins++) {
+                        if (spins < SPINS) {
+                            Thread.onSpinWait();
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                    long began;
+                    if (speed > 0) {
+                        began = start + (long) (ops[i].getOffsetMicros() * 1000 / speed);
+                        for (long wait = began - System.nanoTime(); wait > 0; wait = began - System.nanoTime()) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    } else {
+                        began = System.nanoTime();
+                    }
+                    try {
+                        ops[i].run(hospital);
+                    } catch (AppointmentException e) {
+                        refused[i] = true;
+                    } catch (RuntimeException e) {
+                        if (errors.getAndIncrement() < 5) {
+                            System.out.println("Unexpected error replaying " + ops[i].getType() + ": " + e);
+                        }
+                    }
+                    latency[i] = System.nanoTime() - began;
+                    if (ops[i].isRegistration()) registered.incrementAndGet();
+                }
+                allocated[worker] = allocatedBytes(threadBean, countsAllocation) - allocatedBefore;
+            }, "replay-" + t);
+            workers[t].start();
+        }
+
+        long gcCountBefore = gcCount(), gcMillisBefore = gcMillis();
+        startNanos[0] = System.nanoTime();
+        go.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - startNanos[0]) / 1e9;
+        long gcCount = gcCount() - gcCountBefore, gcMillis = gcMillis() - gcMillisBefore;
+
+        System.out.printf("  %d calls in %.2f s: %.0f calls/s, %d unexpected errors%n", n, seconds, n / seconds, errors.get());
+        if (countsAllocation) {
+            long bytes = 0;
+            for (long a : allocated) bytes += a;
+            System.out.printf("  allocated %.1f MB/s, %d bytes per call; %d GCs taking %d ms%n",
+                    bytes / seconds / 1e6, bytes / n, gcCount, gcMillis);
+        } else {
+            System.out.printf("  %d GCs taking %d ms (this JVM cannot count allocation per thread)%n", gcCount, gcMillis);
+        }
+        System.out.printf("  %-14s %8s %8s %10s %10s %10s %10s%n", "call", "count", "refused", "p50 us", "p99 us", "p99.9 us", "max us");
+        for (OperationLog.Type type : OperationLog.Type.values()) {
+            List<Long> times = new ArrayList<>();
+            int refusals = 0;
+            for (int i = 0; i < n; i++) {
+                if (ops[i].getType() != type) continue;
+                times.add(latency[i]);
+                if (refused[i]) refusals++;
+            }
+            if (times.isEmpty()) continue;
+            long[] sorted = new long[times.size()];
+            for (int i = 0; i < sorted.length; i++) sorted[i] = times.get(i);
+            Arrays.sort(sorted);
+            System.out.printf("  %-14s %8d %8d %10s %10s %10s %10s%n", type, sorted.length, refusals, micros(sorted, 0.50),
+                    micros(sorted, 0.99), micros(sorted, 0.999), micros(sorted, 1.0));
+        }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threadBean, boolean supported) {
+        if (!supported) return 0;
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static String micros(long[] sorted, double quantile) {
+        int i = Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1);
+        return String.format("%.1f", sorted[Math.max(0, i)] / 1000.0);
+    }
+}
@@ -3,10 +3,41 @@ package com.scheduler.exception;
 /**
  * A custom exception for handling scheduling errors.
  * Demonstrates Module 3.1.
+ *
+ * Carries a Reason, so callers such as the HTTP server can tell the kinds of
+ * refusal apart without reading the message, which is meant for people.
  */
 public class AppointmentException extends Exception {
 
+    /** Why the request was refused. */
+    public enum Reason {
+        /** The date/time is outside the range that can be stored. */
+        INVALID_DATE,
+        /** A patient, doctor or appointment named in the request does not exist. */
+        NOT_FOUND,
+        /** The doctor is marked unavailable. */
+        NOT_AVAILABLE,
+        /** The doctor already has an appointment at that time. */
+        CONFLICT,
+        /** An emergency could only be fitted in by pushing appointments past the doctor's end of day. */
+        DAY_FULL
+    }
+
+    private final Reason reason;
+
+    /**
+     * A scheduling conflict (Reason.CONFLICT), the refusal this exception was first made for.
+     */
     public AppointmentException(String message) {
+        this(Reason.CONFLICT, message);
+    }
+
+    public AppointmentException(Reason reason, String message) {
         super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
     }
-}
\ No newline at end of file
+}
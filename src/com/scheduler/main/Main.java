@@ -1,19 +1,55 @@
 package com.scheduler.main;
 
 import com.scheduler.model.Hospital;
+import com.scheduler.model.OperationRecorder;
+import com.scheduler.server.HospitalServer;
+import com.scheduler.server.ShardMap;
+import com.scheduler.server.ShardRouter;
 import com.scheduler.ui.HPsched;
 import com.scheduler.util.DataManager;
+import com.scheduler.util.OperationLog;
 import javax.swing.SwingUtilities;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Main entry point for the Hospital Appointment Scheduler.
- * Loads data and launches the Swing GUI.
+ * Loads data and launches the Swing GUI, or with "--server [port] [host]"
+ * serves the same data over HTTP instead (see HospitalServer).
+ *
+ * For a partitioned deployment, each shard is a server started in its own
+ * directory (so with its own data files) with "--shard k/n" added, and
+ * "--router port shards.conf [host]" starts the router in front of them
+ * (see ShardRouter and ShardMap).
  */
 public class Main {
 
-    public static void main(String[] args) {
-        // Load the hospital data from file (or create a new one)
-        final Hospital hospital = DataManager.loadData();
+    private static final int DEFAULT_PORT = 8080;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--router")) {
+            runRouter(args);
+            return;
+        }
+
+        boolean server = args.length > 0 && args[0].equals("--server");
+        int[] shard = server ? shard(args) : null;
+        // Load the hospital data from file (or create a new one), set up before anything else can change it
+        final Hospital hospital = DataManager.loadData(loaded -> {
+            setHours(loaded);
+            if (shard != null) loaded.setIdPartition(shard[0], shard[1]);
+            record(loaded);
+        });
+
+        if (server) {
+            runServer(hospital, args);
+            return;
+        }
 
         // Run the GUI on the Event Dispatch Thread (EDT)
         SwingUtilities.invokeLater(() -> {
@@ -21,4 +57,82 @@ public class Main {
             frame.setVisible(true);
         });
     }
-}
\ No newline at end of file
+
+    // Bookable hours, e.g. -Dscheduler.hours=07:30-19:00: free-slot searches stay within them and emergency bumps end
+    // before the close. Without it the whole day is open, as it always was.
+    private static void setHours(Hospital hospital) {
+        String setting = System.getProperty("scheduler.hours");
+        if (setting == null) return;
+        String[] hours = setting.split("-");
+        hospital.setStartOfDay(LocalTime.parse(hours[0].trim()));
+        hospital.setEndOfDay(LocalTime.parse(hours[1].trim()));
+    }
+
+    // With -Dscheduler.recordTo=file, every call from here on is recorded for replay (see OperationLog), after the loaded hospital.
+    private static void record(Hospital hospital) {
+        String path = System.getProperty("scheduler.recordTo");
+        if (path == null) return;
+        OperationLog log;
+        try {
+            log = OperationLog.create(Paths.get(path), hospital);
+        } catch (IOException e) {
+            System.err.println("Error creating operation log, not recording: " + e.getMessage());
+            return;
+        }
+        hospital.setRecorder(log);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            hospital.setRecorder(OperationRecorder.NONE);
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Error closing operation log: " + e.getMessage());
+            }
+        }, "recorder-shutdown"));
+    }
+
+    // "--shard k/n": this is shard k of n, so it hands out only the appointment ids that are k + 1 modulo n. Null if not given.
+    private static int[] shard(String[] args) {
+        for (int i = 1; i + 1 < args.length; i++) {
+            if (args[i].equals("--shard")) {
+                String[] shard = args[i + 1].split("/");
+                return new int[] {Integer.parseInt(shard[0]), Integer.parseInt(shard[1])};
+            }
+        }
+        return null;
+    }
+
+    private static void runServer(Hospital hospital, String[] args) throws IOException {
+        List<String> positional = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--shard") && i + 1 < args.length) {
+                i++; // set up with the data, by shard()
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        int port = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : DEFAULT_PORT;
+        // Local only unless a host is given.
+        InetAddress host = positional.size() > 1 ? InetAddress.getByName(positional.get(1)) : InetAddress.getLoopbackAddress();
+        HospitalServer server = new HospitalServer(hospital, new InetSocketAddress(host, port));
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            DataManager.close(hospital);
+        }, "server-shutdown"));
+        System.out.println("Serving on http://" + host.getHostAddress() + ":" + server.getPort() + "/");
+    }
+
+    private static void runRouter(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: --router port shards.conf [host]");
+            System.exit(2);
+        }
+        ShardMap shards = ShardMap.load(Paths.get(args[2]));
+        InetAddress host = args.length > 3 ? InetAddress.getByName(args[3]) : InetAddress.getLoopbackAddress();
+        ShardRouter router = new ShardRouter(shards, new InetSocketAddress(host, Integer.parseInt(args[1])));
+        router.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> router.stop(2), "router-shutdown"));
+        System.out.println("Routing to " + shards.size() + " shards on http://" + host.getHostAddress() + ":"
+                + router.getPort() + "/");
+    }
+}
@@ -0,0 +1,142 @@
+package com.scheduler.metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts operation durations into log-linear buckets, in the style of HdrHistogram:
+ * each power of two is split into 32 equal buckets, so any percentile read back is
+ * within about 3% of the true value, from nanoseconds up to days, in a fixed 15 KB.
+ *
+ * Recording is lock-free and allocation-free: one bucket increment, one LongAdder add,
+ * and a compare-and-set only when a new maximum is seen. Reads walk the buckets while
+ * recording carries on, so a read is a close, not an exact, picture of the moment.
+ *
+ * Reading the clock twice costs more than some operations do (a name lookup is
+ * well under a microsecond), so a timer can time only a random one call in N;
+ * percentiles are unaffected, and the count is then an estimate.
+ * Get one from Metrics.timer.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    // What start() returns for a call that is not being timed.
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final String name;
+    private final int sampleOneIn;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram(String name, int sampleOneIn) {
+        this.name = name;
+        this.sampleOneIn = sampleOneIn;
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * Starts timing a call; pass the result to stop(). The usual way to time a block is
+     * {@code long start = timer.start(); try { ... } finally { timer.stop(start); }}.
+     */
+    public long start() {
+        if (sampleOneIn > 1 && ThreadLocalRandom.current().nextInt(sampleOneIn) != 0) {
+            return NOT_SAMPLED;
+        }
+        return System.nanoTime();
+    }
+
+    public void stop(long start) {
+        if (start != NOT_SAMPLED) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        totalNanos.add(nanos);
+        if (nanos > maxNanos.get()) {
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+        Metrics.traceIfSlow(this, nanos);
+    }
+
+    /**
+     * Calls timed; for a sampled timer, the estimated number of calls made.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count * sampleOneIn;
+    }
+
+    public long getMaxNanos() { return maxNanos.get(); }
+
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalNanos.sum() * sampleOneIn / count;
+    }
+
+    /**
+     * The duration that 'quantile' (0 to 1) of the recordings did not exceed, to the
+     * bucket's resolution; 0 if nothing has been recorded.
+     */
+    public long getPercentileNanos(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // The top of the bucket, but never more than what was actually seen.
+                return Math.min(upperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * One line: count, mean, p50, p99, p99.9 and max, in microseconds.
+     */
+    @Override
+    public String toString() {
+        return String.format("%-32s count %10d  mean %9.1f  p50 %9.1f  p99 %9.1f  p99.9 %9.1f  max %9.1f us",
+                name, getCount(), micros(getMeanNanos()), micros(getPercentileNanos(0.50)),
+                micros(getPercentileNanos(0.99)), micros(getPercentileNanos(0.999)), micros(getMaxNanos()));
+    }
+
+    private static double micros(double nanos) {
+        return nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    // Values below SUB_BUCKETS get a bucket each; above that, 32 buckets per power of two.
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // The largest value that falls in 'bucket'.
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
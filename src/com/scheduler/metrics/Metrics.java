@@ -0,0 +1,176 @@
+package com.scheduler.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide operation timers and event counters, cheap enough to leave on.
+ * Callers look theirs up once and keep it in a static final field:
+ * <pre>
+ *   private static final LatencyHistogram SCHEDULE_TIME = Metrics.timer("hospital.scheduleAppointment");
+ *   private static final LongAdder CONFLICTS = Metrics.counter("hospital.conflicts");
+ * </pre>
+ * Everything is published as attributes of the JMX MBean com.scheduler:type=Metrics
+ * (e.g. "hospital.scheduleAppointment.p99Micros"), which also has a dump() operation.
+ *
+ * Two system properties add output on System.err:
+ * scheduler.metrics.dumpSeconds=N prints every timer and counter every N seconds, and
+ * scheduler.metrics.slowMillis=N traces each operation that takes longer than N ms.
+ */
+public final class Metrics {
+
+    public static final String OBJECT_NAME = "com.scheduler:type=Metrics";
+
+    // Sorted by name, so dumps and JMX list related metrics together.
+    private static final Map<String, LatencyHistogram> timers = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    private static final long slowNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("scheduler.metrics.slowMillis", 0));
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+        } catch (JMException | RuntimeException e) {
+            System.err.println("Error registering metrics with JMX: " + e.getMessage());
+        }
+        long dumpSeconds = Long.getLong("scheduler.metrics.dumpSeconds", 0);
+        if (dumpSeconds > 0) {
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-dump");
+                t.setDaemon(true);
+                return t;
+            });
+            dumper.scheduleAtFixedRate(() -> System.err.print(dump()), dumpSeconds, dumpSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private Metrics() {}
+
+    public static LatencyHistogram timer(String name) {
+        return timer(name, 1);
+    }
+
+    /**
+     * A timer that times a random one call in 'sampleOneIn', for operations so quick
+     * that reading the clock around every call would noticeably slow them down.
+     * Every caller of the same name gets the timer the first caller created.
+     */
+    public static LatencyHistogram timer(String name, int sampleOneIn) {
+        return timers.computeIfAbsent(name, n -> new LatencyHistogram(n, sampleOneIn));
+    }
+
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    /**
+     * Every timer (one line each, see LatencyHistogram.toString) and then every counter.
+     */
+    public static String dump() {
+        StringBuilder out = new StringBuilder("--- metrics ---\n");
+        for (LatencyHistogram timer : timers.values()) {
+            out.append(timer).append('\n');
+        }
+        for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+            out.append(String.format("%-32s %d%n", counter.getKey(), counter.getValue().sum()));
+        }
+        return out.toString();
+    }
+
+    static void traceIfSlow(LatencyHistogram timer, long nanos) {
+        if (slowNanos > 0 && nanos > slowNanos) {
+            System.err.printf("Slow %s: %.1f ms on %s%n", timer.getName(), nanos / 1e6, Thread.currentThread().getName());
+        }
+    }
+
+    /**
+     * A DynamicMBean rather than a standard one, because the set of timers is only
+     * known at runtime: each timer shows up as six attributes and each counter as one.
+     */
+    private static final class MetricsBean implements DynamicMBean {
+
+        private static final String[] STATS = {"count", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros"};
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            LongAdder counter = counters.get(attribute);
+            if (counter != null) return counter.sum();
+            int dot = attribute.lastIndexOf('.');
+            LatencyHistogram timer = dot < 0 ? null : timers.get(attribute.substring(0, dot));
+            if (timer == null) throw new AttributeNotFoundException(attribute);
+            switch (attribute.substring(dot + 1)) {
+                case "count": return (double) timer.getCount();
+                case "meanMicros": return timer.getMeanNanos() / 1000;
+                case "p50Micros": return timer.getPercentileNanos(0.50) / 1000.0;
+                case "p99Micros": return timer.getPercentileNanos(0.99) / 1000.0;
+                case "p999Micros": return timer.getPercentileNanos(0.999) / 1000.0;
+                case "maxMicros": return timer.getMaxNanos() / 1000.0;
+                default: throw new AttributeNotFoundException(attribute);
+            }
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Left out, as the DynamicMBean contract allows.
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            if ("dump".equals(actionName)) return dump();
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String name : timers.keySet()) {
+                for (String stat : STATS) {
+                    attributes.add(new MBeanAttributeInfo(name + "." + stat, "java.lang.Double",
+                            stat + " of " + name, true, false, false));
+                }
+            }
+            for (String name : counters.keySet()) {
+                attributes.add(new MBeanAttributeInfo(name, "java.lang.Long", name, true, false, false));
+            }
+            MBeanOperationInfo dump = new MBeanOperationInfo("dump", "Every timer and counter as text",
+                    null, "java.lang.String", MBeanOperationInfo.INFO);
+            return new MBeanInfo(MetricsBean.class.getName(), "Hospital scheduler operation metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[] {dump}, null);
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.scheduler.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
@@ -9,25 +14,91 @@ import java.time.format.DateTimeFormatter;
  * Implements Serializable for File I/O (Module 3.2).
  */
 public class Appointment implements Serializable {
-    private final Patient patient;
-    private final Doctor doctor;
-    private LocalDateTime appointmentDateTime;
+
+    // Pinned so that hospital.dat files written by earlier versions still load.
+    private static final long serialVersionUID = 2350403190569505802L;
+
+    // Saved with the date/time as a LocalDateTime, as earlier versions did.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("patient", Patient.class),
+            new ObjectStreamField("doctor", Doctor.class),
+            new ObjectStreamField("appointmentDateTime", LocalDateTime.class),
+            new ObjectStreamField("id", long.class)
+    };
+
+    // Not final only because readObject assigns them.
+    private Patient patient;
+    private Doctor doctor;
+    // The slot as minutes since the epoch (see toEpochMinute). Kept as a plain int so that
+    // sorting and conflict checks compare numbers; the LocalDateTime is only built when asked for.
+    private int epochMinute;
+    // Assigned by Hospital. Unique and stable across saves; also orders appointments that share a time slot.
+    private long id;
 
     public Appointment(Patient patient, Doctor doctor, LocalDateTime appointmentDateTime) {
+        this(patient, doctor, toEpochMinute(appointmentDateTime));
+    }
+
+    Appointment(Patient patient, Doctor doctor, int epochMinute) {
         this.patient = patient;
         this.doctor = doctor;
-        this.appointmentDateTime = appointmentDateTime;
+        this.epochMinute = epochMinute;
     }
 
     public Patient getPatient() { return patient; }
     public Doctor getDoctor() { return doctor; }
-    public LocalDateTime getAppointmentDateTime() { return appointmentDateTime; }
-    public void setAppointmentDateTime(LocalDateTime appointmentDateTime) { this.appointmentDateTime = appointmentDateTime; }
+    public LocalDateTime getAppointmentDateTime() { return fromEpochMinute(epochMinute); }
+    public int getEpochMinute() { return epochMinute; }
+    // Only Hospital moves appointments, since the time is the key of its indexes.
+    void setEpochMinute(int epochMinute) { this.epochMinute = epochMinute; }
+    public long getId() { return id; }
+    void setId(long id) { this.id = id; }
+
+    /**
+     * Minutes since 1970-01-01T00:00, the compact form of a date/time used on disk.
+     * LocalDateTime has no zone, so UTC is used only as a fixed reference point.
+     */
+    public static int toEpochMinute(LocalDateTime dateTime) {
+        long minute = Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+        if (minute != (int) minute) {
+            throw new IllegalArgumentException("Date out of range: " + dateTime);
+        }
+        return (int) minute;
+    }
+
+    /**
+     * True if toEpochMinute can store this date/time: roughly the years -2114 to 6053.
+     */
+    public static boolean isSupported(LocalDateTime dateTime) {
+        long minute = Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+        return minute == (int) minute;
+    }
+
+    public static LocalDateTime fromEpochMinute(int epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC);
+    }
 
     @Override
     public String toString() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
         return "Appointment [Patient: " + patient.getName() + ", Doctor: " + doctor.getName() +
-                ", Date/Time: " + appointmentDateTime.format(formatter) + "]";
+                ", Date/Time: " + getAppointmentDateTime().format(formatter) + "]";
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("patient", patient);
+        fields.put("doctor", doctor);
+        fields.put("appointmentDateTime", getAppointmentDateTime());
+        fields.put("id", id);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        patient = (Patient) fields.get("patient", null);
+        doctor = (Doctor) fields.get("doctor", null);
+        epochMinute = toEpochMinute((LocalDateTime) fields.get("appointmentDateTime", null));
+        id = fields.get("id", 0L);
     }
 }
\ No newline at end of file
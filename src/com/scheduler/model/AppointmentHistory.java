@@ -0,0 +1,60 @@
+package com.scheduler.model;
+
+import java.io.IOException;
+
+/**
+ * Read-only store for past appointments that have been moved out of Hospital's
+ * in-memory schedule. Works in compact records (ids, registry numbers and epoch
+ * minutes, see {@link Appointment#toEpochMinute}) so that Hospital only builds
+ * Appointment objects for the records a caller actually asks for.
+ */
+public interface AppointmentHistory {
+
+    /**
+     * Receives one stored record.
+     */
+    interface RecordVisitor {
+        void visit(long id, int patientId, int doctorId, int epochMinute);
+    }
+
+    /** A history with nothing in it, and no room for any: Hospital archives nothing while it has this one. */
+    AppointmentHistory NONE = new AppointmentHistory() {
+        @Override public int coveredUntil() { return Integer.MIN_VALUE; }
+        @Override public int size() { return 0; }
+        @Override public boolean contains(long id, int epochMinute) { return false; }
+        @Override public boolean isBooked(int doctorId, int epochMinute) { return false; }
+        @Override public void forEachBetween(int fromMinute, int toMinute, RecordVisitor visitor) { }
+        @Override public void append(long[] ids, int[] patientIds, int[] doctorIds, int[] epochMinutes, int count, int until) {
+            throw new IllegalStateException("No history store attached; there is nowhere to archive to");
+        }
+    };
+
+    /**
+     * Every appointment archived so far is before this epoch minute.
+     */
+    int coveredUntil();
+
+    int size();
+
+    boolean contains(long id, int epochMinute);
+
+    boolean isBooked(int doctorId, int epochMinute);
+
+    /**
+     * Visits records from 'fromMinute' (inclusive) to 'toMinute' (exclusive) in time order.
+     */
+    void forEachBetween(int fromMinute, int toMinute, RecordVisitor visitor);
+
+    /**
+     * Adds records, sorted by time and all at or after {@link #coveredUntil()},
+     * then advances coveredUntil to 'until'.
+     */
+    void append(long[] ids, int[] patientIds, int[] doctorIds, int[] epochMinutes, int count, int until) throws IOException;
+
+    /**
+     * Work an append left for later, such as compacting what it wrote. Called after
+     * the caller has released its locks, so append itself can stay short.
+     */
+    default void settle() throws IOException {
+    }
+}
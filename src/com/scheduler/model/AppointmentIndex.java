@@ -0,0 +1,117 @@
+package com.scheduler.model;
+
+/**
+ * Appointment id -> appointment, keyed on the primitive id so that neither
+ * lookups nor inserts box a Long or allocate a map entry.
+ * Split into segments by id, each with its own lock; ids are handed out in
+ * sequence, so concurrent bookings land in different segments.
+ */
+class AppointmentIndex {
+
+    private static final int SEGMENTS = 16; // power of two
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    AppointmentIndex() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    Appointment get(long id) {
+        return segmentFor(id).get(id);
+    }
+
+    void put(Appointment appointment) {
+        segmentFor(appointment.getId()).put(appointment);
+    }
+
+    void remove(long id) {
+        segmentFor(id).remove(id);
+    }
+
+    private Segment segmentFor(long id) {
+        return segments[(int) id & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Open addressing with linear probing; a null value marks an empty slot.
+     */
+    private static class Segment {
+        private long[] keys = new long[16];
+        private Appointment[] values = new Appointment[16];
+        private int size;
+
+        synchronized Appointment get(long id) {
+            int i = indexOf(id);
+            return i < 0 ? null : values[i];
+        }
+
+        synchronized void put(Appointment appointment) {
+            long id = appointment.getId();
+            int i = indexOf(id);
+            if (i >= 0) {
+                values[i] = appointment;
+                return;
+            }
+            if ((size + 1) * 4 > values.length * 3) {
+                resize(values.length * 2);
+            }
+            insert(id, appointment);
+            size++;
+        }
+
+        synchronized void remove(long id) {
+            int i = indexOf(id);
+            if (i < 0) return;
+            values[i] = null;
+            size--;
+            // Shift later entries of the same probe run back, so lookups never stop at the hole.
+            int mask = values.length - 1;
+            for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean reachable = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!reachable) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        private int indexOf(long id) {
+            int mask = values.length - 1;
+            for (int i = slot(id, mask); values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == id) return i;
+            }
+            return -1;
+        }
+
+        private void insert(long id, Appointment appointment) {
+            int mask = values.length - 1;
+            int i = slot(id, mask);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = id;
+            values[i] = appointment;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Appointment[] oldValues = values;
+            keys = new long[capacity];
+            values = new Appointment[capacity];
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != null) insert(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long id, int mask) {
+            // The low bits picked the segment; spread the rest.
+            long h = (id >>> 4) * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.scheduler.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of a batch for Hospital.scheduleAll: the same three things scheduleAppointment takes.
+ */
+public final class BookingRequest {
+
+    private final String patientName;
+    private final String doctorName;
+    private final LocalDateTime dateTime;
+
+    public BookingRequest(String patientName, String doctorName, LocalDateTime dateTime) {
+        if (dateTime == null) {
+            throw new IllegalArgumentException("A booking request needs a date and time.");
+        }
+        this.patientName = patientName;
+        this.doctorName = doctorName;
+        this.dateTime = dateTime;
+    }
+
+    public String getPatientName() { return patientName; }
+    public String getDoctorName() { return doctorName; }
+    public LocalDateTime getDateTime() { return dateTime; }
+
+    @Override
+    public String toString() {
+        return "BookingRequest [Patient: " + patientName + ", Doctor: " + doctorName + ", Date/Time: " + dateTime + "]";
+    }
+}
@@ -0,0 +1,86 @@
+package com.scheduler.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What Hospital.scheduleAll did with one BookingRequest. Failures are reported
+ * here rather than thrown, so one bad row costs no more than a good one.
+ */
+public final class BookingResult {
+
+    public enum Status {
+        BOOKED,
+        PATIENT_NOT_FOUND,
+        DOCTOR_NOT_FOUND,
+        DOCTOR_NOT_AVAILABLE,
+        /** The doctor already has an appointment at that time (or an earlier row of the batch took it). */
+        CONFLICT,
+        /** An emergency that could only be fitted in by pushing appointments past the doctor's end of day. */
+        DAY_FULL,
+        /** Could have been booked, but another row failed and the batch was all-or-nothing. */
+        NOT_APPLIED
+    }
+
+    private final BookingRequest request;
+    private final Status status;
+    private final Appointment appointment;
+    private final List<Appointment> moved;
+
+    // Not booked.
+    BookingResult(BookingRequest request, Status status) {
+        this.request = request;
+        this.status = status;
+        this.appointment = null;
+        this.moved = Collections.emptyList();
+    }
+
+    BookingResult(BookingRequest request, Appointment appointment, List<Appointment> moved) {
+        this.request = request;
+        this.status = Status.BOOKED;
+        this.appointment = appointment;
+        this.moved = Collections.unmodifiableList(moved);
+    }
+
+    public BookingRequest getRequest() { return request; }
+    public Status getStatus() { return status; }
+    public boolean isBooked() { return status == Status.BOOKED; }
+
+    /**
+     * The new appointment's id, or 0 if nothing was booked.
+     */
+    public long getAppointmentId() { return appointment == null ? 0 : appointment.getId(); }
+
+    /**
+     * The appointments an emergency booking pushed later to make room, in time order,
+     * already at their new times. Empty for every other booking.
+     */
+    public List<Appointment> getMoved() { return moved; }
+
+    /**
+     * The same message scheduleAppointment would have returned or thrown for this row.
+     */
+    public String getMessage() {
+        switch (status) {
+            case BOOKED:
+                return "Appointment scheduled for " + request.getPatientName() + " with Dr. " + request.getDoctorName() + ".";
+            case PATIENT_NOT_FOUND:
+                return "Patient not found: " + request.getPatientName();
+            case DOCTOR_NOT_FOUND:
+                return "Doctor not found: " + request.getDoctorName();
+            case DOCTOR_NOT_AVAILABLE:
+                return "Sorry, Dr. " + request.getDoctorName() + " is not available.";
+            case CONFLICT:
+                return "Error: Dr. " + request.getDoctorName() + " already has an appointment at this time.";
+            case DAY_FULL:
+                return "Error: Dr. " + request.getDoctorName() + "'s day is too full to fit an emergency at this time.";
+            default:
+                return "Not scheduled: another booking in the batch failed.";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return status + ": " + getMessage();
+    }
+}
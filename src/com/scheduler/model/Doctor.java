@@ -5,8 +5,13 @@ package com.scheduler.model;
  * Implements Serializable (part of Person) (Module 3.2).
  */
 public class Doctor extends Person {
+
+    // Pinned so that hospital.dat files written by earlier versions still load.
+    private static final long serialVersionUID = -1225885983830408281L;
+
     private final String specialization;
-    private boolean isAvailable;
+    // Read by booking threads without locking.
+    private volatile boolean isAvailable;
 
     public Doctor(String name, String specialization) {
         super(name);
@@ -0,0 +1,229 @@
+package com.scheduler.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One doctor's bookings, ordered by time slot.
+ * Lets Hospital check a slot in O(log n) of that doctor's own appointments
+ * instead of scanning every appointment in the hospital.
+ * Not thread-safe on its own: Hospital holds the schedule's monitor while using it,
+ * which makes each doctor a separate lock stripe.
+ *
+ * Stored by day: a sorted array of the epoch days that have bookings, and for each
+ * a Day holding two parallel arrays sorted by (epoch minute, id), the slot minutes
+ * as plain ints and the appointments themselves. Lookups binary-search the days and
+ * then the day's int column, so checking a slot neither allocates nor boxes nor
+ * touches an Appointment, and a booking shifts only that day's entries.
+ *
+ * Each Day also keeps a bitmap of which 15-minute slots on the grid are taken, so
+ * finding the next free slot skips a booked day in one step instead of walking its
+ * appointments.
+ */
+class DoctorSchedule {
+
+    static final int SLOT_MINUTES = 15;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int INITIAL_DAYS = 8;
+    // Valid bits of a day's second bitmap word (slots 64 to 95).
+    private static final long HIGH_WORD_SLOTS = (1L << (SLOTS_PER_DAY - 64)) - 1;
+
+    // Epoch days with at least one appointment, ascending, and their bookings at the same index.
+    private int[] dayKeys = new int[INITIAL_DAYS];
+    private Day[] days = new Day[INITIAL_DAYS];
+    private int dayCount;
+
+    /**
+     * One day's bookings. A slot normally holds one appointment, but emergencies may share a slot.
+     */
+    private static final class Day {
+        private static final int INITIAL_CAPACITY = 4;
+
+        int[] minutes = new int[INITIAL_CAPACITY];
+        Appointment[] entries = new Appointment[INITIAL_CAPACITY];
+        int size;
+        // One bit per grid slot holding at least one appointment; appointments off the grid are not marked.
+        long low, high;
+
+        boolean isBooked(int epochMinute) {
+            int i = lowerBound(epochMinute, Long.MIN_VALUE);
+            return i < size && minutes[i] == epochMinute;
+        }
+
+        void add(Appointment appointment) {
+            int i = lowerBound(appointment.getEpochMinute(), appointment.getId());
+            if (size == minutes.length) {
+                minutes = Arrays.copyOf(minutes, size * 2);
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            System.arraycopy(minutes, i, minutes, i + 1, size - i);
+            System.arraycopy(entries, i, entries, i + 1, size - i);
+            minutes[i] = appointment.getEpochMinute();
+            entries[i] = appointment;
+            size++;
+            mark(appointment.getEpochMinute(), true);
+        }
+
+        boolean remove(Appointment appointment) {
+            int i = lowerBound(appointment.getEpochMinute(), appointment.getId());
+            if (i == size || entries[i] != appointment) return false;
+            size--;
+            System.arraycopy(minutes, i + 1, minutes, i, size - i);
+            System.arraycopy(entries, i + 1, entries, i, size - i);
+            entries[size] = null;
+            // Emergencies can share a slot; it only becomes free when the last one leaves.
+            if (!isBooked(appointment.getEpochMinute())) {
+                mark(appointment.getEpochMinute(), false);
+            }
+            return true;
+        }
+
+        private void mark(int epochMinute, boolean used) {
+            if (Math.floorMod(epochMinute, SLOT_MINUTES) != 0) return;
+            int bit = Math.floorMod(epochMinute, MINUTES_PER_DAY) / SLOT_MINUTES;
+            long mask = 1L << bit;
+            if (bit < 64) {
+                low = used ? low | mask : low & ~mask;
+            } else {
+                high = used ? high | mask : high & ~mask;
+            }
+        }
+
+        // First entry that sorts at or after (epochMinute, id).
+        int lowerBound(int epochMinute, long id) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int minute = minutes[mid];
+                if (minute < epochMinute || (minute == epochMinute && entries[mid].getId() < id)) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    boolean isBooked(int epochMinute) {
+        Day day = dayOf(epochMinute);
+        return day != null && day.isBooked(epochMinute);
+    }
+
+    void add(Appointment appointment) {
+        int key = Math.floorDiv(appointment.getEpochMinute(), MINUTES_PER_DAY);
+        int d = dayIndex(key);
+        if (d == dayCount || dayKeys[d] != key) {
+            if (dayCount == dayKeys.length) {
+                dayKeys = Arrays.copyOf(dayKeys, dayCount * 2);
+                days = Arrays.copyOf(days, dayCount * 2);
+            }
+            System.arraycopy(dayKeys, d, dayKeys, d + 1, dayCount - d);
+            System.arraycopy(days, d, days, d + 1, dayCount - d);
+            dayKeys[d] = key;
+            days[d] = new Day();
+            dayCount++;
+        }
+        days[d].add(appointment);
+    }
+
+    /**
+     * @return true if the appointment was in this schedule
+     */
+    boolean remove(Appointment appointment) {
+        int key = Math.floorDiv(appointment.getEpochMinute(), MINUTES_PER_DAY);
+        int d = dayIndex(key);
+        if (d == dayCount || dayKeys[d] != key || !days[d].remove(appointment)) return false;
+        if (days[d].size == 0) {
+            dayCount--;
+            System.arraycopy(dayKeys, d + 1, dayKeys, d, dayCount - d);
+            System.arraycopy(days, d + 1, days, d, dayCount - d);
+            days[dayCount] = null;
+            // Give the memory back once most of the days have been canceled or archived.
+            if (dayKeys.length > INITIAL_DAYS && dayCount < dayKeys.length / 4) {
+                dayKeys = Arrays.copyOf(dayKeys, dayKeys.length / 2);
+                days = Arrays.copyOf(days, days.length / 2);
+            }
+        }
+        return true;
+    }
+
+    Appointment findNonEmergencyAt(int epochMinute) {
+        Day day = dayOf(epochMinute);
+        if (day == null) return null;
+        for (int i = day.lowerBound(epochMinute, Long.MIN_VALUE); i < day.size && day.minutes[i] == epochMinute; i++) {
+            if (!day.entries[i].getPatient().isEmergency()) return day.entries[i];
+        }
+        return null;
+    }
+
+    /**
+     * Appointments in [fromMinute, toMinute), in time order. O(log n + k), plus the days in between.
+     */
+    List<Appointment> between(int fromMinute, int toMinute) {
+        List<Appointment> result = new ArrayList<>();
+        if (fromMinute >= toMinute) return result;
+        int lastKey = Math.floorDiv(toMinute - 1, MINUTES_PER_DAY);
+        for (int d = dayIndex(Math.floorDiv(fromMinute, MINUTES_PER_DAY)); d < dayCount && dayKeys[d] <= lastKey; d++) {
+            Day day = days[d];
+            for (int i = day.lowerBound(fromMinute, Long.MIN_VALUE); i < day.size && day.minutes[i] < toMinute; i++) {
+                result.add(day.entries[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The first grid slot starting at or after 'fromMinute' with nothing booked in it,
+     * as an epoch minute. O(1) per booked day skipped; never looks at an appointment.
+     */
+    int nextFreeSlot(int fromMinute) {
+        int slot = Math.floorDiv(fromMinute + SLOT_MINUTES - 1, SLOT_MINUTES);
+        int key = Math.floorDiv(slot, SLOTS_PER_DAY);
+        int first = slot - key * SLOTS_PER_DAY;
+        for (int d = dayIndex(key); d < dayCount && dayKeys[d] == key; d++, key++, first = 0) {
+            Day day = days[d];
+            for (int w = first >>> 6; w < 2; w++) {
+                long free = w == 0 ? ~day.low : ~day.high & HIGH_WORD_SLOTS;
+                if (w == first >>> 6) free &= -1L << (first & 63);
+                if (free != 0) {
+                    return (key * SLOTS_PER_DAY + w * 64 + Long.numberOfTrailingZeros(free)) * SLOT_MINUTES;
+                }
+            }
+        }
+        // A day with nothing booked.
+        return (key * SLOTS_PER_DAY + first) * SLOT_MINUTES;
+    }
+
+    /**
+     * Moves an appointment to a new time, keeping the slot index in sync.
+     */
+    void move(Appointment appointment, int newEpochMinute) {
+        remove(appointment);
+        appointment.setEpochMinute(newEpochMinute);
+        add(appointment);
+    }
+
+    private Day dayOf(int epochMinute) {
+        int key = Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+        int d = dayIndex(key);
+        return d < dayCount && dayKeys[d] == key ? days[d] : null;
+    }
+
+    // Index of the first day at or after 'key'.
+    private int dayIndex(int key) {
+        int lo = 0, hi = dayCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dayKeys[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
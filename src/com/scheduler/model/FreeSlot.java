@@ -0,0 +1,27 @@
+package com.scheduler.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A bookable 15-minute slot with a doctor, as returned by Hospital.findFreeSlots.
+ */
+public final class FreeSlot {
+
+    private final Doctor doctor;
+    private final int epochMinute;
+
+    FreeSlot(Doctor doctor, int epochMinute) {
+        this.doctor = doctor;
+        this.epochMinute = epochMinute;
+    }
+
+    public Doctor getDoctor() { return doctor; }
+    public LocalDateTime getDateTime() { return Appointment.fromEpochMinute(epochMinute); }
+    public int getEpochMinute() { return epochMinute; }
+
+    @Override
+    public String toString() {
+        return getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) + " with Dr. " + doctor.getName();
+    }
+}
@@ -1,97 +1,1590 @@
 package com.scheduler.model;
 
 import com.scheduler.exception.AppointmentException;
+import com.scheduler.exception.AppointmentException.Reason;
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.Metrics;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * Manages all core data and logic.
  * Implements Serializable for File I/O (Module 3.2).
+ *
+ * Thread-safe. Bookings lock only the doctor's own schedule, so bookings for
+ * different doctors never wait on each other; the shared indexes are concurrent
+ * collections. Readers see weakly consistent views, and an appointment being
+ * moved by an emergency bump may briefly be missing from getAllAppointments().
  */
 public class Hospital implements Serializable {
 
-    // 'final' lists are still serializable, as long as the list *type* (ArrayList) is.
-    private final List<Patient> patients = new ArrayList<>();
-    private final List<Doctor> doctors = new ArrayList<>();
-    private final List<Appointment> appointments = new ArrayList<>();
+    // Pinned so that hospital.dat files written by earlier versions still load.
+    private static final long serialVersionUID = -3336382840176214933L;
 
-    public void addPatient(Patient patient) { patients.add(patient); }
-    public List<Patient> getAllPatients() { return new ArrayList<>(patients); }
+    // The saved form is still three plain lists, so files from earlier versions stay readable.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("patients", List.class),
+            new ObjectStreamField("doctors", List.class),
+            new ObjectStreamField("appointments", List.class)
+    };
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    private static final LatencyHistogram SCHEDULE_TIME = Metrics.timer("hospital.scheduleAppointment");
+    private static final LatencyHistogram SCHEDULE_ALL_TIME = Metrics.timer("hospital.scheduleAll");
+    private static final LatencyHistogram CANCEL_TIME = Metrics.timer("hospital.cancelAppointment");
+    private static final LatencyHistogram RESCHEDULE_TIME = Metrics.timer("hospital.rescheduleAppointment");
+    private static final LatencyHistogram REASSIGN_TIME = Metrics.timer("hospital.reassignAppointments");
+    // Lookups take less time than reading the clock twice, so only a sample is timed.
+    private static final LatencyHistogram FIND_PATIENT_TIME = Metrics.timer("hospital.findPatientByName", 16);
+    private static final LatencyHistogram FIND_DOCTOR_TIME = Metrics.timer("hospital.findDoctorByName", 16);
+    private static final LatencyHistogram RANGE_TIME = Metrics.timer("hospital.getAppointmentsBetween");
+    // Bookings refused because the slot was taken, or because an emergency's bumps would run past the end of day.
+    private static final LongAdder CONFLICTS = Metrics.counter("hospital.conflicts");
+    private static final LongAdder DAY_FULL = Metrics.counter("hospital.dayFull");
+    // Appointments moved later by emergencies (only those actually committed).
+    private static final LongAdder BUMPS = Metrics.counter("hospital.bumps");
+
+    // Time order, with the id breaking ties between appointments in the same slot.
+    // Compares the int epoch minutes, so ordering never builds a LocalDateTime.
+    private static final Comparator<Appointment> BY_DATE_TIME =
+            Comparator.comparingInt(Appointment::getEpochMinute).thenComparingLong(Appointment::getId);
+
+    // Registration order; guarded by their own monitors.
+    private List<Patient> patients = new ArrayList<>();
+    private List<Doctor> doctors = new ArrayList<>();
+    // Always sorted by date/time, so reads never need to sort or copy.
+    private NavigableSet<Appointment> appointments = new ConcurrentSkipListSet<>(BY_DATE_TIME);
+    private AtomicLong nextAppointmentId = new AtomicLong(1);
+    // ConcurrentSkipListSet.size() walks the whole set, so keep the count alongside.
+    private AtomicInteger appointmentCount = new AtomicInteger();
+
+    // Per-doctor slot index, indexed by Doctor.getId(); derived from 'appointments', so it is
+    // rebuilt on load rather than saved. Each DoctorSchedule is also the lock for that doctor's bookings.
+    // Grown under the 'doctors' lock and republished as a whole.
+    private volatile DoctorSchedule[] schedules = new DoctorSchedule[16];
+
+    // Name lookups keyed by Person.normalizeName; also derived, so rebuilt on load.
+    private Map<String, Patient> patientsByName = new ConcurrentHashMap<>();
+    private Map<String, Doctor> doctorsByName = new ConcurrentHashMap<>();
+    // Typeahead over the same keys; derived, rebuilt on load.
+    private NameIndex patientNames = new NameIndex();
+    private NameIndex doctorNames = new NameIndex();
+    // Appointment id -> appointment; derived, rebuilt on load.
+    private AppointmentIndex appointmentsById = new AppointmentIndex();
+    // Patient -> their in-memory appointments; derived, rebuilt on load.
+    private PatientAppointmentIndex appointmentsByPatient = new PatientAppointmentIndex();
+
+    // Not part of the saved data.
+    private List<HospitalListener> listeners = new CopyOnWriteArrayList<>();
+    // Past appointments moved out of memory; attached by DataManager, also not saved with the Hospital.
+    private volatile AppointmentHistory history = AppointmentHistory.NONE;
+    // Minute of the day that emergency bumps must stay before; a setting, so not saved either.
+    private volatile int endOfDay = MINUTES_PER_DAY;
+    // Minute of the day that the free-slot search starts from; a setting, not saved either.
+    private volatile int startOfDay;
+    // The scheduleAll batch this thread is applying, if any; not saved either.
+    private ThreadLocal<Batch> batch = new ThreadLocal<>();
+    // Changes made since this Hospital was created or loaded; not saved either.
+    private AtomicLong changeCount = new AtomicLong();
+    // Told about every operation call; not saved either.
+    private volatile OperationRecorder recorder = OperationRecorder.NONE;
+    // New appointment ids are idPartition + 1 modulo idPartitions; a setting, not saved either.
+    private volatile int idPartition = 0;
+    private volatile int idPartitions = 1;
+
+    public void addListener(HospitalListener listener) { listeners.add(listener); }
+
+    /**
+     * Adds a listener that takes over from 'catchUp', e.g. one that counts what is already
+     * there. No doctor can be registered and no appointment can change from the start of
+     * catchUp until the listener is added, so what catchUp reads (getAllDoctors,
+     * getAllAppointments) and the events that follow add up to everything, with nothing
+     * missed or told twice. Bookings wait meanwhile, so keep catchUp short.
+     */
+    public void addListener(HospitalListener listener, Runnable catchUp) {
+        // Registration lock first, then every schedule in id order; no thread holding a schedule lock takes it.
+        synchronized (doctors) {
+            List<DoctorSchedule> locks = new ArrayList<>();
+            for (DoctorSchedule schedule : schedules) {
+                if (schedule != null) locks.add(schedule);
+            }
+            withLocks(locks, 0, () -> {
+                catchUp.run();
+                listeners.add(listener);
+            });
+        }
+    }
+    public void removeListener(HospitalListener listener) { listeners.remove(listener); }
+
+    /**
+     * Counts every change listeners have been told about since this Hospital was
+     * created or loaded. Compare two readings to tell whether anything changed in between.
+     */
+    public long getChangeCount() { return changeCount.get(); }
+
+    /**
+     * Attaches something to hear every add, schedule, cancel, reschedule and reassign
+     * call from now on, e.g. to record the traffic for replay. Not saved with the hospital.
+     */
+    public void setRecorder(OperationRecorder recorder) { this.recorder = recorder; }
+    public OperationRecorder getRecorder() { return recorder; }
+
+    /**
+     * Hands out only appointment ids that are partition + 1 modulo partitions from now
+     * on, so the hospitals of a partitioned deployment (one per shard; see ShardRouter)
+     * never hand out the same id, and an id alone tells which of them owns it.
+     * Not saved with the hospital: set it the same way each time its data is loaded.
+     */
+    public void setIdPartition(int partition, int partitions) {
+        if (partitions < 1 || partition < 0 || partition >= partitions) {
+            throw new IllegalArgumentException("Bad id partition " + partition + "/" + partitions);
+        }
+        synchronized (nextAppointmentId) {
+            idPartition = partition;
+            idPartitions = partitions;
+            nextAppointmentId.set(firstIdFrom(nextAppointmentId.get()));
+        }
+    }
+
+    public int getIdPartition() { return idPartition; }
+    public int getIdPartitions() { return idPartitions; }
+
+    // The first id at or after 'id' that belongs to this hospital's partition.
+    private long firstIdFrom(long id) {
+        int partitions = idPartitions;
+        return id + Math.floorMod(idPartition - (id - 1), (long) partitions);
+    }
+
+    /**
+     * Registers a patient. Names are unique ignoring case, because that is how
+     * appointments refer to patients; a second patient with the same name is rejected.
+     *
+     * @return true if the patient was added, false if the name is already taken
+     */
+    public boolean addPatient(Patient patient) {
+        recorder.addPatient(patient);
+        String key = patient.getNameKey();
+        synchronized (patients) {
+            if (patientsByName.containsKey(key)) {
+                return false;
+            }
+            patient.setId(patients.size());
+            patients.add(patient);
+            notifyListeners(l -> l.patientAdded(patient));
+            // Published last, so nobody can book the patient before listeners have seen it.
+            patientsByName.put(key, patient);
+            patientNames.add(key);
+        }
+        return true;
+    }
+    public List<Patient> getAllPatients() {
+        synchronized (patients) {
+            return new ArrayList<>(patients);
+        }
+    }
+    public int getPatientCount() {
+        synchronized (patients) {
+            return patients.size();
+        }
+    }
+    /**
+     * The patient with this registry number (see Person.getId()), without copying the registry.
+     */
+    public Patient getPatient(int id) {
+        synchronized (patients) {
+            return patients.get(id);
+        }
+    }
     public Optional<Patient> findPatientByName(String name) {
-        return patients.stream().filter(p -> p.getName().equalsIgnoreCase(name)).findFirst();
+        if (name == null) return Optional.empty();
+        long start = FIND_PATIENT_TIME.start();
+        try {
+            return Optional.ofNullable(patientsByName.get(Person.normalizeName(name)));
+        } finally {
+            FIND_PATIENT_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Registers a doctor. Same uniqueness rule as {@link #addPatient(Patient)}.
+     *
+     * @return true if the doctor was added, false if the name is already taken
+     */
+    public boolean addDoctor(Doctor doctor) {
+        recorder.addDoctor(doctor);
+        String key = doctor.getNameKey();
+        synchronized (doctors) {
+            if (doctorsByName.containsKey(key)) {
+                return false;
+            }
+            doctor.setId(doctors.size());
+            doctors.add(doctor);
+            addSchedule(doctor);
+            notifyListeners(l -> l.doctorAdded(doctor));
+            doctorsByName.put(key, doctor);
+            doctorNames.add(key);
+        }
+        return true;
     }
 
-    public void addDoctor(Doctor doctor) { doctors.add(doctor); }
-    public List<Doctor> getAllDoctors() { return new ArrayList<>(doctors); }
+    /**
+     * Marks the named doctor as taking bookings or not. Appointments already booked
+     * stay as they are. Listeners hear of it (see HospitalListener.doctorAvailabilityChanged),
+     * so the journal keeps it across a restart.
+     *
+     * @throws AppointmentException if the doctor is not found
+     */
+    public void setDoctorAvailable(String doctorName, boolean available) throws AppointmentException {
+        Doctor doctor = doctorName == null ? null : doctorsByName.get(Person.normalizeName(doctorName));
+        if (doctor == null) {
+            throw new AppointmentException(Reason.NOT_FOUND, "Doctor not found: " + doctorName);
+        }
+        // Under the doctor's lock, so the journal orders it among that doctor's bookings.
+        synchronized (scheduleFor(doctor)) {
+            doctor.setAvailable(available);
+            fire(l -> l.doctorAvailabilityChanged(doctor));
+        }
+    }
+    /**
+     * Patients whose name, or any word in it, starts with 'query' ignoring case, for
+     * typeahead: "smi" finds John Smith. Longer queries also find names a typo or two
+     * away (one edit from 3 characters, two from 6). Up to 'limit', closest first, then
+     * alphabetical. Well under a millisecond even with a million patients.
+     *
+     * Names added since the last search are sorted into the index by the next one, so
+     * the first search after loading pays for the whole registry. An empty query
+     * matches nothing but still does that, which makes it a way to warm the index up.
+     */
+    public List<Patient> searchPatients(String query, int limit) {
+        List<Patient> found = new ArrayList<>();
+        for (String key : patientNames.search(query, limit)) {
+            Patient p = patientsByName.get(key);
+            if (p != null) found.add(p);
+        }
+        return found;
+    }
+
+    /**
+     * Doctors by name, the same way as {@link #searchPatients(String, int)}.
+     */
+    public List<Doctor> searchDoctors(String query, int limit) {
+        List<Doctor> found = new ArrayList<>();
+        for (String key : doctorNames.search(query, limit)) {
+            Doctor d = doctorsByName.get(key);
+            if (d != null) found.add(d);
+        }
+        return found;
+    }
+
+    public List<Doctor> getAllDoctors() {
+        synchronized (doctors) {
+            return new ArrayList<>(doctors);
+        }
+    }
+    public int getDoctorCount() {
+        synchronized (doctors) {
+            return doctors.size();
+        }
+    }
+    /**
+     * The doctor with this registry number (see Person.getId()), without copying the registry.
+     */
+    public Doctor getDoctor(int id) {
+        synchronized (doctors) {
+            return doctors.get(id);
+        }
+    }
     public Optional<Doctor> findDoctorByName(String name) {
-        return doctors.stream().filter(d -> d.getName().equalsIgnoreCase(name)).findFirst();
+        if (name == null) return Optional.empty();
+        long start = FIND_DOCTOR_TIME.start();
+        try {
+            return Optional.ofNullable(doctorsByName.get(Person.normalizeName(name)));
+        } finally {
+            FIND_DOCTOR_TIME.stop(start);
+        }
     }
 
     // This method now throws a custom exception
     public String scheduleAppointment(String patientName, String doctorName, LocalDateTime dateTime) throws AppointmentException {
+        checkDateTime(dateTime);
+        recorder.scheduleAppointment(patientName, doctorName, dateTime);
+        long start = SCHEDULE_TIME.start();
+        try {
+            return schedule(patientName, doctorName, dateTime);
+        } finally {
+            SCHEDULE_TIME.stop(start);
+        }
+    }
 
-        Optional<Patient> patientOpt = findPatientByName(patientName);
-        Optional<Doctor> doctorOpt = findDoctorByName(doctorName);
-
-        if (patientOpt.isEmpty()) {
-            throw new AppointmentException("Patient not found: " + patientName);
+    // Before anything, the recorder included, turns the date/time into an epoch minute.
+    private static void checkDateTime(LocalDateTime dateTime) throws AppointmentException {
+        if (!Appointment.isSupported(dateTime)) {
+            throw new AppointmentException(Reason.INVALID_DATE, "Date out of range: " + dateTime);
         }
-        if (doctorOpt.isEmpty()) {
-            throw new AppointmentException("Doctor not found: " + doctorName);
+    }
+
+    private static void checkCount(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Slot count must be at least 1: " + count);
         }
+    }
+
+    private String schedule(String patientName, String doctorName, LocalDateTime dateTime) throws AppointmentException {
 
-        Patient patient = patientOpt.get();
-        Doctor doctor = doctorOpt.get();
+        // Straight to the maps rather than through the Optional-returning finders; this runs for every booking.
+        Patient patient = patientName == null ? null : patientsByName.get(Person.normalizeName(patientName));
+        Doctor doctor = doctorName == null ? null : doctorsByName.get(Person.normalizeName(doctorName));
+
+        if (patient == null) {
+            throw new AppointmentException(Reason.NOT_FOUND, "Patient not found: " + patientName);
+        }
+        if (doctor == null) {
+            throw new AppointmentException(Reason.NOT_FOUND, "Doctor not found: " + doctorName);
+        }
 
         if (!doctor.isAvailable()) {
-            throw new AppointmentException("Sorry, Dr. " + doctor.getName() + " is not available.");
+            throw new AppointmentException(Reason.NOT_AVAILABLE, "Sorry, Dr. " + doctor.getName() + " is not available.");
+        }
+
+        // The check and the insert must be atomic for this doctor, but no other doctor is blocked.
+        int minute = Appointment.toEpochMinute(dateTime);
+        DoctorSchedule schedule = scheduleFor(doctor);
+        BookingResult result;
+        synchronized (schedule) {
+            result = book(null, schedule, patient, doctor, minute);
+        }
+        if (result.getStatus() == BookingResult.Status.CONFLICT) {
+            throw new AppointmentException(Reason.CONFLICT,
+                    "Error: Dr. " + doctor.getName() + " already has an appointment at this time.");
         }
+        if (result.getStatus() == BookingResult.Status.DAY_FULL) {
+            throw new AppointmentException(Reason.DAY_FULL,
+                    "Error: Dr. " + doctor.getName() + "'s day is too full to fit an emergency at this time.");
+        }
+        StringBuilder message = new StringBuilder("Appointment scheduled for " + patient.getName() + " with Dr. " + doctor.getName() + ".");
+        if (!result.getMoved().isEmpty()) {
+            BUMPS.add(result.getMoved().size());
+            message.append("\nMoved later to make room:");
+            for (Appointment a : result.getMoved()) {
+                message.append("\n- ").append(a.getPatient().getName()).append(", now at ")
+                        .append(a.getAppointmentDateTime().toLocalTime());
+            }
+        }
+        return message.toString();
+    }
 
-        boolean isDoubleBooked = appointments.stream()
-                .anyMatch(a -> a.getDoctor().equals(doctor) && a.getAppointmentDateTime().equals(dateTime));
+    /**
+     * Books a whole batch, e.g. a night's referral import, all-or-nothing: if any row
+     * fails, nothing is booked. Same as scheduleAll(requests, false).
+     */
+    public List<BookingResult> scheduleAll(Collection<BookingRequest> requests) {
+        return scheduleAll(requests, false);
+    }
+
+    /**
+     * Books a batch of requests, with the same rules as scheduleAppointment, and reports
+     * on every row (in request order) instead of throwing.
+     *
+     * Each distinct name is looked up once. Rows are then grouped by doctor and applied in
+     * time order while the batch holds all of those doctors' locks, so conflicts with
+     * existing appointments and between rows are found in one pass over each doctor, and
+     * emergencies bump exactly as they would one at a time in that order.
+     *
+     * If 'partial' is false and any row fails, the rows already applied are rolled back
+     * before the locks are released and listeners hear about none of it; those rows are
+     * reported as NOT_APPLIED. If 'partial' is true, every row that can be booked is.
+     *
+     * @throws IllegalArgumentException if a row's date/time is out of range (see
+     *         Appointment.isSupported); then nothing is booked
+     */
+    public List<BookingResult> scheduleAll(Collection<BookingRequest> requests, boolean partial) {
+        for (BookingRequest request : requests) {
+            Appointment.toEpochMinute(request.getDateTime()); // throws before anything is recorded or booked
+        }
+        recorder.scheduleAll(requests, partial);
+        long start = SCHEDULE_ALL_TIME.start();
+        try {
+            return book(requests, partial);
+        } finally {
+            SCHEDULE_ALL_TIME.stop(start);
+        }
+    }
+
+    private List<BookingResult> book(Collection<BookingRequest> requests, boolean partial) {
+        BookingRequest[] rows = requests.toArray(new BookingRequest[0]);
+        int n = rows.length;
+        BookingResult.Status[] status = new BookingResult.Status[n];
+        Patient[] patientOf = new Patient[n];
+        Doctor[] doctorOf = new Doctor[n];
+        int[] minuteOf = new int[n];
+        BookingResult[] results = new BookingResult[n];
+
+        Map<String, Patient> patientNames = new HashMap<>();
+        Map<String, Doctor> doctorNames = new HashMap<>();
+        boolean failed = false;
+        for (int i = 0; i < n; i++) {
+            String patientName = rows[i].getPatientName(), doctorName = rows[i].getDoctorName();
+            patientOf[i] = patientName == null ? null
+                    : patientNames.computeIfAbsent(patientName, name -> patientsByName.get(Person.normalizeName(name)));
+            doctorOf[i] = doctorName == null ? null
+                    : doctorNames.computeIfAbsent(doctorName, name -> doctorsByName.get(Person.normalizeName(name)));
+            minuteOf[i] = Appointment.toEpochMinute(rows[i].getDateTime());
+            if (patientOf[i] == null) {
+                status[i] = BookingResult.Status.PATIENT_NOT_FOUND;
+            } else if (doctorOf[i] == null) {
+                status[i] = BookingResult.Status.DOCTOR_NOT_FOUND;
+            } else if (!doctorOf[i].isAvailable()) {
+                status[i] = BookingResult.Status.DOCTOR_NOT_AVAILABLE;
+            }
+            failed |= status[i] != null;
+        }
+
+        // Even when a row has already failed an all-or-nothing batch, the rest are tried (and then
+        // rolled back) so that the report shows every conflict, not just the first.
+        // By doctor, then time, then request order.
+        List<Integer> order = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (status[i] == null) order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingInt(i -> doctorOf[i].getId())
+                .thenComparingInt(i -> minuteOf[i])
+                .thenComparingInt(i -> i));
+        // Locked in doctor id order, as any other batch would, so two batches cannot deadlock.
+        List<DoctorSchedule> locks = new ArrayList<>();
+        int lastDoctor = -1;
+        for (int i : order) {
+            if (doctorOf[i].getId() != lastDoctor) {
+                lastDoctor = doctorOf[i].getId();
+                locks.add(scheduleFor(doctorOf[i]));
+            }
+        }
+        boolean anyFailed = failed;
+        withLocks(locks, 0, () -> {
+            Batch applied = new Batch();
+            batch.set(applied);
+            boolean conflict = false;
+            try {
+                for (int i : order) {
+                    results[i] = book(rows[i], scheduleFor(doctorOf[i]), patientOf[i], doctorOf[i], minuteOf[i]);
+                    conflict |= !results[i].isBooked();
+                }
+            } catch (RuntimeException e) {
+                batch.remove();
+                applied.rollBack();
+                throw e;
+            }
+            batch.remove();
+            if ((anyFailed || conflict) && !partial) {
+                applied.rollBack();
+                for (int i : order) {
+                    if (results[i].isBooked()) {
+                        results[i] = new BookingResult(rows[i], BookingResult.Status.NOT_APPLIED);
+                    }
+                }
+            } else {
+                // Still under the locks, so listeners hear about the batch before any later change to these doctors.
+                applied.events.forEach(this::notifyListeners);
+                for (int i : order) {
+                    if (results[i].isBooked()) BUMPS.add(results[i].getMoved().size());
+                }
+            }
+        });
+
+        for (int i = 0; i < n; i++) {
+            if (results[i] == null) results[i] = new BookingResult(rows[i], status[i]);
+        }
+        return Arrays.asList(results);
+    }
+
+    // Runs 'action' holding every schedule's lock, taken in list order. One frame per doctor in the batch.
+    private static void withLocks(List<DoctorSchedule> locks, int i, Runnable action) {
+        if (i == locks.size()) {
+            action.run();
+            return;
+        }
+        synchronized (locks.get(i)) {
+            withLocks(locks, i + 1, action);
+        }
+    }
+
+    /**
+     * Books the slot, making room for an emergency patient (see handleEmergencyAppointment).
+     * Returns BOOKED, CONFLICT if the slot is taken and the patient is not an emergency,
+     * or DAY_FULL if there is no room for the emergency; nothing changes unless it is BOOKED.
+     * 'request' is only carried into the result. Caller holds the schedule's lock.
+     */
+    private BookingResult book(BookingRequest request, DoctorSchedule schedule, Patient patient, Doctor doctor, int minute) {
+        boolean isDoubleBooked = schedule.isBooked(minute) || isBookedInHistory(doctor, minute);
 
         if (isDoubleBooked && !patient.isEmergency()) {
-            throw new AppointmentException("Error: Dr. " + doctor.getName() + " already has an appointment at this time.");
+            CONFLICTS.increment();
+            return new BookingResult(request, BookingResult.Status.CONFLICT);
         }
 
+        Appointment appointment = new Appointment(patient, doctor, minute);
+        List<Appointment> moved = Collections.emptyList();
         if (patient.isEmergency()) {
-            handleEmergencyAppointment(patient, doctor, dateTime);
+            moved = handleEmergencyAppointment(schedule, appointment);
+            if (moved == null) {
+                DAY_FULL.increment();
+                return new BookingResult(request, BookingResult.Status.DAY_FULL);
+            }
         } else {
-            appointments.add(new Appointment(patient, doctor, dateTime));
+            addAppointment(schedule, appointment);
         }
-        return "Appointment scheduled for " + patient.getName() + " with Dr. " + doctor.getName() + ".";
+        return new BookingResult(request, appointment, moved);
     }
 
-    private void handleEmergencyAppointment(Patient emergencyPatient, Doctor doctor, LocalDateTime dateTime) {
-        appointments.stream()
-                .filter(a -> a.getDoctor().equals(doctor) && a.getAppointmentDateTime().equals(dateTime) && !a.getPatient().isEmergency())
-                .findFirst()
-                .ifPresent(oldAppointment -> {
-                    // Reschedule the non-emergency patient's appointment by 15 minutes
-                    LocalDateTime newDateTime = oldAppointment.getAppointmentDateTime().plusMinutes(15);
-                    oldAppointment.setAppointmentDateTime(newDateTime);
-                });
+    /**
+     * Books an emergency at its minute, pushing the non-emergency appointment there one slot
+     * later. If that slot is taken too, its non-emergency appointments are pushed on in turn,
+     * and so on through the day until a free slot ends the chain. Slots holding an emergency
+     * (or an archived appointment) are never moved and are skipped over. So only the
+     * appointments that have to move do, each to the next slot it can have, keeping their
+     * order: O(k log n) for k moves.
+     *
+     * Returns the moved appointments in their new time order, or null (having changed nothing)
+     * if the chain would push one to or past the doctor's end of day (see setEndOfDay).
+     * Caller holds the schedule's lock.
+     */
+    private List<Appointment> handleEmergencyAppointment(DoctorSchedule schedule, Appointment emergency) {
+        List<Appointment> moved = makeRoom(schedule, emergency.getDoctor(), emergency.getEpochMinute(), null);
+        if (moved == null) return null;
         // Schedule the new emergency appointment
-        appointments.add(new Appointment(emergencyPatient, doctor, dateTime));
+        addAppointment(schedule, emergency);
+        return moved;
+    }
+
+    // The bump chain for handleEmergencyAppointment: empties 'minute' of non-emergency appointments,
+    // or returns null without changing anything. 'leaving' is an emergency being rescheduled to
+    // 'minute' (else null); its current slot counts as free, since it is about to move out.
+    // Caller holds the schedule's lock.
+    private List<Appointment> makeRoom(DoctorSchedule schedule, Doctor doctor, int minute, Appointment leaving) {
+        Appointment displaced = schedule.findNonEmergencyAt(minute);
+        if (displaced == null) return Collections.emptyList();
+        int limit = Math.floorDiv(minute, MINUTES_PER_DAY) * MINUTES_PER_DAY + endOfDay;
+        List<Appointment> moved = new ArrayList<>();
+        List<Integer> targets = new ArrayList<>();
+        Deque<Appointment> waiting = new ArrayDeque<>();
+        waiting.add(displaced);
+        for (int slot = minute + DoctorSchedule.SLOT_MINUTES; !waiting.isEmpty(); slot += DoctorSchedule.SLOT_MINUTES) {
+            if (slot >= limit) return null;
+            List<Appointment> here = schedule.between(slot, slot + 1);
+            if (leaving != null) here.remove(leaving);
+            if (isBookedInHistory(doctor, slot) || hasEmergency(here)) continue;
+            moved.add(waiting.poll());
+            targets.add(slot);
+            waiting.addAll(here);
+        }
+        // Latest first, so no slot holds two appointments on the way (bar the one 'leaving' is about to vacate).
+        for (int i = moved.size() - 1; i >= 0; i--) {
+            moveAppointment(schedule, moved.get(i), targets.get(i), true);
+        }
+        return moved;
+    }
+
+    private static boolean hasEmergency(List<Appointment> appointments) {
+        for (Appointment a : appointments) {
+            if (a.getPatient().isEmergency()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Emergency bumps never push an appointment to or past this time of its day, so
+     * an emergency that would need to is refused instead. Midnight (the default) means
+     * the end of the day itself. Not saved with the hospital.
+     */
+    public void setEndOfDay(LocalTime endOfDay) {
+        this.endOfDay = endOfDay.equals(LocalTime.MIDNIGHT) ? MINUTES_PER_DAY : endOfDay.toSecondOfDay() / 60;
+    }
+
+    public LocalTime getEndOfDay() {
+        return endOfDay == MINUTES_PER_DAY ? LocalTime.MIDNIGHT : LocalTime.ofSecondOfDay(endOfDay * 60L);
+    }
+
+    /**
+     * The free-slot searches offer no slot before this time of day; with setEndOfDay this
+     * makes the bookable hours. Midnight (the default) means the start of the day. Not saved
+     * with the hospital.
+     */
+    public void setStartOfDay(LocalTime startOfDay) {
+        this.startOfDay = startOfDay.toSecondOfDay() / 60;
+    }
+
+    public LocalTime getStartOfDay() {
+        return LocalTime.ofSecondOfDay(startOfDay * 60L);
     }
 
+    /**
+     * The earliest 'count' free 15-minute slots with the named doctor, starting at or after 'after'.
+     * A slot is free if scheduleAppointment would book it without a conflict. Only slots from
+     * the start of day to before the end of day (see setStartOfDay and setEndOfDay) are offered;
+     * none at all if no slot fits between them.
+     *
+     * @throws IllegalArgumentException if count is less than 1
+     */
+    public List<FreeSlot> findFreeSlots(String doctorName, LocalDateTime after, int count) throws AppointmentException {
+        checkDateTime(after);
+        checkCount(count);
+        Doctor doctor = doctorName == null ? null : doctorsByName.get(Person.normalizeName(doctorName));
+        if (doctor == null) {
+            throw new AppointmentException(Reason.NOT_FOUND, "Doctor not found: " + doctorName);
+        }
+        if (!doctor.isAvailable()) {
+            throw new AppointmentException(Reason.NOT_AVAILABLE, "Sorry, Dr. " + doctor.getName() + " is not available.");
+        }
+        List<FreeSlot> slots = new ArrayList<>(count);
+        addFreeSlots(doctor, Appointment.toEpochMinute(after), count, slots);
+        return slots;
+    }
+
+    /**
+     * The earliest 'count' free 15-minute slots across every available doctor with this
+     * specialization (ignoring case), starting at or after 'after', in time order,
+     * within the same hours as findFreeSlots. Empty if no available doctor has it.
+     *
+     * @throws IllegalArgumentException if count is less than 1
+     */
+    public List<FreeSlot> findFreeSlotsBySpecialization(String specialization, LocalDateTime after, int count)
+            throws AppointmentException {
+        checkDateTime(after);
+        checkCount(count);
+        int from = Appointment.toEpochMinute(after);
+        String wanted = specialization.trim();
+        List<Doctor> registry = getAllDoctors();
+        List<FreeSlot> slots = new ArrayList<>();
+        for (int i = 0; i < registry.size(); i++) {
+            Doctor doctor = registry.get(i);
+            // Legacy duplicate names share the first doctor's id and schedule; count that schedule once.
+            if (doctor.getId() != i || !doctor.isAvailable() || doctor.getSpecialization() == null
+                    || !doctor.getSpecialization().trim().equalsIgnoreCase(wanted)) {
+                continue;
+            }
+            // Each doctor's own earliest 'count' are enough to find the overall earliest 'count'.
+            addFreeSlots(doctor, from, count, slots);
+        }
+        slots.sort(Comparator.comparingInt(FreeSlot::getEpochMinute).thenComparingInt(slot -> slot.getDoctor().getId()));
+        return slots.size() > count ? new ArrayList<>(slots.subList(0, count)) : slots;
+    }
+
+    private void addFreeSlots(Doctor doctor, int fromMinute, int count, List<FreeSlot> slots) {
+        int open = startOfDay, close = endOfDay, step = DoctorSchedule.SLOT_MINUTES;
+        // No grid slot in the hours at all.
+        if (Math.floorDiv(open + step - 1, step) * step >= close) return;
+        DoctorSchedule schedule = scheduleFor(doctor);
+        synchronized (schedule) {
+            int minute = fromMinute;
+            for (int found = 0; found < count; minute += step) {
+                minute = schedule.nextFreeSlot(minute);
+                // Outside the hours, carry on from the next opening (the loop adds the step back).
+                int day = Math.floorDiv(minute, MINUTES_PER_DAY) * MINUTES_PER_DAY;
+                if (minute < day + open) {
+                    minute = day + open - step;
+                } else if (minute >= day + close) {
+                    minute = day + MINUTES_PER_DAY + open - step;
+                } else if (!isBookedInHistory(doctor, minute)) {
+                    slots.add(new FreeSlot(doctor, minute));
+                    found++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cancels the patient's earliest in-memory appointment with the doctor. A patient
+     * may have several; use findAppointments and cancelAppointment(long) to pick one.
+     * Costs the number of appointments the patient has, however many the hospital holds.
+     */
     public String cancelAppointment(String patientName, String doctorName) {
-        Optional<Appointment> appointmentToCancel = appointments.stream()
-                .filter(a -> a.getPatient().getName().equalsIgnoreCase(patientName) && a.getDoctor().getName().equalsIgnoreCase(doctorName))
-                .findFirst();
-        if (appointmentToCancel.isPresent()) {
-            appointments.remove(appointmentToCancel.get());
-            return "Successfully canceled the appointment.";
+        recorder.cancelAppointment(patientName, doctorName);
+        long start = CANCEL_TIME.start();
+        try {
+            return cancel(patientName, doctorName);
+        } finally {
+            CANCEL_TIME.stop(start);
+        }
+    }
+
+    private String cancel(String patientName, String doctorName) {
+        for (Appointment appointment : findAppointments(patientName, doctorName)) {
+            // Another thread may have canceled it since the lookup; then try the next one.
+            if (cancel(appointment)) {
+                return "Successfully canceled the appointment.";
+            }
         }
         return "Could not find the specified appointment to cancel.";
     }
 
-    public List<Appointment> getAllAppointments() {
-        appointments.sort(Comparator.comparing(Appointment::getAppointmentDateTime));
-        return new ArrayList<>(appointments);
+    /**
+     * Cancels the appointment with this id (see Appointment.getId()).
+     *
+     * @return false if there is no such appointment in memory (never booked, already canceled, or archived)
+     */
+    public boolean cancelAppointment(long id) {
+        recorder.cancelAppointment(id);
+        long start = CANCEL_TIME.start();
+        try {
+            Appointment appointment = appointmentsById.get(id);
+            return appointment != null && cancel(appointment);
+        } finally {
+            CANCEL_TIME.stop(start);
+        }
+    }
+
+    private boolean cancel(Appointment appointment) {
+        DoctorSchedule schedule = scheduleFor(appointment.getDoctor());
+        synchronized (schedule) {
+            if (schedule.remove(appointment)) {
+                removeAppointment(appointment);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the appointment with this id to another time with the same doctor, keeping
+     * its id. Same rules as scheduleAppointment: the new slot must be free, unless the
+     * patient is an emergency, who bumps whoever is there later the same way (the slot
+     * the emergency is leaving counts as free for that).
+     *
+     * @throws AppointmentException if there is no such appointment, the doctor is not
+     *         available, or the new slot cannot be had
+     */
+    public String rescheduleAppointment(long id, LocalDateTime dateTime) throws AppointmentException {
+        checkDateTime(dateTime);
+        recorder.rescheduleAppointment(id, dateTime);
+        long start = RESCHEDULE_TIME.start();
+        try {
+            return reschedule(id, dateTime);
+        } finally {
+            RESCHEDULE_TIME.stop(start);
+        }
+    }
+
+    private String reschedule(long id, LocalDateTime dateTime) throws AppointmentException {
+        Appointment appointment = appointmentsById.get(id);
+        if (appointment == null) {
+            throw new AppointmentException(Reason.NOT_FOUND, "Appointment not found: " + id);
+        }
+        Doctor doctor = appointment.getDoctor();
+        if (!doctor.isAvailable()) {
+            throw new AppointmentException(Reason.NOT_AVAILABLE, "Sorry, Dr. " + doctor.getName() + " is not available.");
+        }
+        int minute = Appointment.toEpochMinute(dateTime);
+        DoctorSchedule schedule = scheduleFor(doctor);
+        List<Appointment> moved = Collections.emptyList();
+        synchronized (schedule) {
+            // Canceled or archived since the lookup.
+            if (appointmentsById.get(id) != appointment) {
+                throw new AppointmentException(Reason.NOT_FOUND, "Appointment not found: " + id);
+            }
+            if (appointment.getEpochMinute() != minute) {
+                boolean isDoubleBooked = schedule.isBooked(minute) || isBookedInHistory(doctor, minute);
+                if (isDoubleBooked && !appointment.getPatient().isEmergency()) {
+                    CONFLICTS.increment();
+                    throw new AppointmentException(Reason.CONFLICT,
+                            "Error: Dr. " + doctor.getName() + " already has an appointment at this time.");
+                }
+                if (isDoubleBooked) {
+                    moved = makeRoom(schedule, doctor, minute, appointment);
+                    if (moved == null) {
+                        DAY_FULL.increment();
+                        throw new AppointmentException(Reason.DAY_FULL,
+                                "Error: Dr. " + doctor.getName() + "'s day is too full to fit an emergency at this time.");
+                    }
+                }
+                moveAppointment(schedule, appointment, minute, false);
+            }
+        }
+        StringBuilder message = new StringBuilder("Appointment for " + appointment.getPatient().getName() + " with Dr. "
+                + doctor.getName() + " moved to " + appointment.getAppointmentDateTime() + ".");
+        if (!moved.isEmpty()) {
+            BUMPS.add(moved.size());
+            message.append("\nMoved later to make room:");
+            for (Appointment a : moved) {
+                message.append("\n- ").append(a.getPatient().getName()).append(", now at ")
+                        .append(a.getAppointmentDateTime().toLocalTime());
+            }
+        }
+        return message.toString();
+    }
+
+    /**
+     * The in-memory appointment with this id, if any; archived ones are not included.
+     */
+    public Optional<Appointment> getAppointment(long id) {
+        return Optional.ofNullable(appointmentsById.get(id));
+    }
+
+    /**
+     * Every in-memory appointment the named patient has with the named doctor, in time
+     * order; with any doctor if 'doctorName' is null or blank. Empty if either name is
+     * unknown. Reads only that patient's appointments, so a handful, not the whole hospital.
+     */
+    public List<Appointment> findAppointments(String patientName, String doctorName) {
+        Patient patient = patientName == null ? null : patientsByName.get(Person.normalizeName(patientName));
+        if (patient == null) return new ArrayList<>();
+        List<Appointment> found = appointmentsByPatient.get(patient);
+        if (doctorName != null && !doctorName.isBlank()) {
+            Doctor doctor = doctorsByName.get(Person.normalizeName(doctorName));
+            // Person.equals compares interned name keys, so this does no string work per appointment.
+            found.removeIf(a -> !a.getDoctor().equals(doctor));
+        }
+        // In time order as each time is read once here: another thread may reschedule or
+        // bump one of these meanwhile, and a comparator whose answers change mid-sort throws.
+        found.sort(Comparator.comparingLong(Appointment::getId));
+        long[] keys = new long[found.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (long) found.get(i).getEpochMinute() << 32 | i;
+        }
+        Arrays.sort(keys);
+        List<Appointment> sorted = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            sorted.add(found.get((int) key));
+        }
+        return sorted;
+    }
+
+    /**
+     * Hands the named doctor's appointments from 'from' (inclusive) to 'to' (exclusive)
+     * to other available doctors with the same specialization (ignoring case), e.g. when
+     * the doctor calls in sick. Each appointment keeps its id and, where some colleague
+     * is free then, its time; otherwise it goes to the earliest later slot any colleague
+     * has free that day, before the end of day. Emergencies are placed first, so they are
+     * the likeliest to keep their time. Nothing is bumped, and appointments with no room
+     * anywhere stay where they are. The doctor's availability is left as it is.
+     *
+     * The doctor and every colleague are locked for the duration, so the whole
+     * reassignment is applied at once: no booking can take a slot it planned on, and
+     * listeners hear about it only once it is all done (each move as the appointment
+     * being canceled and booked again with the new doctor, under the same id). The
+     * colleagues' free slots are checked in parallel on the common fork-join pool.
+     *
+     * @throws AppointmentException if the doctor is not found
+     */
+    public ReassignmentReport reassignAppointments(String doctorName, LocalDateTime from, LocalDateTime to) throws AppointmentException {
+        checkDateTime(from);
+        checkDateTime(to);
+        recorder.reassignAppointments(doctorName, from, to);
+        long start = REASSIGN_TIME.start();
+        try {
+            return reassign(doctorName, from, to);
+        } finally {
+            REASSIGN_TIME.stop(start);
+        }
+    }
+
+    private ReassignmentReport reassign(String doctorName, LocalDateTime from, LocalDateTime to) throws AppointmentException {
+        Doctor doctor = doctorName == null ? null : doctorsByName.get(Person.normalizeName(doctorName));
+        if (doctor == null) {
+            throw new AppointmentException(Reason.NOT_FOUND, "Doctor not found: " + doctorName);
+        }
+        List<Doctor> colleagues = new ArrayList<>();
+        List<Doctor> registry = getAllDoctors();
+        String wanted = doctor.getSpecialization() == null ? null : doctor.getSpecialization().trim();
+        for (int i = 0; i < registry.size(); i++) {
+            Doctor d = registry.get(i);
+            // Legacy duplicate names share the first doctor's id and schedule, as in findFreeSlotsBySpecialization.
+            if (d.getId() != i || d.getId() == doctor.getId() || !d.isAvailable() || wanted == null
+                    || d.getSpecialization() == null || !d.getSpecialization().trim().equalsIgnoreCase(wanted)) {
+                continue;
+            }
+            colleagues.add(d);
+        }
+        // Already in id order, so merging the doctor in keeps the usual lock order.
+        List<DoctorSchedule> locks = new ArrayList<>();
+        boolean added = false;
+        for (Doctor d : colleagues) {
+            if (!added && doctor.getId() < d.getId()) {
+                locks.add(scheduleFor(doctor));
+                added = true;
+            }
+            locks.add(scheduleFor(d));
+        }
+        if (!added) locks.add(scheduleFor(doctor));
+
+        int fromMinute = Appointment.toEpochMinute(from);
+        int toMinute = Appointment.toEpochMinute(to);
+        ReassignmentReport[] report = new ReassignmentReport[1];
+        withLocks(locks, 0, () -> {
+            List<Appointment> held = scheduleFor(doctor).between(fromMinute, toMinute);
+            int[] plan = planReassignment(held, colleagues, fromMinute, toMinute);
+            report[0] = applyReassignment(doctor, held, colleagues, plan);
+        });
+        return report[0];
+    }
+
+    /**
+     * Where each of 'held' should go, two ints per appointment: [2i] its index in
+     * 'colleagues' (-1 if there is no room), [2i + 1] its epoch minute there.
+     * Caller holds every lock involved.
+     */
+    private int[] planReassignment(List<Appointment> held, List<Doctor> colleagues, int fromMinute, int toMinute) {
+        int n = held.size(), c = colleagues.size();
+        int[] plan = new int[2 * n];
+        Arrays.fill(plan, -1);
+        if (n == 0 || c == 0) return plan;
+
+        // Which colleagues are free at each appointment's own time, and how busy each already is.
+        boolean[][] freeAt = new boolean[c][];
+        int[] load = new int[c];
+        ForkJoinPool.commonPool().invoke(new FreeSlotTask(held, colleagues, fromMinute, toMinute, 0, c, freeAt, load));
+
+        List<Set<Integer>> taken = new ArrayList<>(c);
+        for (int k = 0; k < c; k++) taken.add(new HashSet<>());
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        // Emergencies first, then the rest; 'held' is already in time order.
+        Arrays.sort(order, Comparator.comparing((Integer i) -> !held.get(i).getPatient().isEmergency()));
+        for (int i : order) {
+            int minute = held.get(i).getEpochMinute();
+            int best = -1;
+            for (int k = 0; k < c; k++) {
+                if (freeAt[k][i] && !taken.get(k).contains(minute) && (best < 0 || load[k] < load[best])) best = k;
+            }
+            int bestMinute = minute;
+            if (best < 0) {
+                // Nobody is free then: the earliest later slot that day, spreading ties by load.
+                int limit = Math.floorDiv(minute, MINUTES_PER_DAY) * MINUTES_PER_DAY + endOfDay;
+                for (int k = 0; k < c; k++) {
+                    int slot = nextFreeSlot(colleagues.get(k), taken.get(k), minute + 1, limit);
+                    if (slot < limit && (best < 0 || slot < bestMinute || (slot == bestMinute && load[k] < load[best]))) {
+                        best = k;
+                        bestMinute = slot;
+                    }
+                }
+                if (best < 0) continue;
+            }
+            taken.get(best).add(bestMinute);
+            load[best]++;
+            plan[2 * i] = best;
+            plan[2 * i + 1] = bestMinute;
+        }
+        return plan;
+    }
+
+    // The first grid slot from 'fromMinute' on, before 'limit', that the doctor has free and the plan has not taken; or 'limit'.
+    private int nextFreeSlot(Doctor doctor, Set<Integer> taken, int fromMinute, int limit) {
+        DoctorSchedule schedule = scheduleFor(doctor);
+        for (int minute = schedule.nextFreeSlot(fromMinute); minute < limit;
+                minute = schedule.nextFreeSlot(minute + DoctorSchedule.SLOT_MINUTES)) {
+            if (!taken.contains(minute) && !isBookedInHistory(doctor, minute)) return minute;
+        }
+        return limit;
+    }
+
+    /**
+     * Fills in, for colleagues [lo, hi), which of 'held' each is free for at its own time
+     * and how many appointments each already has in the range. Runs while the calling
+     * thread holds every schedule's lock, so nothing can change underneath; the pool's
+     * workers only read, and the hand-off to them makes what the caller saw visible.
+     */
+    private final class FreeSlotTask extends RecursiveAction {
+        private final List<Appointment> held;
+        private final List<Doctor> colleagues;
+        private final int fromMinute, toMinute, lo, hi;
+        private final boolean[][] freeAt;
+        private final int[] load;
+
+        FreeSlotTask(List<Appointment> held, List<Doctor> colleagues, int fromMinute, int toMinute,
+                     int lo, int hi, boolean[][] freeAt, int[] load) {
+            this.held = held;
+            this.colleagues = colleagues;
+            this.fromMinute = fromMinute;
+            this.toMinute = toMinute;
+            this.lo = lo;
+            this.hi = hi;
+            this.freeAt = freeAt;
+            this.load = load;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new FreeSlotTask(held, colleagues, fromMinute, toMinute, lo, mid, freeAt, load),
+                        new FreeSlotTask(held, colleagues, fromMinute, toMinute, mid, hi, freeAt, load));
+                return;
+            }
+            Doctor colleague = colleagues.get(lo);
+            DoctorSchedule schedule = scheduleFor(colleague);
+            boolean[] free = new boolean[held.size()];
+            for (int i = 0; i < free.length; i++) {
+                int minute = held.get(i).getEpochMinute();
+                free[i] = !schedule.isBooked(minute) && !isBookedInHistory(colleague, minute);
+            }
+            freeAt[lo] = free;
+            load[lo] = schedule.between(fromMinute, toMinute).size();
+        }
+    }
+
+    // Carries out a plan as one batch: all of it, or (if something throws) none of it. Caller holds every lock involved.
+    private ReassignmentReport applyReassignment(Doctor doctor, List<Appointment> held, List<Doctor> colleagues, int[] plan) {
+        List<ReassignmentReport.Move> moves = new ArrayList<>();
+        List<Appointment> unmoved = new ArrayList<>();
+        Batch applied = new Batch();
+        batch.set(applied);
+        try {
+            DoctorSchedule schedule = scheduleFor(doctor);
+            for (int i = 0; i < held.size(); i++) {
+                Appointment old = held.get(i);
+                if (plan[2 * i] < 0) {
+                    unmoved.add(old);
+                    continue;
+                }
+                Doctor colleague = colleagues.get(plan[2 * i]);
+                schedule.remove(old);
+                unlinkAppointment(old);
+                applied.removed(old);
+                fire(l -> l.appointmentCanceled(old));
+                Appointment moved = new Appointment(old.getPatient(), colleague, plan[2 * i + 1]);
+                moved.setId(old.getId());
+                insertAppointment(scheduleFor(colleague), moved);
+                moves.add(new ReassignmentReport.Move(moved, doctor, old.getEpochMinute()));
+            }
+        } catch (RuntimeException e) {
+            batch.remove();
+            applied.rollBack();
+            throw e;
+        }
+        batch.remove();
+        applied.events.forEach(this::notifyListeners);
+        return new ReassignmentReport(doctor, moves, unmoved);
+    }
+
+    /**
+     * All appointments in memory, in date/time order, as a read-only live view (no copy is made).
+     * Past appointments that have been archived to the history are not included;
+     * use getAppointmentsBetween to reach those.
+     */
+    public NavigableSet<Appointment> getAllAppointments() {
+        return Collections.unmodifiableNavigableSet(appointments);
+    }
+
+    public int getAppointmentCount() { return appointmentCount.get(); }
+
+    /**
+     * Appointments from 'from' (inclusive) to 'to' (exclusive), in date/time order,
+     * including archived ones. O(log n) to find the range, plus its size to walk it;
+     * only the archived records inside the range are read from the history.
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        long start = RANGE_TIME.start();
+        try {
+            int fromMinute = Appointment.toEpochMinute(from);
+            int toMinute = Appointment.toEpochMinute(to);
+            List<Appointment> live = new ArrayList<>(appointments.subSet(bound(fromMinute), true, bound(toMinute), false));
+            List<Appointment> past = historyBetween(fromMinute, toMinute, -1);
+            return past.isEmpty() ? live : merge(past, live);
+        } finally {
+            RANGE_TIME.stop(start);
+        }
+    }
+
+    /**
+     * Hands 'action' the same appointments as getAppointmentsBetween, in the same order, one
+     * at a time as they are read, so a wide range is never held in memory as a whole: archived
+     * records are built one by one and merged with a walk of the in-memory ones. The in-memory
+     * walk is a live view, so changes made meanwhile may or may not show up.
+     */
+    public void forEachAppointmentBetween(LocalDateTime from, LocalDateTime to, Consumer<Appointment> action) {
+        int fromMinute = Appointment.toEpochMinute(from);
+        int toMinute = Appointment.toEpochMinute(to);
+        Iterator<Appointment> live = appointments.subSet(bound(fromMinute), true, bound(toMinute), false).iterator();
+        Appointment[] next = {live.hasNext() ? live.next() : null};
+        AppointmentHistory store = history;
+        int pastTo = Math.min(toMinute, store.coveredUntil());
+        if (fromMinute < pastTo) {
+            store.forEachBetween(fromMinute, pastTo, (id, patientId, doctorId, epochMinute) -> {
+                Appointment past = new Appointment(getPatient(patientId), getDoctor(doctorId), epochMinute);
+                past.setId(id);
+                // Archived first on a tie, as merge does.
+                while (next[0] != null && BY_DATE_TIME.compare(next[0], past) < 0) {
+                    action.accept(next[0]);
+                    next[0] = live.hasNext() ? live.next() : null;
+                }
+                action.accept(past);
+            });
+        }
+        for (Appointment a = next[0]; a != null; a = live.hasNext() ? live.next() : null) {
+            action.accept(a);
+        }
+    }
+
+    /**
+     * One doctor's appointments on the given day, in time order, including archived ones.
+     */
+    public List<Appointment> getAppointmentsForDoctor(Doctor doctor, LocalDate day) {
+        int from = Appointment.toEpochMinute(day.atStartOfDay());
+        int to = Appointment.toEpochMinute(day.plusDays(1).atStartOfDay());
+        List<Appointment> live = Collections.emptyList();
+        DoctorSchedule schedule = scheduleOf(doctor);
+        if (schedule != null) {
+            synchronized (schedule) {
+                live = schedule.between(from, to);
+            }
+        }
+        List<Appointment> past = historyBetween(from, to, doctor.getId());
+        return past.isEmpty() ? live : merge(past, live);
+    }
+
+    /**
+     * Attaches the store that holds archived appointments. Any in-memory appointment
+     * the store already holds (left over from an interrupted save) is dropped from memory.
+     */
+    public void setHistory(AppointmentHistory history) {
+        this.history = history;
+        for (Appointment a : new ArrayList<>(appointments.headSet(bound(history.coveredUntil())))) {
+            if (history.contains(a.getId(), a.getEpochMinute())) {
+                DoctorSchedule schedule = scheduleFor(a.getDoctor());
+                synchronized (schedule) {
+                    if (schedule.remove(a)) unlinkAppointment(a);
+                }
+            }
+        }
+    }
+
+    public AppointmentHistory getHistory() { return history; }
+
+    /**
+     * True if there are in-memory appointments before 'cutoff' that archiveAppointmentsBefore would move.
+     */
+    public boolean hasAppointmentsToArchive(LocalDateTime cutoff) {
+        if (history == AppointmentHistory.NONE) return false;
+        int from = history.coveredUntil();
+        int until = Appointment.toEpochMinute(cutoff);
+        return from < until && !appointments.subSet(bound(from), true, bound(until), false).isEmpty();
+    }
+
+    /**
+     * Moves in-memory appointments before 'cutoff' into the history store, so they no
+     * longer cost memory or save time. Appointments before the history's coveredUntil
+     * (booked into the past after an earlier archive run) stay in memory. Without a
+     * history store (see {@link #setHistory}) nothing is moved.
+     *
+     * Every doctor with an appointment to move is locked until the store has them, so
+     * no booking can find one of those slots free while its appointment is on the way,
+     * and nothing can cancel or move an appointment once it is written.
+     *
+     * @return how many appointments were archived
+     */
+    public int archiveAppointmentsBefore(LocalDateTime cutoff) throws IOException {
+        AppointmentHistory store = history;
+        if (store == AppointmentHistory.NONE) return 0;
+        int until = Appointment.toEpochMinute(cutoff);
+        int from = store.coveredUntil();
+        if (until <= from) return 0;
+
+        // Locked in doctor id order, as scheduleAll does.
+        Map<Integer, DoctorSchedule> byDoctor = new TreeMap<>();
+        for (Appointment a : appointments.subSet(bound(from), true, bound(until), false)) {
+            byDoctor.computeIfAbsent(a.getDoctor().getId(), id -> scheduleFor(a.getDoctor()));
+        }
+        List<DoctorSchedule> locks = new ArrayList<>(byDoctor.values());
+        List<Appointment> batch = new ArrayList<>();
+        try {
+            withLocks(locks, 0, () -> {
+                for (DoctorSchedule schedule : locks) {
+                    batch.addAll(schedule.between(from, until));
+                }
+                batch.sort(BY_DATE_TIME);
+                int n = batch.size();
+                long[] ids = new long[n];
+                int[] patientIds = new int[n];
+                int[] appointmentDoctorIds = new int[n];
+                int[] minutes = new int[n];
+                for (int i = 0; i < n; i++) {
+                    Appointment a = batch.get(i);
+                    ids[i] = a.getId();
+                    patientIds[i] = a.getPatient().getId();
+                    appointmentDoctorIds[i] = a.getDoctor().getId();
+                    minutes[i] = a.getEpochMinute();
+                }
+                try {
+                    store.append(ids, patientIds, appointmentDoctorIds, minutes, n, until);
+                } catch (IOException e) {
+                    // Nothing was archived, and nothing has left the schedules.
+                    throw new UncheckedIOException(e);
+                }
+                // Now below coveredUntil, so the slots stay taken.
+                for (Appointment a : batch) {
+                    scheduleFor(a.getDoctor()).remove(a);
+                    unlinkAppointment(a);
+                    notifyListeners(l -> l.appointmentArchived(a));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Outside the locks: the store may compress and force what it was given.
+        store.settle();
+        return batch.size();
+    }
+
+    /**
+     * Re-applies a booking exactly as it was recorded, bypassing the booking rules.
+     * Used when replaying a journal: if the id already exists it is replaced, so
+     * replaying the same record twice is harmless.
+     *
+     * @return false if the patient or doctor is unknown
+     */
+    public boolean restoreAppointment(long id, String patientName, String doctorName, LocalDateTime dateTime) {
+        return restoreAppointment(id, patientName, doctorName, Appointment.toEpochMinute(dateTime));
+    }
+
+    /**
+     * Same as {@link #restoreAppointment(long, String, String, LocalDateTime)}, with the
+     * time given in epoch minutes as it is stored on disk.
+     */
+    public boolean restoreAppointment(long id, String patientName, String doctorName, int epochMinute) {
+        Optional<Patient> patient = findPatientByName(patientName);
+        Optional<Doctor> doctor = findDoctorByName(doctorName);
+        if (patient.isEmpty() || doctor.isEmpty()) return false;
+        restoreAppointment(id, patient.get(), doctor.get(), epochMinute);
+        return true;
+    }
+
+    /**
+     * Same as {@link #restoreAppointment(long, String, String, LocalDateTime)} for a
+     * patient and doctor already registered with this hospital.
+     */
+    public void restoreAppointment(long id, Patient patient, Doctor doctor, LocalDateTime dateTime) {
+        restoreAppointment(id, patient, doctor, Appointment.toEpochMinute(dateTime));
+    }
+
+    /**
+     * Epoch-minute form of {@link #restoreAppointment(long, Patient, Doctor, LocalDateTime)}.
+     * Used when loading a snapshot.
+     */
+    public void restoreAppointment(long id, Patient patient, Doctor doctor, int epochMinute) {
+        // Even an archived id is spent.
+        restoreNextAppointmentId(id + 1);
+        if (history.contains(id, epochMinute)) return; // already archived
+        restoreCancellation(id);
+        Appointment appointment = new Appointment(patient, doctor, epochMinute);
+        appointment.setId(id);
+        DoctorSchedule schedule = scheduleFor(doctor);
+        synchronized (schedule) {
+            insertAppointment(schedule, appointment);
+        }
+    }
+
+    /**
+     * The id the next booking will get. Saved with the snapshot, because the highest ids may belong to archived appointments.
+     */
+    public long getNextAppointmentId() {
+        return nextAppointmentId.get();
+    }
+
+    /**
+     * Makes sure no id below 'next' is handed out from now on. Used when loading a snapshot.
+     */
+    public void restoreNextAppointmentId(long next) {
+        nextAppointmentId.accumulateAndGet(next, (current, after) -> Math.max(current, firstIdFrom(after)));
+    }
+
+    /**
+     * Removes the appointment with this id, if present. Used when replaying a journal.
+     */
+    public void restoreCancellation(long id) {
+        Appointment appointment = appointmentsById.get(id);
+        if (appointment != null) cancel(appointment);
+    }
+
+    // Caller holds the schedule's lock.
+    private void addAppointment(DoctorSchedule schedule, Appointment appointment) {
+        appointment.setId(nextAppointmentId.getAndAdd(idPartitions));
+        insertAppointment(schedule, appointment);
+    }
+
+    // Caller holds the schedule's lock.
+    private void insertAppointment(DoctorSchedule schedule, Appointment appointment) {
+        schedule.add(appointment);
+        linkAppointment(appointment);
+        Batch current = batch.get();
+        if (current != null) current.added(appointment);
+        fire(l -> l.appointmentScheduled(appointment));
+    }
+
+    // Caller holds the schedule's lock and has already taken it out of the schedule.
+    private void removeAppointment(Appointment appointment) {
+        unlinkAppointment(appointment);
+        fire(l -> l.appointmentCanceled(appointment));
+    }
+
+    // Adds to / removes from the hospital-wide indexes (not the doctor's schedule), without notifying anyone.
+    private void linkAppointment(Appointment appointment) {
+        appointments.add(appointment);
+        appointmentsById.put(appointment);
+        appointmentsByPatient.add(appointment);
+        appointmentCount.incrementAndGet();
+    }
+
+    private void unlinkAppointment(Appointment appointment) {
+        appointments.remove(appointment);
+        appointmentsById.remove(appointment.getId());
+        appointmentsByPatient.remove(appointment);
+        appointmentCount.decrementAndGet();
+    }
+
+    private boolean isBookedInHistory(Doctor doctor, int minute) {
+        AppointmentHistory store = history;
+        return minute < store.coveredUntil() && store.isBooked(doctor.getId(), minute);
+    }
+
+    // Builds Appointment objects for the archived records in [from, to), optionally for one doctor only.
+    private List<Appointment> historyBetween(int fromMinute, int to, int doctorId) {
+        AppointmentHistory store = history;
+        int toMinute = Math.min(to, store.coveredUntil());
+        if (fromMinute >= toMinute) return Collections.emptyList();
+        List<Appointment> result = new ArrayList<>();
+        store.forEachBetween(fromMinute, toMinute, (id, patientId, recordDoctorId, epochMinute) -> {
+            if (doctorId >= 0 && recordDoctorId != doctorId) return;
+            Appointment a = new Appointment(getPatient(patientId), getDoctor(recordDoctorId), epochMinute);
+            a.setId(id);
+            result.add(a);
+        });
+        return result;
+    }
+
+    private static List<Appointment> merge(List<Appointment> a, List<Appointment> b) {
+        List<Appointment> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0, j = 0;
+        while (i < a.size() && j < b.size()) {
+            merged.add(BY_DATE_TIME.compare(a.get(i), b.get(j)) <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return merged;
+    }
+
+    // The sorted set and the slot index are both keyed on the time, so re-key both. 'bumped' if an
+    // emergency pushed it, rather than it being rescheduled. Caller holds the schedule's lock.
+    private void moveAppointment(DoctorSchedule schedule, Appointment appointment, int newEpochMinute, boolean bumped) {
+        LocalDateTime previous = appointment.getAppointmentDateTime();
+        Batch current = batch.get();
+        if (current != null) current.moved(appointment, appointment.getEpochMinute());
+        rekey(schedule, appointment, newEpochMinute);
+        if (bumped) {
+            fire(l -> l.appointmentMoved(appointment, previous));
+        } else {
+            fire(l -> l.appointmentRescheduled(appointment, previous));
+        }
+    }
+
+    private void rekey(DoctorSchedule schedule, Appointment appointment, int newEpochMinute) {
+        appointments.remove(appointment);
+        schedule.move(appointment, newEpochMinute);
+        appointments.add(appointment);
+    }
+
+    // Appointment events go through here, so that a batch can hold them back until it commits.
+    private void fire(Consumer<HospitalListener> event) {
+        Batch current = batch.get();
+        if (current != null) {
+            current.events.add(event);
+        } else {
+            notifyListeners(event);
+        }
+    }
+
+    private void notifyListeners(Consumer<HospitalListener> event) {
+        changeCount.incrementAndGet();
+        listeners.forEach(event);
+    }
+
+    // Caller holds the 'doctors' lock (or is readObject) and has just given the doctor its id.
+    private void addSchedule(Doctor doctor) {
+        DoctorSchedule[] current = schedules;
+        if (doctor.getId() >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, doctor.getId() + 1));
+        }
+        current[doctor.getId()] = new DoctorSchedule();
+        schedules = current;
+    }
+
+    private DoctorSchedule scheduleFor(Doctor doctor) {
+        DoctorSchedule schedule = scheduleOf(doctor);
+        if (schedule == null) {
+            throw new IllegalArgumentException("Dr. " + doctor.getName() + " is not registered with this hospital.");
+        }
+        return schedule;
+    }
+
+    // Null if the doctor is not registered here.
+    private DoctorSchedule scheduleOf(Doctor doctor) {
+        DoctorSchedule[] current = schedules;
+        int id = doctor.getId();
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    // A search key that sorts before every real appointment at the same time (ids start at 1).
+    private static Appointment bound(int epochMinute) {
+        return new Appointment(null, null, epochMinute);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("patients", getAllPatients());
+        fields.put("doctors", getAllDoctors());
+        fields.put("appointments", new ArrayList<>(appointments));
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        patients = (List<Patient>) fields.get("patients", null);
+        doctors = (List<Doctor>) fields.get("doctors", null);
+        List<Appointment> saved = (List<Appointment>) fields.get("appointments", null);
+
+        // Older files may contain duplicate names; the first one keeps the name, as lookups always did,
+        // and the rest are merged into it. Registry numbers then match what HospitalSnapshot writes and
+        // reads back, which archived appointments rely on.
+        patientsByName = new ConcurrentHashMap<>();
+        List<Patient> registered = new ArrayList<>();
+        for (Patient p : patients) {
+            if (patientsByName.putIfAbsent(p.getNameKey(), p) == null) {
+                p.setId(registered.size());
+                registered.add(p);
+            }
+        }
+        patients = registered;
+        doctorsByName = new ConcurrentHashMap<>();
+        List<Doctor> registeredDoctors = new ArrayList<>();
+        schedules = new DoctorSchedule[Math.max(16, doctors.size())];
+        for (Doctor d : doctors) {
+            if (doctorsByName.putIfAbsent(d.getNameKey(), d) == null) {
+                d.setId(registeredDoctors.size());
+                registeredDoctors.add(d);
+                addSchedule(d);
+            }
+        }
+        doctors = registeredDoctors;
+        for (ListIterator<Appointment> it = saved.listIterator(); it.hasNext(); ) {
+            Appointment a = it.next();
+            Patient patient = patientsByName.get(a.getPatient().getNameKey());
+            Doctor doctor = doctorsByName.get(a.getDoctor().getNameKey());
+            if (patient != a.getPatient() || doctor != a.getDoctor()) {
+                Appointment merged = new Appointment(patient, doctor, a.getEpochMinute());
+                merged.setId(a.getId());
+                it.set(merged);
+            }
+        }
+
+        patientNames = new NameIndex();
+        patientsByName.keySet().forEach(patientNames::add);
+        doctorNames = new NameIndex();
+        doctorsByName.keySet().forEach(doctorNames::add);
+
+        // Files from before appointment ids existed load with id 0; number those after the rest.
+        long maxId = 0;
+        for (Appointment a : saved) {
+            maxId = Math.max(maxId, a.getId());
+        }
+        nextAppointmentId = new AtomicLong(maxId + 1);
+        appointments = new ConcurrentSkipListSet<>(BY_DATE_TIME);
+        appointmentsById = new AppointmentIndex();
+        appointmentsByPatient = new PatientAppointmentIndex();
+        for (Appointment a : saved) {
+            if (a.getId() == 0) a.setId(nextAppointmentId.getAndIncrement());
+            appointments.add(a);
+            appointmentsById.put(a);
+            appointmentsByPatient.add(a);
+            scheduleFor(a.getDoctor()).add(a);
+        }
+        listeners = new CopyOnWriteArrayList<>();
+        batch = new ThreadLocal<>();
+        changeCount = new AtomicLong();
+        recorder = OperationRecorder.NONE;
+        idPartition = 0;
+        idPartitions = 1;
+        endOfDay = MINUTES_PER_DAY;
+        startOfDay = 0;
+        history = AppointmentHistory.NONE;
+        appointmentCount = new AtomicInteger(saved.size());
+    }
+
+    /**
+     * What a scheduleAll batch (or a reassignment) has done so far: its held-back listener
+     * events, and an undo log. Touched only by the thread applying the batch, under the doctors' locks.
+     */
+    private final class Batch {
+        final List<Consumer<HospitalListener>> events = new ArrayList<>();
+        // Appointments added, taken out ('removed'), or bumped ('movedFrom' the minute it was bumped from), in order.
+        private final List<Appointment> changed = new ArrayList<>();
+        private final List<Integer> movedFrom = new ArrayList<>();
+        private final List<Boolean> removed = new ArrayList<>();
+
+        void added(Appointment appointment) {
+            log(appointment, null, false);
+        }
+
+        void removed(Appointment appointment) {
+            log(appointment, null, true);
+        }
+
+        void moved(Appointment appointment, int fromMinute) {
+            log(appointment, fromMinute, false);
+        }
+
+        private void log(Appointment appointment, Integer fromMinute, boolean removal) {
+            changed.add(appointment);
+            movedFrom.add(fromMinute);
+            removed.add(removal);
+        }
+
+        // Undoes everything in reverse order, without telling the listeners (they have not heard of any of it).
+        void rollBack() {
+            for (int i = changed.size() - 1; i >= 0; i--) {
+                Appointment a = changed.get(i);
+                DoctorSchedule schedule = scheduleFor(a.getDoctor());
+                if (removed.get(i)) {
+                    schedule.add(a);
+                    linkAppointment(a);
+                } else if (movedFrom.get(i) == null) {
+                    schedule.remove(a);
+                    unlinkAppointment(a);
+                } else {
+                    rekey(schedule, a, movedFrom.get(i));
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
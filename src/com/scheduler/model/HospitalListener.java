@@ -0,0 +1,44 @@
+package com.scheduler.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives every change made to a Hospital, in the order it was applied.
+ * Callbacks run on the thread that made the change, while Hospital still holds
+ * the lock for it (the doctor's schedule for appointment changes), so they must be quick.
+ */
+public interface HospitalListener {
+
+    default void patientAdded(Patient patient) {}
+
+    default void doctorAdded(Doctor doctor) {}
+
+    /**
+     * The doctor started or stopped taking bookings; see Doctor.isAvailable.
+     */
+    default void doctorAvailabilityChanged(Doctor doctor) {}
+
+    default void appointmentScheduled(Appointment appointment) {}
+
+    /**
+     * An emergency bumped this appointment; it already carries its new time.
+     */
+    default void appointmentMoved(Appointment appointment, LocalDateTime previousDateTime) {}
+
+    /**
+     * The appointment was moved on request (see Hospital.rescheduleAppointment), not bumped;
+     * it already carries its new time. Handled as a move unless overridden, which suits
+     * anything that only follows the schedule.
+     */
+    default void appointmentRescheduled(Appointment appointment, LocalDateTime previousDateTime) {
+        appointmentMoved(appointment, previousDateTime);
+    }
+
+    default void appointmentCanceled(Appointment appointment) {}
+
+    /**
+     * A past appointment was moved out of memory into the hospital's AppointmentHistory.
+     * It still exists; it is just no longer part of the live schedule.
+     */
+    default void appointmentArchived(Appointment appointment) {}
+}
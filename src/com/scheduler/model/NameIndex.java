@@ -0,0 +1,233 @@
+package com.scheduler.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Typeahead index over name keys (see Person.normalizeName). A query matches a name
+ * if it is the start of the name or of any later word in it ("smi" finds "john smith"),
+ * allowing for typos in longer queries: one edit from 3 characters, two from 6, where an
+ * edit is a wrong, missing, extra or swapped character.
+ *
+ * Each word start is one entry in a sorted String array: the key itself, or for a later
+ * word, the rest of the key from there, then TAIL, then the words before it. A query
+ * walks the array as if it were a trie, narrowing the range by binary search one
+ * character at a time and carrying a row of edit distances, so it only visits
+ * prefixes within reach of the query: well under a millisecond over a million names.
+ *
+ * Added keys wait in 'pending' and are sorted in by the next search, so loading a whole
+ * registry costs one sort. Small additions go to a second, short array; that is merged
+ * into the main one once it grows past RECENT_LIMIT, so a search never copies much.
+ * Searches run without locking, on arrays that are replaced and never changed.
+ */
+final class NameIndex {
+
+    // Ends the searchable part of a later-word entry; sorts before every character a name can hold.
+    private static final char TAIL = '\u0001';
+    private static final int RECENT_LIMIT = 4096;
+
+    /**
+     * The sorted entries, swapped as a pair so a search never sees an entry in neither.
+     */
+    private static final class Levels {
+        final String[] main;
+        final String[] recent;
+
+        Levels(String[] main, String[] recent) {
+            this.main = main;
+            this.recent = recent;
+        }
+    }
+
+    private volatile Levels levels = new Levels(new String[0], new String[0]);
+    // Keys added since the last search; guarded by 'this'. Called under the registry's lock, so kept to a list append.
+    private final List<String> pending = new ArrayList<>();
+
+    synchronized void add(String key) {
+        pending.add(key);
+    }
+
+    /**
+     * Up to 'limit' keys matching 'query' (see the class comment), closest first and
+     * then in alphabetical order of the matching word. Sorts in pending keys first,
+     * even for an empty query.
+     */
+    List<String> search(String query, int limit) {
+        Levels current = catchUp();
+        String q = Person.normalizeName(query.stripLeading());
+        if (q.isEmpty() || limit <= 0) return Collections.emptyList();
+        int maxEdits = q.length() < 3 ? 0 : q.length() < 6 ? 1 : 2;
+
+        // Exact prefixes first, then one typo, then two: a wider walk only runs if the narrower ones did not fill the list.
+        List<String> keys = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        for (int edits = 0; edits <= maxEdits; edits++) {
+            List<String> entries = new ArrayList<>();
+            Search search = new Search(q, edits, limit, entries);
+            search.run(current.main);
+            search.run(current.recent);
+            Collections.sort(entries);
+            for (String entry : entries) {
+                String key = keyOf(entry);
+                if (seen.add(key)) {
+                    keys.add(key);
+                    if (keys.size() == limit) return keys;
+                }
+            }
+        }
+        return keys;
+    }
+
+    // Sorts in whatever was added since the last search.
+    private synchronized Levels catchUp() {
+        Levels current = levels;
+        if (pending.isEmpty()) return current;
+        List<String> entries = new ArrayList<>(pending.size() * 2);
+        for (String key : pending) {
+            entries.add(key);
+            for (int i = 1; i < key.length(); i++) {
+                if (key.charAt(i - 1) == ' ' && key.charAt(i) != ' ') {
+                    entries.add(key.substring(i) + TAIL + key.substring(0, i));
+                }
+            }
+        }
+        pending.clear();
+        String[] added = entries.toArray(new String[0]);
+        // Parallel only pays off for a bulk load; small arrays are sorted in place by the caller's thread anyway.
+        Arrays.parallelSort(added);
+        if (current.recent.length + added.length <= RECENT_LIMIT) {
+            current = new Levels(current.main, merge(current.recent, added));
+        } else {
+            current = new Levels(merge(current.main, merge(current.recent, added)), new String[0]);
+        }
+        levels = current;
+        return current;
+    }
+
+    private static String[] merge(String[] a, String[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+        String[] out = new String[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            out[k++] = a[i].compareTo(b[j]) <= 0 ? a[i++] : b[j++];
+        }
+        while (i < a.length) out[k++] = a[i++];
+        while (j < b.length) out[k++] = b[j++];
+        return out;
+    }
+
+    private static String keyOf(String entry) {
+        int tail = entry.indexOf(TAIL);
+        return tail < 0 ? entry : entry.substring(tail + 1) + entry.substring(0, tail);
+    }
+
+    // The entry's character at 'depth', or 0 past the end of its searchable part.
+    private static char charAt(String entry, int depth) {
+        if (depth >= entry.length()) return 0;
+        char c = entry.charAt(depth);
+        return c == TAIL ? 0 : c;
+    }
+
+    /**
+     * One query's walk over one sorted array. Entries in [lo, hi) share their first
+     * 'depth' characters, so the entries for each next character are a sub-range,
+     * found by binary search on that character alone.
+     */
+    private static final class Search {
+
+        private final char[] query;
+        private final int maxEdits;
+        private final int limit;
+        // Entries within exactly 'maxEdits'; closer ones were found by an earlier, narrower walk.
+        private final List<String> out;
+        private String[] entries;
+
+        Search(String query, int maxEdits, int limit, List<String> out) {
+            this.query = query.toCharArray();
+            this.maxEdits = maxEdits;
+            this.limit = limit;
+            this.out = out;
+        }
+
+        void run(String[] sorted) {
+            if (sorted.length == 0) return;
+            entries = sorted;
+            int[] row = new int[query.length + 1];
+            for (int j = 0; j <= query.length; j++) {
+                row[j] = j;
+            }
+            walk(0, sorted.length, 0, null, row, (char) 0, maxEdits + 1);
+        }
+
+        /**
+         * 'row' holds the edit distances from each prefix of the query to the shared
+         * 'depth' characters, and 'previous' (with 'last', their last character) the row
+         * one character up, for swaps. 'bound' is the distance an enclosing range already
+         * matched at; a sub-range is only worth reporting if it matches more closely.
+         */
+        private void walk(int lo, int hi, int depth, int[] previous, int[] row, char last, int bound) {
+            int distance = row[query.length];
+            if (distance < bound) {
+                // The whole query is used up: everything in the range matches at this distance.
+                if (distance == maxEdits) {
+                    // Room for the first 'limit' new names, after any of the (fewer than 'limit') found by narrower walks.
+                    for (int i = lo; i < hi && i < lo + 2 * limit; i++) {
+                        out.add(entries[i]);
+                    }
+                }
+                bound = distance;
+                if (distance == 0) return;
+            }
+            // Entries that end here come first; skip them.
+            int i = upperBound(lo, hi, depth, (char) 0);
+            while (i < hi) {
+                char c = charAt(entries[i], depth);
+                int next = upperBound(i, hi, depth, c);
+                int[] child = step(previous, row, last, c);
+                if (min(child) < Math.min(bound, maxEdits + 1)) {
+                    walk(i, next, depth + 1, row, child, c, bound);
+                }
+                i = next;
+            }
+        }
+
+        // First index in [lo, hi) whose character at 'depth' is greater than 'c'.
+        private int upperBound(int lo, int hi, int depth, char c) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (charAt(entries[mid], depth) <= c) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // The next row of the edit-distance table, for one more character 'c'.
+        private int[] step(int[] previous, int[] row, char last, char c) {
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            for (int j = 1; j < row.length; j++) {
+                int cost = query[j - 1] == c ? 0 : 1;
+                int best = Math.min(Math.min(next[j - 1] + 1, row[j] + 1), row[j - 1] + cost);
+                if (previous != null && j > 1 && query[j - 1] == last && query[j - 2] == c) {
+                    best = Math.min(best, previous[j - 2] + 1);
+                }
+                next[j] = best;
+            }
+            return next;
+        }
+
+        private static int min(int[] row) {
+            int min = row[0];
+            for (int v : row) min = Math.min(min, v);
+            return min;
+        }
+    }
+}
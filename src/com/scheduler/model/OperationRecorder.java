@@ -0,0 +1,33 @@
+package com.scheduler.model;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Hears every call made to a Hospital's operations, with the arguments as given,
+ * before the call runs; whether it then succeeds or is refused does not matter.
+ * That makes it a record of the traffic, as opposed to a HospitalListener, which
+ * only hears about changes. Called on the caller's thread, before any lock is
+ * taken, so calls from different threads may arrive in any order among themselves.
+ */
+public interface OperationRecorder {
+
+    /** Records nothing. */
+    OperationRecorder NONE = new OperationRecorder() { };
+
+    default void addPatient(Patient patient) {}
+
+    default void addDoctor(Doctor doctor) {}
+
+    default void scheduleAppointment(String patientName, String doctorName, LocalDateTime dateTime) {}
+
+    default void scheduleAll(Collection<BookingRequest> requests, boolean partial) {}
+
+    default void cancelAppointment(String patientName, String doctorName) {}
+
+    default void cancelAppointment(long id) {}
+
+    default void rescheduleAppointment(long id, LocalDateTime dateTime) {}
+
+    default void reassignAppointments(String doctorName, LocalDateTime from, LocalDateTime to) {}
+}
@@ -0,0 +1,94 @@
+package com.scheduler.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Patient -> that patient's appointments, indexed by Patient.getId() so that a
+ * lookup hashes nothing. Split into segments by patient id like AppointmentIndex,
+ * so bookings with different doctors rarely share a lock. A patient holds a
+ * handful of appointments, kept unordered; adding and removing one are O(that handful).
+ * Patients without appointments cost one empty array slot.
+ */
+class PatientAppointmentIndex {
+
+    private static final int SEGMENTS = 16; // power of two
+    private static final int SHIFT = 4;     // log2(SEGMENTS)
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    PatientAppointmentIndex() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    void add(Appointment appointment) {
+        int id = appointment.getPatient().getId();
+        segments[id & (SEGMENTS - 1)].add(id >>> SHIFT, appointment);
+    }
+
+    void remove(Appointment appointment) {
+        int id = appointment.getPatient().getId();
+        segments[id & (SEGMENTS - 1)].remove(id >>> SHIFT, appointment);
+    }
+
+    /**
+     * A copy of the patient's appointments, in no particular order.
+     */
+    List<Appointment> get(Patient patient) {
+        int id = patient.getId();
+        if (id < 0) return new ArrayList<>();
+        return segments[id & (SEGMENTS - 1)].get(id >>> SHIFT);
+    }
+
+    /**
+     * One array per patient, trailing nulls past its last appointment.
+     */
+    private static class Segment {
+        private Appointment[][] lists = new Appointment[16][];
+
+        synchronized void add(int slot, Appointment appointment) {
+            if (slot >= lists.length) {
+                lists = Arrays.copyOf(lists, Math.max(lists.length * 2, slot + 1));
+            }
+            Appointment[] list = lists[slot];
+            if (list == null) {
+                lists[slot] = list = new Appointment[2];
+            }
+            int n = size(list);
+            if (n == list.length) {
+                lists[slot] = list = Arrays.copyOf(list, n * 2);
+            }
+            list[n] = appointment;
+        }
+
+        synchronized void remove(int slot, Appointment appointment) {
+            if (slot >= lists.length || lists[slot] == null) return;
+            Appointment[] list = lists[slot];
+            int n = size(list);
+            for (int i = 0; i < n; i++) {
+                if (list[i] == appointment) {
+                    // Order does not matter, so the last one fills the hole.
+                    list[i] = list[n - 1];
+                    list[n - 1] = null;
+                    if (n == 1) lists[slot] = null;
+                    return;
+                }
+            }
+        }
+
+        synchronized List<Appointment> get(int slot) {
+            if (slot >= lists.length || lists[slot] == null) return new ArrayList<>();
+            Appointment[] list = lists[slot];
+            return new ArrayList<>(Arrays.asList(list).subList(0, size(list)));
+        }
+
+        private static int size(Appointment[] list) {
+            int n = 0;
+            while (n < list.length && list[n] != null) n++;
+            return n;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.scheduler.model;
 
 import java.io.Serializable;
+import java.util.Locale;
 
 /**
  * Abstract base class for Patient and Doctor.
@@ -9,8 +10,16 @@ import java.io.Serializable;
  */
 public abstract class Person implements Serializable {
 
+    // Pinned so that hospital.dat files written by earlier versions still load.
+    private static final long serialVersionUID = -5750699850865364583L;
+
     // Use 'protected' so subclasses can access it
     protected String name;
+    // Position in the hospital's patient or doctor registry; -1 until registered.
+    private transient int id = -1;
+    // normalizeName(name), interned, so equal people share one key instance. Not saved;
+    // computed on first use, which also covers objects read back by Java serialization.
+    private transient String nameKey;
 
     public Person(String name) {
         this.name = name;
@@ -20,16 +29,52 @@ public abstract class Person implements Serializable {
         return name;
     }
 
+    /**
+     * Registry number assigned by Hospital, in registration order (patients and
+     * doctors are numbered separately). Persistence and Hospital's indexes refer
+     * to people by this number; it stays the same for as long as the person is registered.
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * The case-folded form of a name, as used by equals/hashCode.
+     * Hospital keys its name lookups on this so they agree with Person equality.
+     */
+    static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * This person's normalizeName(name), computed once. Interned, so two people
+     * with the same key hold the same String instance.
+     */
+    String getNameKey() {
+        String key = nameKey;
+        if (key == null) {
+            // A race here only computes the same interned String twice.
+            key = normalizeName(name).intern();
+            nameKey = key;
+        }
+        return key;
+    }
+
+    // Same-name people share the interned key, so comparing references is enough.
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
-        Person person = (Person) obj;
-        return name.equalsIgnoreCase(person.name);
+        return getNameKey() == ((Person) obj).getNameKey();
     }
 
+    // String caches its own hash, so after the first call this is a field read.
     @Override
     public int hashCode() {
-        return name.toLowerCase().hashCode();
+        return getNameKey().hashCode();
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.scheduler.model;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What Hospital.reassignAppointments did: each appointment it moved to another
+ * doctor, and those it could find no room for, which stay with the original doctor.
+ */
+public final class ReassignmentReport {
+
+    /**
+     * One appointment handed to another doctor. It keeps its id; the appointment
+     * is the one now in the hospital, with its new doctor and time.
+     */
+    public static final class Move {
+        private final Appointment appointment;
+        private final Doctor previousDoctor;
+        private final int previousEpochMinute;
+
+        Move(Appointment appointment, Doctor previousDoctor, int previousEpochMinute) {
+            this.appointment = appointment;
+            this.previousDoctor = previousDoctor;
+            this.previousEpochMinute = previousEpochMinute;
+        }
+
+        public Appointment getAppointment() { return appointment; }
+        public Doctor getPreviousDoctor() { return previousDoctor; }
+        public LocalDateTime getPreviousDateTime() { return Appointment.fromEpochMinute(previousEpochMinute); }
+        public boolean keptTime() { return appointment.getEpochMinute() == previousEpochMinute; }
+
+        @Override
+        public String toString() {
+            return appointment.getPatient().getName() + ": Dr. " + previousDoctor.getName() + " -> Dr. "
+                    + appointment.getDoctor().getName() + (keptTime() ? ", same time"
+                    : ", moved from " + getPreviousDateTime().toLocalTime() + " to " + appointment.getAppointmentDateTime().toLocalTime());
+        }
+    }
+
+    private final Doctor doctor;
+    private final List<Move> moves;
+    private final List<Appointment> unmoved;
+
+    ReassignmentReport(Doctor doctor, List<Move> moves, List<Appointment> unmoved) {
+        this.doctor = doctor;
+        this.moves = Collections.unmodifiableList(moves);
+        this.unmoved = Collections.unmodifiableList(unmoved);
+    }
+
+    public Doctor getDoctor() { return doctor; }
+
+    /**
+     * The moves, in the original appointments' time order.
+     */
+    public List<Move> getMoves() { return moves; }
+
+    /**
+     * Appointments still with the original doctor, in time order.
+     */
+    public List<Appointment> getUnmoved() { return unmoved; }
+
+    public int getKeptTimeCount() {
+        int kept = 0;
+        for (Move m : moves) {
+            if (m.keptTime()) kept++;
+        }
+        return kept;
+    }
+
+    /**
+     * A one-paragraph summary for showing to the user.
+     */
+    public String getMessage() {
+        StringBuilder message = new StringBuilder("Reassigned " + moves.size() + " of Dr. " + doctor.getName() + "'s "
+                + (moves.size() + unmoved.size()) + " appointments (" + getKeptTimeCount() + " at their original time).");
+        if (!unmoved.isEmpty()) {
+            message.append("\nNo room with another doctor for ").append(unmoved.size()).append("; they stay with Dr. ")
+                    .append(doctor.getName()).append('.');
+        }
+        return message.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
@@ -0,0 +1,413 @@
+package com.scheduler.server;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.BookingRequest;
+import com.scheduler.model.BookingResult;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.FreeSlot;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+import com.scheduler.model.ReassignmentReport;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a Hospital over HTTP with the JDK's built-in server, for kiosks and
+ * integration jobs that cannot use the Swing window. Start it with
+ * {@code java -jar ... --server [port] [host]}; see Main.
+ *
+ * Parameters come from the query string or a form-encoded body; every response is JSON.
+ * <pre>
+ *   GET    /patients?name=            find a patient
+ *   POST   /patients                  name, age, gender, healthIssue, emergency
+ *   GET    /doctors?name=             find a doctor; without a name, every doctor, streamed
+ *   POST   /doctors                   name, specialization
+ *   POST   /appointments              patient, doctor, dateTime (ISO, e.g. 2030-01-01T09:15)
+ *   DELETE /appointments?id=           or ?patient=&amp;doctor= for their earliest
+ *   PUT    /appointments?id=&amp;dateTime=  reschedule, keeping the id
+ *   GET    /appointments?from=&amp;to=    listing in time order, archived ones included; streamed
+ *   GET    /appointments?patient=[&amp;doctor=]   the patient's in-memory appointments, in time order
+ *   GET    /slots?doctor=|specialization=&amp;after=&amp;count=   next free slots
+ *   POST   /reassignments             doctor, from, to: hand the doctor's appointments to colleagues
+ * </pre>
+ * Errors are {"error": "..."} with 400 (bad parameters), 404 (unknown name) or 409
+ * (the booking rules refused it). Hospital is thread-safe, so requests are handled
+ * concurrently, each on its own thread.
+ */
+public class HospitalServer {
+
+    private static final int MAX_SLOTS = 100;
+
+    static {
+        // The JDK server leaves Nagle on, so each small response waits out the client's
+        // delayed ACK (about 40 ms). Read once, when the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Hospital hospital;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public HospitalServer(Hospital hospital, InetSocketAddress address) throws IOException {
+        this.hospital = hospital;
+        this.server = createServer(address);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/patients", exchange -> handle(exchange, this::patients));
+        server.createContext("/doctors", exchange -> handle(exchange, this::doctors));
+        server.createContext("/appointments", exchange -> handle(exchange, this::appointments));
+        server.createContext("/slots", exchange -> handle(exchange, this::slots));
+        server.createContext("/reassignments", exchange -> handle(exchange, this::reassignments));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to 'delaySeconds' for those in progress.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Through here, so the nodelay setting above is in place before the first server is created.
+    static HttpServer createServer(InetSocketAddress address) throws IOException {
+        return HttpServer.create(address, 1024);
+    }
+
+    /**
+     * A virtual thread per request where the runtime has them (Java 21 and later). The build
+     * targets Java 11, so the factory is looked up by name; on older runtimes a fixed pool of
+     * platform threads serves instead, which is plenty since no request blocks for long.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(16, 4 * Runtime.getRuntime().availableProcessors()), r -> {
+                Thread t = new Thread(r, "http-worker-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // --- Routes ---
+
+    private interface Route {
+        void serve(HttpExchange exchange, Map<String, String> params) throws IOException, AppointmentException;
+    }
+
+    private void patients(HttpExchange exchange, Map<String, String> params) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            Patient patient = new Patient(required(params, "name"), intParam(params, "age", -1),
+                    required(params, "gender"), required(params, "healthIssue"),
+                    Boolean.parseBoolean(params.get("emergency")));
+            if (!hospital.addPatient(patient)) {
+                error(exchange, 409, "A patient named " + patient.getName() + " already exists.");
+                return;
+            }
+            Writer out = begin(exchange, 201);
+            new JsonWriter(out).patient(patient);
+            out.close();
+        } else {
+            Optional<Patient> patient = hospital.findPatientByName(required(params, "name"));
+            if (patient.isEmpty()) {
+                error(exchange, 404, "Patient not found: " + params.get("name"));
+                return;
+            }
+            Writer out = begin(exchange, 200);
+            new JsonWriter(out).patient(patient.get());
+            out.close();
+        }
+    }
+
+    private void doctors(HttpExchange exchange, Map<String, String> params) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            Doctor doctor = new Doctor(required(params, "name"), required(params, "specialization"));
+            if (!hospital.addDoctor(doctor)) {
+                error(exchange, 409, "A doctor named " + doctor.getName() + " already exists.");
+                return;
+            }
+            Writer out = begin(exchange, 201);
+            new JsonWriter(out).doctor(doctor);
+            out.close();
+        } else if (!params.containsKey("name")) {
+            List<Doctor> doctors = hospital.getAllDoctors();
+            Writer out = begin(exchange, 200);
+            JsonWriter json = new JsonWriter(out);
+            json.raw("[");
+            for (int i = 0; i < doctors.size(); i++) {
+                if (i > 0) json.raw(",");
+                json.doctor(doctors.get(i));
+            }
+            json.raw("]");
+            out.close();
+        } else {
+            Optional<Doctor> doctor = hospital.findDoctorByName(required(params, "name"));
+            if (doctor.isEmpty()) {
+                error(exchange, 404, "Doctor not found: " + params.get("name"));
+                return;
+            }
+            Writer out = begin(exchange, 200);
+            new JsonWriter(out).doctor(doctor.get());
+            out.close();
+        }
+    }
+
+    private void appointments(HttpExchange exchange, Map<String, String> params) throws IOException, AppointmentException {
+        switch (exchange.getRequestMethod()) {
+            case "POST": {
+                // Booked through scheduleAll so a refusal comes back as a status, not an exception.
+                BookingRequest request = new BookingRequest(required(params, "patient"), required(params, "doctor"),
+                        dateTime(params, "dateTime"));
+                BookingResult result = hospital.scheduleAll(Collections.singletonList(request), true).get(0);
+                int status = result.isBooked() ? 201
+                        : result.getStatus() == BookingResult.Status.CONFLICT || result.getStatus() == BookingResult.Status.DAY_FULL
+                        || result.getStatus() == BookingResult.Status.DOCTOR_NOT_AVAILABLE ? 409 : 404;
+                Writer out = begin(exchange, status);
+                JsonWriter json = new JsonWriter(out);
+                json.raw("{").field("status", result.getStatus().name()).raw(",")
+                        .field(result.isBooked() ? "message" : "error", result.getMessage());
+                if (result.isBooked()) {
+                    json.raw(",").field("id", result.getAppointmentId()).raw(",\"moved\":[");
+                    List<Appointment> moved = result.getMoved();
+                    for (int i = 0; i < moved.size(); i++) {
+                        if (i > 0) json.raw(",");
+                        json.appointment(moved.get(i));
+                    }
+                    json.raw("]");
+                }
+                json.raw("}");
+                out.close();
+                break;
+            }
+            case "DELETE": {
+                String message;
+                boolean canceled;
+                if (params.containsKey("id")) {
+                    long id = Long.parseLong(params.get("id"));
+                    canceled = hospital.cancelAppointment(id);
+                    message = canceled ? "Successfully canceled the appointment." : "Appointment not found: " + id;
+                } else {
+                    message = hospital.cancelAppointment(required(params, "patient"), required(params, "doctor"));
+                    canceled = message.startsWith("Successfully");
+                }
+                Writer out = begin(exchange, canceled ? 200 : 404);
+                new JsonWriter(out).raw("{").field(canceled ? "message" : "error", message).raw("}");
+                out.close();
+                break;
+            }
+            case "PUT": {
+                String message = hospital.rescheduleAppointment(Long.parseLong(required(params, "id")), dateTime(params, "dateTime"));
+                Writer out = begin(exchange, 200);
+                new JsonWriter(out).raw("{").field("message", message).raw("}");
+                out.close();
+                break;
+            }
+            default: {
+                if (params.containsKey("patient")) {
+                    List<Appointment> theirs = hospital.findAppointments(params.get("patient"), params.get("doctor"));
+                    Writer out = begin(exchange, 200);
+                    JsonWriter json = new JsonWriter(out);
+                    json.raw("[");
+                    for (int i = 0; i < theirs.size(); i++) {
+                        if (i > 0) json.raw(",");
+                        json.appointment(theirs.get(i));
+                    }
+                    json.raw("]");
+                    out.close();
+                    break;
+                }
+                LocalDateTime from = dateTime(params, "from");
+                LocalDateTime to = dateTime(params, "to");
+                // Chunked, and written as the range is read, so a wide range is never held in memory whole.
+                Writer out = begin(exchange, 200);
+                JsonWriter json = new JsonWriter(out);
+                json.raw("[");
+                boolean[] first = {true};
+                try {
+                    hospital.forEachAppointmentBetween(from, to, a -> {
+                        try {
+                            if (!first[0]) json.raw(",");
+                            first[0] = false;
+                            json.appointment(a);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                json.raw("]");
+                out.close();
+            }
+        }
+    }
+
+    private void slots(HttpExchange exchange, Map<String, String> params) throws IOException, AppointmentException {
+        LocalDateTime after = params.containsKey("after") ? dateTime(params, "after") : LocalDateTime.now();
+        int count = Math.max(1, Math.min(intParam(params, "count", 1), MAX_SLOTS));
+        List<FreeSlot> slots = params.containsKey("doctor")
+                ? hospital.findFreeSlots(params.get("doctor"), after, count)
+                : hospital.findFreeSlotsBySpecialization(required(params, "specialization"), after, count);
+        Writer out = begin(exchange, 200);
+        JsonWriter json = new JsonWriter(out);
+        json.raw("[");
+        for (int i = 0; i < slots.size(); i++) {
+            if (i > 0) json.raw(",");
+            json.slot(slots.get(i));
+        }
+        json.raw("]");
+        out.close();
+    }
+
+    private void reassignments(HttpExchange exchange, Map<String, String> params) throws IOException, AppointmentException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            throw new IllegalArgumentException("Use POST");
+        }
+        ReassignmentReport report = hospital.reassignAppointments(required(params, "doctor"),
+                dateTime(params, "from"), dateTime(params, "to"));
+        Writer out = begin(exchange, 200);
+        JsonWriter json = new JsonWriter(out);
+        json.raw("{").field("message", report.getMessage()).raw(",\"moves\":[");
+        List<ReassignmentReport.Move> moves = report.getMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            if (i > 0) json.raw(",");
+            ReassignmentReport.Move m = moves.get(i);
+            json.raw("{").field("previousDoctor", m.getPreviousDoctor().getName()).raw(",")
+                    .field("previousDateTime", m.getPreviousDateTime().toString()).raw(",\"appointment\":")
+                    .appointment(m.getAppointment()).raw("}");
+        }
+        json.raw("],\"unmoved\":[");
+        List<Appointment> unmoved = report.getUnmoved();
+        for (int i = 0; i < unmoved.size(); i++) {
+            if (i > 0) json.raw(",");
+            json.appointment(unmoved.get(i));
+        }
+        json.raw("]}");
+        out.close();
+    }
+
+    // --- Plumbing ---
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        try {
+            route.serve(exchange, params(exchange));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Also NumberFormatException.
+            error(exchange, 400, e.getMessage());
+        } catch (AppointmentException e) {
+            error(exchange, status(e.getReason()), e.getMessage());
+        } catch (IOException e) {
+            // The client went away; nothing to tell it.
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            error(exchange, 500, "Unexpected error: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int status(AppointmentException.Reason reason) {
+        switch (reason) {
+            case INVALID_DATE: return 400;
+            case NOT_FOUND: return 404;
+            default: return 409;
+        }
+    }
+
+    // Sends the headers for a streamed (chunked) JSON body and returns a writer for it.
+    static Writer begin(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    static void error(HttpExchange exchange, int status, String message) {
+        try {
+            Writer out = begin(exchange, status);
+            new JsonWriter(out).raw("{").field("error", message).raw("}");
+            out.close();
+        } catch (IOException e) {
+            // Headers already sent, or the client went away.
+        }
+    }
+
+    static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parse(exchange.getRequestURI().getRawQuery(), params);
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && type.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parse(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parse(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) return;
+        for (String pair : encoded.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    // 'fallback' if absent; -1 means required.
+    private static int intParam(Map<String, String> params, String name, int fallback) {
+        String value = params.get(name);
+        if (value == null && fallback >= 0) return fallback;
+        return Integer.parseInt(required(params, name));
+    }
+
+    private static LocalDateTime dateTime(Map<String, String> params, String name) {
+        return LocalDateTime.parse(required(params, name));
+    }
+}
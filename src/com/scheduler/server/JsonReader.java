@@ -0,0 +1,132 @@
+package com.scheduler.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks apart the JSON the server writes (see JsonWriter), for ShardRouter, which
+ * only needs to split a shard's listing into its elements and read a field or two
+ * of each. Not a general parser: it expects well-formed input and keeps each
+ * element's text as it was, so the router can pass it on without re-encoding it.
+ */
+final class JsonReader {
+
+    private JsonReader() {
+    }
+
+    /**
+     * The text of each element of a top-level array, in order.
+     */
+    static List<String> elements(String json) {
+        List<String> elements = new ArrayList<>();
+        int i = skipSpace(json, 0);
+        if (i >= json.length() || json.charAt(i) != '[') {
+            throw new IllegalArgumentException("Not a JSON array");
+        }
+        i = skipSpace(json, i + 1);
+        if (i < json.length() && json.charAt(i) == ']') return elements;
+        while (i < json.length()) {
+            int end = endOfValue(json, i);
+            elements.add(json.substring(i, end));
+            i = skipSpace(json, end);
+            if (i >= json.length() || json.charAt(i) == ']') break;
+            i = skipSpace(json, i + 1); // the comma
+        }
+        return elements;
+    }
+
+    /**
+     * The value of a top-level string field of an object, unescaped; null if absent or null.
+     */
+    static String string(String object, String name) {
+        int at = valueOf(object, name);
+        if (at < 0 || object.charAt(at) != '"') return null;
+        StringBuilder value = new StringBuilder();
+        for (int i = at + 1; i < object.length(); i++) {
+            char c = object.charAt(i);
+            if (c == '"') break;
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = object.charAt(++i);
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    value.append((char) Integer.parseInt(object.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default: value.append(escaped); // " \ /
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * The value of a top-level whole-number field of an object.
+     */
+    static long number(String object, String name) {
+        int at = valueOf(object, name);
+        if (at < 0) throw new IllegalArgumentException("Missing field: " + name);
+        return Long.parseLong(object.substring(at, endOfValue(object, at)).trim());
+    }
+
+    // Index of the value of top-level field 'name' in 'object', or -1.
+    private static int valueOf(String object, String name) {
+        int i = skipSpace(object, 0);
+        if (i >= object.length() || object.charAt(i) != '{') return -1;
+        i = skipSpace(object, i + 1);
+        while (i < object.length() && object.charAt(i) == '"') {
+            int keyEnd = endOfValue(object, i);
+            boolean match = object.regionMatches(i + 1, name, 0, name.length()) && keyEnd == i + name.length() + 2;
+            int value = skipSpace(object, skipSpace(object, keyEnd) + 1); // past the colon
+            if (match) return value;
+            i = skipSpace(object, endOfValue(object, value));
+            if (i >= object.length() || object.charAt(i) != ',') break;
+            i = skipSpace(object, i + 1);
+        }
+        return -1;
+    }
+
+    // Index just past the value (string, object, array or literal) starting at 'i'.
+    private static int endOfValue(String json, int i) {
+        char first = json.charAt(i);
+        if (first == '"') {
+            for (int j = i + 1; j < json.length(); j++) {
+                char c = json.charAt(j);
+                if (c == '\\') {
+                    j++;
+                } else if (c == '"') {
+                    return j + 1;
+                }
+            }
+            throw new IllegalArgumentException("Unterminated JSON string");
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            for (int j = i; j < json.length(); j++) {
+                char c = json.charAt(j);
+                if (c == '"') {
+                    j = endOfValue(json, j) - 1;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if ((c == '}' || c == ']') && --depth == 0) {
+                    return j + 1;
+                }
+            }
+            throw new IllegalArgumentException("Unterminated JSON " + (first == '{' ? "object" : "array"));
+        }
+        int j = i;
+        while (j < json.length() && ",}] \t\r\n".indexOf(json.charAt(j)) < 0) j++;
+        return j;
+    }
+
+    private static int skipSpace(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) i++;
+        return i;
+    }
+}
@@ -0,0 +1,107 @@
+package com.scheduler.server;
+
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.FreeSlot;
+import com.scheduler.model.Patient;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the server's JSON straight to a Writer, so a listing is streamed out
+ * as it is produced instead of being built up as one big string first.
+ * Only what the server sends: objects, arrays, strings, numbers and booleans.
+ * The caller is responsible for putting commas between values.
+ */
+final class JsonWriter {
+
+    private final Writer out;
+
+    JsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    JsonWriter raw(String text) throws IOException {
+        out.write(text);
+        return this;
+    }
+
+    JsonWriter field(String name, String value) throws IOException {
+        string(name);
+        out.write(':');
+        if (value == null) {
+            out.write("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    JsonWriter field(String name, long value) throws IOException {
+        string(name);
+        out.write(':');
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    JsonWriter field(String name, boolean value) throws IOException {
+        string(name);
+        out.write(':');
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    JsonWriter patient(Patient p) throws IOException {
+        out.write('{');
+        field("id", p.getId()).raw(",").field("name", p.getName()).raw(",").field("age", p.getAge()).raw(",")
+                .field("gender", p.getGender()).raw(",").field("healthIssue", p.getHealthIssue()).raw(",")
+                .field("emergency", p.isEmergency());
+        out.write('}');
+        return this;
+    }
+
+    JsonWriter doctor(Doctor d) throws IOException {
+        out.write('{');
+        field("id", d.getId()).raw(",").field("name", d.getName()).raw(",")
+                .field("specialization", d.getSpecialization()).raw(",").field("available", d.isAvailable());
+        out.write('}');
+        return this;
+    }
+
+    JsonWriter appointment(Appointment a) throws IOException {
+        out.write('{');
+        field("id", a.getId()).raw(",").field("patient", a.getPatient().getName()).raw(",")
+                .field("doctor", a.getDoctor().getName()).raw(",").field("dateTime", a.getAppointmentDateTime().toString());
+        out.write('}');
+        return this;
+    }
+
+    JsonWriter slot(FreeSlot slot) throws IOException {
+        out.write('{');
+        field("doctor", slot.getDoctor().getName()).raw(",").field("dateTime", slot.getDateTime().toString());
+        out.write('}');
+        return this;
+    }
+
+    private void string(String s) throws IOException {
+        out.write('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
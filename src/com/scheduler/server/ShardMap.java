@@ -0,0 +1,100 @@
+package com.scheduler.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Which shard of a partitioned deployment (see ShardRouter) owns what. Read from a
+ * file with one line per shard, in shard order: the shard's base URL, then the
+ * specializations (departments) it holds, comma-separated, or * for every
+ * specialization not listed elsewhere. Blank lines and lines starting with # are skipped.
+ * <pre>
+ *   http://127.0.0.1:8081  Cardiology, Surgery
+ *   http://127.0.0.1:8082  Pediatrics
+ *   http://127.0.0.1:8083  *
+ * </pre>
+ * Shard k must be started with "--shard k/n", n being the number of shards, so the
+ * appointment ids it hands out tell the router which shard owns them.
+ */
+public final class ShardMap {
+
+    private final List<URI> shards;
+    // Trimmed, lower-cased specialization -> shard, the way Hospital matches specializations.
+    private final Map<String, Integer> bySpecialization;
+    private final int fallback;
+
+    ShardMap(List<URI> shards, Map<String, Integer> bySpecialization, int fallback) {
+        this.shards = Collections.unmodifiableList(shards);
+        this.bySpecialization = bySpecialization;
+        this.fallback = fallback;
+    }
+
+    public static ShardMap load(Path file) throws IOException {
+        List<URI> shards = new ArrayList<>();
+        Map<String, Integer> bySpecialization = new HashMap<>();
+        int fallback = -1;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split("\\s+", 2);
+            int shard = shards.size();
+            URI url = URI.create(parts[0]);
+            if (url.getHost() == null || url.getPort() < 0) {
+                throw new IOException(file + ": shard " + shard + " needs a URL with a host and port: " + parts[0]);
+            }
+            shards.add(url);
+            for (String specialization : (parts.length > 1 ? parts[1] : "").split(",")) {
+                specialization = specialization.trim();
+                if (specialization.isEmpty()) continue;
+                if (specialization.equals("*")) {
+                    if (fallback >= 0) throw new IOException(file + ": more than one shard has *");
+                    fallback = shard;
+                } else if (bySpecialization.putIfAbsent(key(specialization), shard) != null) {
+                    throw new IOException(file + ": " + specialization + " is given to more than one shard");
+                }
+            }
+        }
+        if (shards.isEmpty()) throw new IOException(file + " lists no shards");
+        return new ShardMap(shards, bySpecialization, fallback);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public URI get(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * The shard holding doctors with this specialization.
+     *
+     * @throws IllegalArgumentException if no shard takes it
+     */
+    public int shardFor(String specialization) {
+        Integer shard = bySpecialization.get(key(specialization));
+        if (shard != null) return shard;
+        if (fallback < 0) throw new IllegalArgumentException("No shard takes specialization " + specialization);
+        return fallback;
+    }
+
+    /**
+     * The shard that handed out this appointment id (see Hospital.setIdPartition).
+     */
+    public int shardForId(long id) {
+        return (int) Math.floorMod(id - 1, (long) shards.size());
+    }
+
+    private static String key(String specialization) {
+        return specialization.trim().toLowerCase(Locale.ROOT);
+    }
+}
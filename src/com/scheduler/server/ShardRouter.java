@@ -0,0 +1,427 @@
+package com.scheduler.server;
+
+import com.scheduler.model.Appointment;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The front of a partitioned deployment: several HospitalServer processes ("shards"),
+ * each holding the doctors of some specializations and their appointments in its own
+ * data file, behind one address that answers the same requests as a single server.
+ * Start the shards with "--server port --shard k/n", each in its own directory, then
+ * this with "--router port shards.conf"; see ShardMap for the file, and Main.
+ *
+ * A request about one doctor goes to the shard holding that doctor; one about an
+ * appointment id goes to the shard that handed the id out; slots by specialization go
+ * to the shard holding it. Patients are registered on every shard, since any doctor
+ * may see any patient, and looked up on the first. Listings that span shards (a date
+ * range, or a patient's appointments with any doctor) are asked of every shard at
+ * once and merged into one list in time order, the id breaking ties, as one server
+ * lists them. A shard that cannot be reached gets the request a 502.
+ *
+ * Colleagues share a specialization, so a reassignment stays within one shard.
+ * Doctor names are unique across the shards: the router checks new names against
+ * every doctor it knows, which it learns from the shards when it starts.
+ */
+public class ShardRouter {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    // A lookup of an unknown doctor asks the shards again, at most this often.
+    private static final long RELOAD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ShardMap shards;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    // Doctor name, lower-cased as Hospital does -> the shard holding that doctor.
+    private final Map<String, Integer> doctorShards = new ConcurrentHashMap<>();
+    // Guarded by 'doctorShards'.
+    private long lastReload;
+
+    public ShardRouter(ShardMap shards, InetSocketAddress address) throws IOException {
+        this.shards = shards;
+        this.server = HospitalServer.createServer(address);
+        this.executor = HospitalServer.newRequestExecutor();
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT).executor(executor).build();
+        server.setExecutor(executor);
+        server.createContext("/patients", exchange -> handle(exchange, this::patients));
+        server.createContext("/doctors", exchange -> handle(exchange, this::doctors));
+        server.createContext("/appointments", exchange -> handle(exchange, this::appointments));
+        server.createContext("/slots", exchange -> handle(exchange, this::slots));
+        server.createContext("/reassignments", exchange -> handle(exchange, this::reassignments));
+    }
+
+    /**
+     * Learns which shard holds each doctor, then starts serving. Shards that cannot be
+     * reached yet are asked again the first time an unknown doctor is looked up.
+     */
+    public void start() {
+        reloadDoctors();
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to 'delaySeconds' for those in progress.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // --- Routes ---
+
+    private interface Route {
+        void serve(HttpExchange exchange, Map<String, String> params) throws IOException, ShardException;
+    }
+
+    private void patients(HttpExchange exchange, Map<String, String> params) throws IOException, ShardException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            relay(exchange, forward(0, exchange.getRequestMethod(), "/patients", params));
+            return;
+        }
+        List<HttpResponse<byte[]>> responses = fanOut("POST", "/patients", params);
+        // All alike (added everywhere, a duplicate everywhere, or bad parameters): pass that on.
+        // Added on some and already there on others repairs a registration that failed part-way.
+        HttpResponse<byte[]> added = null;
+        boolean alike = true;
+        for (HttpResponse<byte[]> r : responses) {
+            alike &= r.statusCode() == responses.get(0).statusCode();
+            if (r.statusCode() == 201 && added == null) {
+                added = r;
+            } else if (r.statusCode() != 201 && r.statusCode() != 409) {
+                added = null;
+                break;
+            }
+        }
+        if (alike) {
+            relay(exchange, responses.get(0));
+        } else if (added != null) {
+            relay(exchange, added);
+        } else {
+            HospitalServer.error(exchange, 502, "Registering the patient failed on some shards: " + statuses(responses));
+        }
+    }
+
+    private void doctors(HttpExchange exchange, Map<String, String> params) throws IOException, ShardException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            String name = HospitalServer.required(params, "name");
+            int shard = shards.shardFor(HospitalServer.required(params, "specialization"));
+            // Claimed before asking the shard, so two requests at once cannot add the name on two shards.
+            String key = doctorKey(name);
+            if (doctorShards.putIfAbsent(key, shard) != null) {
+                HospitalServer.error(exchange, 409, "A doctor named " + name + " already exists.");
+                return;
+            }
+            HttpResponse<byte[]> response;
+            try {
+                response = forward(shard, "POST", "/doctors", params);
+            } catch (ShardException e) {
+                doctorShards.remove(key, shard);
+                throw e;
+            }
+            if (response.statusCode() != 201) doctorShards.remove(key, shard);
+            relay(exchange, response);
+        } else if (params.containsKey("name")) {
+            forwardForDoctor(exchange, params.get("name"), "/doctors", params);
+        } else {
+            List<HttpResponse<byte[]>> responses = fanOut("GET", "/doctors", params);
+            if (relayFailure(exchange, responses)) return;
+            Writer out = HospitalServer.begin(exchange, 200);
+            out.write('[');
+            boolean first = true;
+            for (HttpResponse<byte[]> r : responses) {
+                for (String doctor : JsonReader.elements(body(r))) {
+                    if (!first) out.write(',');
+                    out.write(doctor);
+                    first = false;
+                }
+            }
+            out.write(']');
+            out.close();
+        }
+    }
+
+    private void appointments(HttpExchange exchange, Map<String, String> params) throws IOException, ShardException {
+        String method = exchange.getRequestMethod();
+        switch (method) {
+            case "POST":
+                forwardForDoctor(exchange, HospitalServer.required(params, "doctor"), "/appointments", params);
+                break;
+            case "DELETE":
+            case "PUT":
+                if (params.containsKey("id") || "PUT".equals(method)) {
+                    long id = Long.parseLong(HospitalServer.required(params, "id"));
+                    relay(exchange, forward(shards.shardForId(id), method, "/appointments", params));
+                } else {
+                    forwardForDoctor(exchange, HospitalServer.required(params, "doctor"), "/appointments", params);
+                }
+                break;
+            default: {
+                String doctor = params.get("doctor");
+                if (params.containsKey("patient") && doctor != null && !doctor.isBlank()) {
+                    forwardForDoctor(exchange, doctor, "/appointments", params);
+                } else {
+                    merge(exchange, fanOut("GET", "/appointments", params));
+                }
+            }
+        }
+    }
+
+    private void slots(HttpExchange exchange, Map<String, String> params) throws IOException, ShardException {
+        if (params.containsKey("doctor")) {
+            forwardForDoctor(exchange, params.get("doctor"), "/slots", params);
+        } else {
+            int shard = shards.shardFor(HospitalServer.required(params, "specialization"));
+            relay(exchange, forward(shard, "GET", "/slots", params));
+        }
+    }
+
+    private void reassignments(HttpExchange exchange, Map<String, String> params) throws IOException, ShardException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            throw new IllegalArgumentException("Use POST");
+        }
+        forwardForDoctor(exchange, HospitalServer.required(params, "doctor"), "/reassignments", params);
+    }
+
+    // --- Routing ---
+
+    private void forwardForDoctor(HttpExchange exchange, String doctorName, String path, Map<String, String> params)
+            throws IOException, ShardException {
+        Integer shard = doctorShards.get(doctorKey(doctorName));
+        if (shard == null) {
+            reloadDoctors();
+            shard = doctorShards.get(doctorKey(doctorName));
+        }
+        if (shard == null) {
+            HospitalServer.error(exchange, 404, "Doctor not found: " + doctorName);
+            return;
+        }
+        relay(exchange, forward(shard, exchange.getRequestMethod(), path, params));
+    }
+
+    // Asks every shard for its doctors; not more than once a second, so unknown names cannot flood the shards.
+    private void reloadDoctors() {
+        synchronized (doctorShards) {
+            long now = System.nanoTime();
+            if (lastReload != 0 && now - lastReload < RELOAD_INTERVAL_NANOS) return;
+            lastReload = now;
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try {
+                HttpResponse<byte[]> response = forward(shard, "GET", "/doctors", Map.of());
+                if (response.statusCode() != 200) {
+                    System.err.println("Shard " + shard + " would not list its doctors: " + body(response));
+                    continue;
+                }
+                for (String doctor : JsonReader.elements(body(response))) {
+                    doctorShards.put(doctorKey(JsonReader.string(doctor, "name")), shard);
+                }
+            } catch (ShardException e) {
+                System.err.println(e.getMessage());
+            }
+        }
+    }
+
+    private HttpResponse<byte[]> forward(int shard, String method, String path, Map<String, String> params) throws ShardException {
+        try {
+            return client.send(request(shard, method, path, params), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            throw new ShardException(shard, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShardException(shard, e);
+        }
+    }
+
+    // The same request to every shard at once; the responses in shard order.
+    private List<HttpResponse<byte[]>> fanOut(String method, String path, Map<String, String> params) throws ShardException {
+        List<CompletableFuture<HttpResponse<byte[]>>> pending = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            pending.add(client.sendAsync(request(shard, method, path, params), HttpResponse.BodyHandlers.ofByteArray()));
+        }
+        List<HttpResponse<byte[]>> responses = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try {
+                responses.add(pending.get(shard).join());
+            } catch (CompletionException e) {
+                throw new ShardException(shard, e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        return responses;
+    }
+
+    private HttpRequest request(int shard, String method, String path, Map<String, String> params) {
+        StringBuilder form = new StringBuilder();
+        for (Map.Entry<String, String> p : params.entrySet()) {
+            if (form.length() > 0) form.append('&');
+            form.append(URLEncoder.encode(p.getKey(), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(p.getValue(), StandardCharsets.UTF_8));
+        }
+        URI base = shards.get(shard);
+        if ("POST".equals(method)) {
+            return HttpRequest.newBuilder(base.resolve(path)).timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form.toString())).build();
+        }
+        URI uri = base.resolve(form.length() == 0 ? path : path + "?" + form);
+        return HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).method(method, HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    // Merges the shards' listings, each already in time order with the id breaking ties, into one.
+    private void merge(HttpExchange exchange, List<HttpResponse<byte[]>> responses) throws IOException {
+        if (relayFailure(exchange, responses)) return;
+        PriorityQueue<Listing> heads = new PriorityQueue<>();
+        for (HttpResponse<byte[]> r : responses) {
+            Listing listing = new Listing(JsonReader.elements(body(r)));
+            if (listing.advance()) heads.add(listing);
+        }
+        Writer out = HospitalServer.begin(exchange, 200);
+        out.write('[');
+        boolean first = true;
+        while (!heads.isEmpty()) {
+            Listing listing = heads.poll();
+            if (!first) out.write(',');
+            out.write(listing.current);
+            first = false;
+            if (listing.advance()) heads.add(listing);
+        }
+        out.write(']');
+        out.close();
+    }
+
+    /**
+     * One shard's appointments, read one at a time in the order it sent them.
+     */
+    private static final class Listing implements Comparable<Listing> {
+        private final List<String> appointments;
+        private int next;
+        String current;
+        private int epochMinute;
+        private long id;
+
+        Listing(List<String> appointments) {
+            this.appointments = appointments;
+        }
+
+        boolean advance() {
+            if (next == appointments.size()) return false;
+            current = appointments.get(next++);
+            epochMinute = Appointment.toEpochMinute(LocalDateTime.parse(JsonReader.string(current, "dateTime")));
+            id = JsonReader.number(current, "id");
+            return true;
+        }
+
+        @Override
+        public int compareTo(Listing other) {
+            int byTime = Integer.compare(epochMinute, other.epochMinute);
+            return byTime != 0 ? byTime : Long.compare(id, other.id);
+        }
+    }
+
+    // --- Plumbing ---
+
+    /**
+     * A shard could not be reached, or did not answer in time.
+     */
+    private static final class ShardException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        ShardException(int shard, Throwable cause) {
+            super("Shard " + shard + " unavailable: " + cause, cause);
+        }
+    }
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        try {
+            route.serve(exchange, HospitalServer.params(exchange));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // Also NumberFormatException.
+            HospitalServer.error(exchange, 400, e.getMessage());
+        } catch (ShardException e) {
+            System.err.println(e.getMessage());
+            HospitalServer.error(exchange, 502, e.getMessage());
+        } catch (IOException e) {
+            // The client went away; nothing to tell it.
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            HospitalServer.error(exchange, 500, "Unexpected error: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Passes a shard's answer on unchanged.
+    private static void relay(HttpExchange exchange, HttpResponse<byte[]> response) throws IOException {
+        byte[] body = response.body();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.statusCode(), body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // If a shard refused a fanned-out request, passes the first refusal on and returns true.
+    private static boolean relayFailure(HttpExchange exchange, List<HttpResponse<byte[]>> responses) throws IOException {
+        for (HttpResponse<byte[]> r : responses) {
+            if (r.statusCode() != 200) {
+                relay(exchange, r);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String statuses(List<HttpResponse<byte[]>> responses) {
+        StringBuilder s = new StringBuilder();
+        for (int shard = 0; shard < responses.size(); shard++) {
+            if (shard > 0) s.append(", ");
+            s.append("shard ").append(shard).append(' ').append(responses.get(shard).statusCode());
+        }
+        return s.toString();
+    }
+
+    private static String body(HttpResponse<byte[]> response) {
+        return new String(response.body(), StandardCharsets.UTF_8);
+    }
+
+    private static String doctorKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
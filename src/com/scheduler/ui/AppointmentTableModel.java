@@ -0,0 +1,208 @@
+package com.scheduler.ui;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.Metrics;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.HospitalListener;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Appointments table in date/time order. Holds only references to the Hospital's
+ * own Appointment objects plus each row's sort key; cells are formatted when the
+ * table asks for them, so only the visible rows are ever formatted.
+ *
+ * Each booking, move, cancellation or archive touches one row and fires the
+ * matching fine-grained event. Hospital changes appointments on other threads,
+ * so every event is applied on the EDT with the time it had when it happened;
+ * the rows are sorted by those recorded times, never by reading the live object.
+ * Changes are applied in batches (see EdtCoalescer); a batch too big to be worth
+ * per-row events is announced with a single fireTableDataChanged instead.
+ */
+class AppointmentTableModel extends AbstractTableModel implements HospitalListener {
+
+    private static final String[] COLUMNS = {"Patient", "Doctor", "Date/Time"};
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // Past this many changes in one batch, repainting the whole table is cheaper than per-row events.
+    private static final int BULK_CHANGES = 100;
+    // One coalesced batch of changes applied to the rows, and the JTable told about them.
+    private static final LatencyHistogram REFRESH_TIME = Metrics.timer("ui.appointmentTable.refresh");
+
+    private static final int SCHEDULED = 0, MOVED = 1, REMOVED = 2;
+
+    private final EdtCoalescer<Change> changes = new EdtCoalescer<>(this::apply);
+
+    // EDT only. Parallel arrays sorted by (minute, id).
+    private int[] minutes = new int[64];
+    private Appointment[] rows = new Appointment[64];
+    private int size;
+
+    AppointmentTableModel(Hospital hospital) {
+        // Listen first, so nothing is missed; anything seen twice is ignored by add/remove.
+        hospital.addListener(this);
+        for (Appointment a : hospital.getAllAppointments()) {
+            add(a, a.getEpochMinute(), false);
+        }
+    }
+
+    @Override
+    public int getRowCount() { return size; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        switch (column) {
+            case 0: return rows[row].getPatient().getName();
+            case 1: return rows[row].getDoctor().getName();
+            default: return FORMATTER.format(Appointment.fromEpochMinute(minutes[row]));
+        }
+    }
+
+    // --- HospitalListener: called on the thread that made the change ---
+
+    @Override
+    public void appointmentScheduled(Appointment appointment) {
+        int minute = appointment.getEpochMinute();
+        changes.post(new Change(SCHEDULED, appointment, minute, minute));
+    }
+
+    @Override
+    public void appointmentMoved(Appointment appointment, LocalDateTime previousDateTime) {
+        changes.post(new Change(MOVED, appointment, Appointment.toEpochMinute(previousDateTime), appointment.getEpochMinute()));
+    }
+
+    @Override
+    public void appointmentCanceled(Appointment appointment) {
+        int minute = appointment.getEpochMinute();
+        changes.post(new Change(REMOVED, appointment, minute, minute));
+    }
+
+    // Archived appointments leave the live schedule, so they leave the table too.
+    @Override
+    public void appointmentArchived(Appointment appointment) {
+        appointmentCanceled(appointment);
+    }
+
+    // --- Row maintenance, EDT only ---
+
+    private void apply(List<Change> batch) {
+        long start = REFRESH_TIME.start();
+        boolean notify = batch.size() <= BULK_CHANGES;
+        for (Change c : batch) {
+            switch (c.kind) {
+                case SCHEDULED: add(c.appointment, c.to, notify); break;
+                case MOVED: move(c.appointment, c.from, c.to, notify); break;
+                default: remove(c.appointment, c.from, notify);
+            }
+        }
+        if (!notify) fireTableDataChanged();
+        REFRESH_TIME.stop(start);
+    }
+
+    private void add(Appointment appointment, int minute, boolean notify) {
+        int row = lowerBound(minute, appointment.getId());
+        if (row < size && rows[row] == appointment) return;
+        insertRow(row, appointment, minute);
+        if (notify) fireTableRowsInserted(row, row);
+    }
+
+    private void remove(Appointment appointment, int minute, boolean notify) {
+        int row = indexOf(appointment, minute);
+        if (row < 0) return;
+        removeRow(row);
+        if (notify) fireTableRowsDeleted(row, row);
+    }
+
+    private void move(Appointment appointment, int from, int to, boolean notify) {
+        int row = indexOf(appointment, from);
+        if (row < 0) {
+            // The model's initial read ran mid-move and missed it, so this is its first sighting.
+            add(appointment, to, notify);
+            return;
+        }
+        removeRow(row);
+        int newRow = lowerBound(to, appointment.getId());
+        if (newRow < size && rows[newRow] == appointment) {
+            // Also listed under the new time already (read while being moved); drop the stale row.
+            if (notify) fireTableRowsDeleted(row, row);
+            return;
+        }
+        insertRow(newRow, appointment, to);
+        if (!notify) {
+            return;
+        } else if (newRow == row) {
+            fireTableRowsUpdated(row, row);
+        } else {
+            fireTableRowsDeleted(row, row);
+            fireTableRowsInserted(newRow, newRow);
+        }
+    }
+
+    private void insertRow(int row, Appointment appointment, int minute) {
+        if (size == rows.length) {
+            minutes = Arrays.copyOf(minutes, size * 2);
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        System.arraycopy(minutes, row, minutes, row + 1, size - row);
+        System.arraycopy(rows, row, rows, row + 1, size - row);
+        minutes[row] = minute;
+        rows[row] = appointment;
+        size++;
+    }
+
+    private void removeRow(int row) {
+        size--;
+        System.arraycopy(minutes, row + 1, minutes, row, size - row);
+        System.arraycopy(rows, row + 1, rows, row, size - row);
+        rows[size] = null;
+    }
+
+    private int indexOf(Appointment appointment, int minute) {
+        int row = lowerBound(minute, appointment.getId());
+        if (row < size && rows[row] == appointment) return row;
+        // The model was built while the appointment was being moved, so it sits under its newer time.
+        for (int i = 0; i < size; i++) {
+            if (rows[i] == appointment) return i;
+        }
+        return -1;
+    }
+
+    // First row that sorts at or after (minute, id).
+    private int lowerBound(int minute, long id) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minutes[mid] < minute || (minutes[mid] == minute && rows[mid].getId() < id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // One HospitalListener event, with the times it carried when it happened.
+    private static final class Change {
+        final int kind;
+        final Appointment appointment;
+        final int from;
+        final int to;
+
+        Change(int kind, Appointment appointment, int from, int to) {
+            this.kind = kind;
+            this.appointment = appointment;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
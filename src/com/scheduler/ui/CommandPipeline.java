@@ -0,0 +1,57 @@
+package com.scheduler.ui;
+
+import javax.swing.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs the UI's Hospital operations and file I/O on one background thread, so a
+ * slow operation never stalls repainting. Commands run one at a time in the order
+ * they were submitted (the order of the clicks), and each result is handed back
+ * to the EDT through a SwingWorker.
+ */
+class CommandPipeline {
+
+    /**
+     * One unit of background work; may throw, e.g. AppointmentException.
+     */
+    interface Command<T> {
+        T run() throws Exception;
+    }
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hospital-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Queues a command. Exactly one of onDone or onError is then called on the EDT.
+     */
+    <T> void submit(Command<T> command, Consumer<T> onDone, Consumer<Exception> onError) {
+        writer.execute(new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return command.run();
+            }
+
+            @Override
+            protected void done() {
+                T result;
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    onError.accept(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                    return;
+                } catch (InterruptedException e) {
+                    onError.accept(e);
+                    return;
+                }
+                onDone.accept(result);
+            }
+        });
+    }
+}
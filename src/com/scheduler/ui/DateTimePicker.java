@@ -5,6 +5,9 @@ import java.awt.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,9 +24,16 @@ public class DateTimePicker {
     private Optional<LocalDateTime> selectedDateTime = Optional.empty();
 
     public DateTimePicker(JFrame parent) {
+        this(parent, Collections.emptyList());
+    }
+
+    /**
+     * Also offers the given free slots (see Hospital.findFreeSlots); picking one fills in the date and time.
+     */
+    public DateTimePicker(JFrame parent, List<LocalDateTime> freeSlots) {
         dialog = new JDialog(parent, "Select Date and Time", true);
         dialog.setLayout(new BorderLayout());
-        dialog.setSize(400, 150);
+        dialog.setSize(400, freeSlots.isEmpty() ? 150 : 190);
 
         // Populate combos
         int currentYear = Year.now().getValue();
@@ -64,6 +74,22 @@ public class DateTimePicker {
         dialog.add(pickerPanel, BorderLayout.CENTER);
         dialog.add(buttonPanel, BorderLayout.SOUTH);
 
+        if (!freeSlots.isEmpty()) {
+            JComboBox<String> slotCombo = new JComboBox<>();
+            slotCombo.addItem("Choose...");
+            for (LocalDateTime slot : freeSlots) {
+                slotCombo.addItem(slot.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+            }
+            slotCombo.addActionListener(e -> {
+                int index = slotCombo.getSelectedIndex();
+                if (index > 0) show(freeSlots.get(index - 1));
+            });
+            JPanel slotPanel = new JPanel(new FlowLayout());
+            slotPanel.add(new JLabel("Next free slots:"));
+            slotPanel.add(slotCombo);
+            dialog.add(slotPanel, BorderLayout.NORTH);
+        }
+
         okButton.addActionListener(e -> {
             try {
                 int year = (int) yearCombo.getSelectedItem();
@@ -93,6 +119,15 @@ public class DateTimePicker {
         }
     }
 
+    // Sets the combos to this date and time (the year only if it is one the combo offers).
+    private void show(LocalDateTime dateTime) {
+        yearCombo.setSelectedItem(dateTime.getYear());
+        monthCombo.setSelectedIndex(dateTime.getMonthValue() - 1);
+        dayCombo.setSelectedItem(dateTime.getDayOfMonth());
+        hourCombo.setSelectedItem(dateTime.getHour());
+        minuteCombo.setSelectedItem(dateTime.getMinute());
+    }
+
     public Optional<LocalDateTime> selectDateTime() {
         dialog.setVisible(true);
         return selectedDateTime;
@@ -0,0 +1,71 @@
+package com.scheduler.ui;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.Metrics;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.HospitalListener;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Doctors table, read straight from the Hospital's registry the same way as
+ * PatientTableModel: row i is the doctor with registry number i.
+ */
+class DoctorTableModel extends AbstractTableModel implements HospitalListener {
+
+    private static final String[] COLUMNS = {"Name", "Specialization", "Available"};
+    private static final LatencyHistogram REFRESH_TIME = Metrics.timer("ui.doctorTable.refresh");
+
+    private final Hospital hospital;
+    private final EdtCoalescer<Integer> added = new EdtCoalescer<>(this::showAdded);
+    // EDT only.
+    private int rows;
+
+    DoctorTableModel(Hospital hospital) {
+        this.hospital = hospital;
+        hospital.addListener(this);
+        rows = hospital.getDoctorCount();
+    }
+
+    @Override
+    public int getRowCount() { return rows; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Doctor d = hospital.getDoctor(row);
+        switch (column) {
+            case 0: return d.getName();
+            case 1: return d.getSpecialization();
+            default: return d.isAvailable() ? "Yes" : "No";
+        }
+    }
+
+    // Runs on the thread that added the doctor; the row appears once the EDT gets to it.
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        added.post(doctor.getId());
+    }
+
+    // A burst of registrations becomes one fireTableRowsInserted for the whole range.
+    private void showAdded(List<Integer> ids) {
+        int last = rows - 1;
+        for (int id : ids) {
+            last = Math.max(last, id);
+        }
+        // Rows already counted if they were added while this model was being built.
+        if (last < rows) return;
+        long start = REFRESH_TIME.start();
+        int first = rows;
+        rows = last + 1;
+        fireTableRowsInserted(first, last);
+        REFRESH_TIME.stop(start);
+    }
+}
@@ -0,0 +1,46 @@
+package com.scheduler.ui;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Collects changes posted from any thread and applies them on the EDT in batches:
+ * however many arrive before the EDT gets round to them, they cost one
+ * invokeLater and are applied together, so Swing repaints once for the lot.
+ */
+final class EdtCoalescer<T> {
+
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Consumer<List<T>> apply;
+
+    /**
+     * @param apply called on the EDT with the changes in the order they were posted
+     */
+    EdtCoalescer(Consumer<List<T>> apply) {
+        this.apply = apply;
+    }
+
+    void post(T change) {
+        pending.add(change);
+        if (scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::drain);
+        }
+    }
+
+    private void drain() {
+        // Cleared before polling, so a change posted from here on schedules the next drain.
+        scheduled.set(false);
+        List<T> batch = new ArrayList<>();
+        for (T change; (change = pending.poll()) != null; ) {
+            batch.add(change);
+        }
+        if (!batch.isEmpty()) {
+            apply.accept(batch);
+        }
+    }
+}
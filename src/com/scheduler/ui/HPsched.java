@@ -6,16 +6,23 @@ import com.scheduler.model.Doctor;
 import com.scheduler.model.Hospital;
 import com.scheduler.model.Patient;
 import com.scheduler.util.DataManager;
+import com.scheduler.util.HospitalAnalytics;
 
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 
 /**
  * Main JFrame for the Hospital Appointment Scheduler application.
@@ -23,20 +30,43 @@ import javax.swing.table.DefaultTableModel;
  */
 public class HPsched extends JFrame {
 
+    // How many of a doctor's next free slots the date picker offers.
+    private static final int FREE_SLOTS_OFFERED = 8;
+    // How many names the typeahead on the name fields offers.
+    private static final int NAMES_OFFERED = 8;
+    // The reassignment dialog's suggested number of days: a week off sick.
+    private static final String REASSIGN_DAYS = "7";
+
     // Core data management
     private final Hospital hospital;
-
-    // UI Components
-    private DefaultTableModel patientTableModel;
-    private DefaultTableModel doctorTableModel;
-    private DefaultTableModel appointmentTableModel;
+    // Every Hospital operation and all file I/O run here, off the EDT.
+    private final CommandPipeline commands = new CommandPipeline();
+    // Report figures, kept up to date as the hospital changes.
+    private final HospitalAnalytics analytics;
+    // Typeahead searches; separate from 'commands' so they never wait behind a booking or a save.
+    private final ExecutorService nameSearches = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "name-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // UI Components. The table models follow the Hospital's changes themselves, row by row.
+    private PatientTableModel patientTableModel;
+    private DoctorTableModel doctorTableModel;
+    private AppointmentTableModel appointmentTableModel;
 
     public HPsched(Hospital hospital) {
         this.hospital = hospital;
+        this.analytics = new HospitalAnalytics(hospital);
+        // The first search sorts every name loaded from disk; get that done before anyone types.
+        nameSearches.execute(() -> {
+            hospital.searchPatients("", 0);
+            hospital.searchDoctors("", 0);
+        });
 
         setTitle("Hospital Appointment Scheduler");
         setSize(800, 600);
-        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Will be handled by WindowListener
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE); // Handled by the WindowListener below
         setLocationRelativeTo(null);
 
         JTabbedPane tabbedPane = new JTabbedPane();
@@ -46,28 +76,31 @@ public class HPsched extends JFrame {
 
         add(tabbedPane);
 
-        // Add a WindowListener to save data on exit
+        // Add a WindowListener to flush data on exit (changes are journaled as they happen).
+        // The flush is queued behind any command still running, so nothing clicked before closing is lost.
         addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                DataManager.saveData(hospital);
-                System.out.println("Data saved. Exiting.");
-                System.exit(0);
+                setVisible(false);
+                commands.submit(() -> {
+                    DataManager.close(hospital);
+                    return null;
+                }, done -> {
+                    System.out.println("Data saved. Exiting.");
+                    System.exit(0);
+                }, ex -> {
+                    ex.printStackTrace();
+                    System.exit(1);
+                });
             }
         });
-
-        // Initial table refresh on load
-        refreshPatientTable();
-        refreshDoctorTable();
-        refreshAppointmentTable();
     }
 
     private JPanel createPatientPanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        String[] patientColumns = {"Name", "Age", "Gender", "Health Issue", "Emergency"};
-        patientTableModel = new DefaultTableModel(patientColumns, 0);
+        patientTableModel = new PatientTableModel(hospital);
         JTable patientTable = new JTable(patientTableModel);
         panel.add(new JScrollPane(patientTable), BorderLayout.CENTER);
 
@@ -103,13 +136,18 @@ public class HPsched extends JFrame {
                     JOptionPane.showMessageDialog(this, "All fields must be filled out.", "Input Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
-                hospital.addPatient(new Patient(name, age, gender, issue, isEmergency));
-                refreshPatientTable();
-                nameField.setText("");
-                ageField.setText("");
-                genderField.setText("");
-                issueField.setText("");
-                emergencyBox.setSelected(false);
+                Patient patient = new Patient(name, age, gender, issue, isEmergency);
+                commands.submit(() -> hospital.addPatient(patient), added -> {
+                    if (!added) {
+                        JOptionPane.showMessageDialog(this, "A patient named " + name + " already exists.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    nameField.setText("");
+                    ageField.setText("");
+                    genderField.setText("");
+                    issueField.setText("");
+                    emergencyBox.setSelected(false);
+                }, this::showError);
             } catch (NumberFormatException ex) {
                 // Catches the exception from Integer.parseInt()
                 JOptionPane.showMessageDialog(this, "Please enter a valid age.", "Input Error", JOptionPane.ERROR_MESSAGE);
@@ -122,15 +160,15 @@ public class HPsched extends JFrame {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        String[] doctorColumns = {"Name", "Specialization", "Available"};
-        doctorTableModel = new DefaultTableModel(doctorColumns, 0);
+        doctorTableModel = new DoctorTableModel(hospital);
         JTable doctorTable = new JTable(doctorTableModel);
         panel.add(new JScrollPane(doctorTable), BorderLayout.CENTER);
 
-        JPanel formPanel = new JPanel(new GridLayout(3, 2, 5, 5));
+        JPanel formPanel = new JPanel(new GridLayout(4, 2, 5, 5));
         JTextField nameField = new JTextField();
         JTextField specField = new JTextField();
         JButton addButton = new JButton("Add Doctor");
+        JButton reassignButton = new JButton("Reassign Appointments...");
 
         formPanel.add(new JLabel("Name:"));
         formPanel.add(nameField);
@@ -138,6 +176,8 @@ public class HPsched extends JFrame {
         formPanel.add(specField);
         formPanel.add(new JLabel());
         formPanel.add(addButton);
+        formPanel.add(new JLabel("Selected doctor:"));
+        formPanel.add(reassignButton);
 
         panel.add(formPanel, BorderLayout.SOUTH);
 
@@ -148,10 +188,39 @@ public class HPsched extends JFrame {
                 JOptionPane.showMessageDialog(this, "All fields must be filled out.", "Input Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            hospital.addDoctor(new Doctor(name, spec));
-            refreshDoctorTable();
-            nameField.setText("");
-            specField.setText("");
+            Doctor doctor = new Doctor(name, spec);
+            commands.submit(() -> hospital.addDoctor(doctor), added -> {
+                if (!added) {
+                    JOptionPane.showMessageDialog(this, "A doctor named " + name + " already exists.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                nameField.setText("");
+                specField.setText("");
+            }, this::showError);
+        });
+
+        // For a doctor calling in sick: hand their coming appointments to colleagues with the same specialization.
+        reassignButton.addActionListener(e -> {
+            int row = doctorTable.getSelectedRow();
+            if (row < 0) {
+                JOptionPane.showMessageDialog(this, "Select a doctor in the table first.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            String doctorName = hospital.getDoctor(doctorTable.convertRowIndexToModel(row)).getName();
+            String input = JOptionPane.showInputDialog(this, "Reassign Dr. " + doctorName
+                    + "'s appointments for how many days from now?", REASSIGN_DAYS);
+            if (input == null) return;
+            int days;
+            try {
+                days = Integer.parseInt(input.trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "Please enter a number of days.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            commands.submit(() -> hospital.reassignAppointments(doctorName, now, now.plusDays(days)),
+                    report -> JOptionPane.showMessageDialog(this, report.getMessage(), "Reassign Appointments",
+                            JOptionPane.INFORMATION_MESSAGE), this::showError);
         });
         return panel;
     }
@@ -160,8 +229,7 @@ public class HPsched extends JFrame {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        String[] apptColumns = {"Patient", "Doctor", "Date/Time"};
-        appointmentTableModel = new DefaultTableModel(apptColumns, 0);
+        appointmentTableModel = new AppointmentTableModel(hospital);
         JTable appointmentTable = new JTable(appointmentTableModel);
         panel.add(new JScrollPane(appointmentTable), BorderLayout.CENTER);
 
@@ -215,105 +283,117 @@ public class HPsched extends JFrame {
 
         panel.add(formsPanel, BorderLayout.SOUTH);
 
+        for (JTextField field : new JTextField[] {patientNameField, cancelPatientField}) {
+            NameAutocomplete.attach(field, query -> hospital.searchPatients(query, NAMES_OFFERED).stream()
+                    .map(Patient::getName).collect(Collectors.toList()), nameSearches);
+        }
+        for (JTextField field : new JTextField[] {doctorNameField, cancelDoctorField}) {
+            NameAutocomplete.attach(field, query -> hospital.searchDoctors(query, NAMES_OFFERED).stream()
+                    .map(Doctor::getName).collect(Collectors.toList()), nameSearches);
+        }
+
         // --- Action Listeners ---
         final AtomicReference<LocalDateTime> selectedDateTime = new AtomicReference<>();
         selectDateButton.addActionListener(e -> {
-            DateTimePicker picker = new DateTimePicker(this);
-            Optional<LocalDateTime> result = picker.selectDateTime();
-            result.ifPresent(ldt -> {
-                selectedDateTime.set(ldt);
-                dateTimeField.setText(ldt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
-            });
+            String doctorName = doctorNameField.getText();
+            if (doctorName.isEmpty()) {
+                pickDateTime(Collections.emptyList(), selectedDateTime, dateTimeField);
+                return;
+            }
+            // With a doctor named, look up their next free slots first so the picker can offer them.
+            commands.submit(() -> hospital.findFreeSlots(doctorName, LocalDateTime.now(), FREE_SLOTS_OFFERED), slots -> {
+                List<LocalDateTime> times = new ArrayList<>();
+                slots.forEach(slot -> times.add(slot.getDateTime()));
+                pickDateTime(times, selectedDateTime, dateTimeField);
+            }, this::showError);
         });
 
         scheduleButton.addActionListener(e -> {
-            try {
-                String patientName = patientNameField.getText();
-                String doctorName = doctorNameField.getText();
-                LocalDateTime dateTime = selectedDateTime.get();
-
-                if (dateTime == null) {
-                    JOptionPane.showMessageDialog(this, "Please select a valid date and time.", "Input Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+            String patientName = patientNameField.getText();
+            String doctorName = doctorNameField.getText();
+            LocalDateTime dateTime = selectedDateTime.get();
 
-                // This method now throws AppointmentException
-                String result = hospital.scheduleAppointment(patientName, doctorName, dateTime);
+            if (dateTime == null) {
+                JOptionPane.showMessageDialog(this, "Please select a valid date and time.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
 
+            // scheduleAppointment throws AppointmentException, which arrives in showError
+            commands.submit(() -> hospital.scheduleAppointment(patientName, doctorName, dateTime), result -> {
                 JOptionPane.showMessageDialog(this, result);
-                refreshAppointmentTable();
                 patientNameField.setText("");
                 doctorNameField.setText("");
                 dateTimeField.setText("Please select a date and time");
                 selectedDateTime.set(null);
-
-            } catch (AppointmentException ex) {
-                // Catch the custom exception
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Scheduling Error", JOptionPane.ERROR_MESSAGE);
-            }
+            }, this::showError);
         });
 
         cancelButton.addActionListener(e -> {
-            String result = hospital.cancelAppointment(cancelPatientField.getText(), cancelDoctorField.getText());
-            JOptionPane.showMessageDialog(this, result);
-            refreshAppointmentTable();
-            cancelPatientField.setText("");
-            cancelDoctorField.setText("");
+            String patientName = cancelPatientField.getText();
+            String doctorName = cancelDoctorField.getText();
+            // If the patient has several appointments with the doctor, ask which one rather than guess.
+            commands.submit(() -> hospital.findAppointments(patientName, doctorName), candidates -> {
+                if (candidates.isEmpty()) {
+                    JOptionPane.showMessageDialog(this, "Could not find the specified appointment to cancel.");
+                    return;
+                }
+                Object chosen = candidates.get(0);
+                if (candidates.size() > 1) {
+                    chosen = JOptionPane.showInputDialog(this, "Which appointment should be canceled?", "Cancel Appointment",
+                            JOptionPane.QUESTION_MESSAGE, null, candidates.toArray(), candidates.get(0));
+                    if (chosen == null) return;
+                }
+                long id = ((Appointment) chosen).getId();
+                commands.submit(() -> hospital.cancelAppointment(id), canceled -> {
+                    JOptionPane.showMessageDialog(this, canceled ? "Successfully canceled the appointment."
+                            : "Could not find the specified appointment to cancel.");
+                    cancelPatientField.setText("");
+                    cancelDoctorField.setText("");
+                }, this::showError);
+            }, this::showError);
         });
 
         // --- Multithreading (Module 4.1) Action Listener ---
+        // The report is built on the background pipeline and shown back on the EDT.
+        // It reads the analytics' running counts for the coming week, so it costs the same however many appointments there are.
         reportButton.addActionListener(e -> {
             reportButton.setEnabled(false);
             reportButton.setText("Generating...");
-
-            // Create a new thread to run the "long" task
-            new Thread(() -> {
-                try {
-                    // Simulate a long task (e.g., 3 seconds)
-                    Thread.sleep(3000);
-
-                    int patientCount = hospital.getAllPatients().size();
-                    int apptCount = hospital.getAllAppointments().size();
-                    String report = "Report Generated:\n- Total Patients: " + patientCount + "\n- Total Appointments: " + apptCount;
-
-                    // When done, update the GUI *back on the EDT*
-                    SwingUtilities.invokeLater(() -> {
-                        JOptionPane.showMessageDialog(this, report, "System Report", JOptionPane.INFORMATION_MESSAGE);
-                        reportButton.setEnabled(true);
-                        reportButton.setText("Generate Report");
-                    });
-                } catch (InterruptedException ex) {
-                    // Handle thread interruption
-                    SwingUtilities.invokeLater(() -> {
-                        reportButton.setEnabled(true);
-                        reportButton.setText("Generate Report");
-                    });
-                }
-            }).start(); // Start the new thread
+            commands.submit(() -> "Report Generated:\n- Total Patients: " + hospital.getPatientCount()
+                    + "\n- Total Doctors: " + hospital.getDoctorCount()
+                    + "\n- Total Appointments: " + hospital.getAppointmentCount()
+                    + "\n- Emergency bumps this session: " + analytics.getBumpCount()
+                    + "\n\n" + analytics.report(LocalDate.now(), LocalDate.now().plusDays(7)), report -> {
+                JOptionPane.showMessageDialog(this, report, "System Report", JOptionPane.INFORMATION_MESSAGE);
+                reportButton.setEnabled(true);
+                reportButton.setText("Generate Report");
+            }, ex -> {
+                reportButton.setEnabled(true);
+                reportButton.setText("Generate Report");
+                showError(ex);
+            });
         });
 
         return panel;
     }
 
-    private void refreshPatientTable() {
-        patientTableModel.setRowCount(0);
-        for (Patient p : hospital.getAllPatients()) {
-            patientTableModel.addRow(new Object[]{p.getName(), p.getAge(), p.getGender(), p.getHealthIssue(), p.isEmergency() ? "Yes" : "No"});
-        }
-    }
-
-    private void refreshDoctorTable() {
-        doctorTableModel.setRowCount(0);
-        for (Doctor d : hospital.getAllDoctors()) {
-            doctorTableModel.addRow(new Object[]{d.getName(), d.getSpecialization(), d.isAvailable() ? "Yes" : "No"});
-        }
+    private void pickDateTime(List<LocalDateTime> freeSlots, AtomicReference<LocalDateTime> selectedDateTime, JTextField dateTimeField) {
+        DateTimePicker picker = new DateTimePicker(this, freeSlots);
+        Optional<LocalDateTime> result = picker.selectDateTime();
+        result.ifPresent(ldt -> {
+            selectedDateTime.set(ldt);
+            dateTimeField.setText(ldt.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+        });
     }
 
-    private void refreshAppointmentTable() {
-        appointmentTableModel.setRowCount(0);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        for (Appointment a : hospital.getAllAppointments()) {
-            appointmentTableModel.addRow(new Object[]{a.getPatient().getName(), a.getDoctor().getName(), a.getAppointmentDateTime().format(formatter)});
+    // Failure callback for background commands; runs on the EDT.
+    private void showError(Exception ex) {
+        if (ex instanceof AppointmentException) {
+            // Catch the custom exception
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Scheduling Error", JOptionPane.ERROR_MESSAGE);
+        } else {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Unexpected error: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package com.scheduler.ui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Suggests registered names in a popup under a text field as the user types.
+ * Typing restarts a short timer, so a burst of keystrokes costs one search; the
+ * search runs on 'executor', and its answer is dropped if the text has changed
+ * since. Up/Down move through the list, Enter or a click takes a name, Escape
+ * closes it. The field still accepts any text; this only saves retyping.
+ */
+class NameAutocomplete {
+
+    private static final int DEBOUNCE_MILLIS = 150;
+
+    private final JTextField field;
+    private final Function<String, List<String>> search;
+    private final Executor executor;
+
+    private final DefaultListModel<String> suggestions = new DefaultListModel<>();
+    private final JList<String> list = new JList<>(suggestions);
+    private final JPopupMenu popup = new JPopupMenu();
+    private final Timer debounce;
+    // Bumped on every edit; a search answer for an older one is stale. EDT only.
+    private int edits;
+    // Set while this class writes the field itself, so that does not trigger a search.
+    private boolean choosing;
+
+    /**
+     * 'search' maps what was typed to the names to offer, best first; it is called off the EDT.
+     */
+    static void attach(JTextField field, Function<String, List<String>> search, Executor executor) {
+        new NameAutocomplete(field, search, executor);
+    }
+
+    private NameAutocomplete(JTextField field, Function<String, List<String>> search, Executor executor) {
+        this.field = field;
+        this.search = search;
+        this.executor = executor;
+
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setFocusable(false);
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+
+        debounce = new Timer(DEBOUNCE_MILLIS, e -> lookUp());
+        debounce.setRepeats(false);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { edited(); }
+            @Override public void removeUpdate(DocumentEvent e) { edited(); }
+            @Override public void changedUpdate(DocumentEvent e) {}
+        });
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) return;
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN: move(1); e.consume(); break;
+                    case KeyEvent.VK_UP: move(-1); e.consume(); break;
+                    case KeyEvent.VK_ENTER:
+                        if (list.getSelectedValue() != null) {
+                            choose(list.getSelectedValue());
+                            e.consume();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE: popup.setVisible(false); e.consume(); break;
+                    default:
+                }
+            }
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                debounce.stop();
+                popup.setVisible(false);
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (row >= 0) choose(suggestions.get(row));
+            }
+        });
+    }
+
+    private void edited() {
+        if (choosing) return;
+        edits++;
+        debounce.restart();
+    }
+
+    private void lookUp() {
+        String text = field.getText();
+        if (text.isBlank()) {
+            popup.setVisible(false);
+            return;
+        }
+        int asked = edits;
+        executor.execute(new SwingWorker<List<String>, Void>() {
+            @Override
+            protected List<String> doInBackground() {
+                return search.apply(text);
+            }
+
+            @Override
+            protected void done() {
+                if (asked != edits || !field.isShowing()) return;
+                try {
+                    show(get());
+                } catch (ExecutionException e) {
+                    // Only a convenience: a failed lookup just offers nothing, and the field still works as typed.
+                    popup.setVisible(false);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    private void show(List<String> names) {
+        suggestions.clear();
+        names.forEach(suggestions::addElement);
+        // Nothing to add if the only suggestion is what is already there.
+        if (names.isEmpty() || (names.size() == 1 && names.get(0).equalsIgnoreCase(field.getText().trim()))) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setVisibleRowCount(Math.min(names.size(), 8));
+        list.clearSelection();
+        popup.setPopupSize(field.getWidth(), popup.getPreferredSize().height);
+        popup.show(field, 0, field.getHeight());
+    }
+
+    private void move(int by) {
+        int row = Math.max(0, Math.min(suggestions.size() - 1, list.getSelectedIndex() + by));
+        list.setSelectedIndex(row);
+        list.ensureIndexIsVisible(row);
+    }
+
+    private void choose(String name) {
+        choosing = true;
+        try {
+            field.setText(name);
+        } finally {
+            choosing = false;
+        }
+        edits++;
+        popup.setVisible(false);
+    }
+}
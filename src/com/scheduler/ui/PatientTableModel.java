@@ -0,0 +1,74 @@
+package com.scheduler.ui;
+
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.Metrics;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.HospitalListener;
+import com.scheduler.model.Patient;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Patients table, read straight from the Hospital's registry: row i is the
+ * patient with registry number i. The only state kept here is the row count,
+ * and a new patient is one fireTableRowsInserted, not a rebuild of the table.
+ */
+class PatientTableModel extends AbstractTableModel implements HospitalListener {
+
+    private static final String[] COLUMNS = {"Name", "Age", "Gender", "Health Issue", "Emergency"};
+    private static final LatencyHistogram REFRESH_TIME = Metrics.timer("ui.patientTable.refresh");
+
+    private final Hospital hospital;
+    private final EdtCoalescer<Integer> added = new EdtCoalescer<>(this::showAdded);
+    // EDT only.
+    private int rows;
+
+    PatientTableModel(Hospital hospital) {
+        this.hospital = hospital;
+        hospital.addListener(this);
+        rows = hospital.getPatientCount();
+    }
+
+    @Override
+    public int getRowCount() { return rows; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Patient p = hospital.getPatient(row);
+        switch (column) {
+            case 0: return p.getName();
+            case 1: return p.getAge();
+            case 2: return p.getGender();
+            case 3: return p.getHealthIssue();
+            default: return p.isEmergency() ? "Yes" : "No";
+        }
+    }
+
+    // Runs on the thread that added the patient; the row appears once the EDT gets to it.
+    @Override
+    public void patientAdded(Patient patient) {
+        added.post(patient.getId());
+    }
+
+    // A burst of registrations becomes one fireTableRowsInserted for the whole range.
+    private void showAdded(List<Integer> ids) {
+        int last = rows - 1;
+        for (int id : ids) {
+            last = Math.max(last, id);
+        }
+        // Rows already counted if they were added while this model was being built.
+        if (last < rows) return;
+        long start = REFRESH_TIME.start();
+        int first = rows;
+        rows = last + 1;
+        fireTableRowsInserted(first, last);
+        REFRESH_TIME.stop(start);
+    }
+}
@@ -0,0 +1,276 @@
+package com.scheduler.util;
+
+import com.scheduler.model.AppointmentHistory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Past appointments in a memory-mapped file (hospital.archive), so they stay off
+ * the heap and opening the archive costs the same however many years it holds.
+ * Lookups binary-search the mapped records and only touch the pages they need.
+ *
+ * Layout: a 16-byte header (int magic "HARC", int version, int coveredUntil,
+ * int unused) followed by fixed-width records of long id, int patient id,
+ * int doctor id, int epoch minute, sorted by (epoch minute, id).
+ * Appending writes the records first and then moves coveredUntil in the header,
+ * so records past coveredUntil are the remains of an interrupted append and are
+ * cut off when the file is opened.
+ *
+ * This is the recent tier of a TieredArchive, which moves each finished month out
+ * into a compressed segment file and then drops it from here (dropBefore).
+ */
+public class AppointmentArchive implements AppointmentHistory, Closeable {
+
+    static final int MAGIC = 0x48415243; // "HARC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int RECORD_BYTES = 8 + 4 + 4 + 4;
+
+    private static final int COVERED_UNTIL_OFFSET = 8;
+
+    /**
+     * The mapped records and how many there are, replaced as one on every change,
+     * so a reader that takes it once sees a consistent file even if records are
+     * dropped from the front meanwhile.
+     */
+    private static final class Records {
+        final MappedByteBuffer map;
+        final int count;
+
+        Records(MappedByteBuffer map, int count) {
+            this.map = map;
+            this.count = count;
+        }
+    }
+
+    private final Path path;
+    // Replaced when records are dropped; guarded by 'this'.
+    private FileChannel channel;
+    private volatile Records records;
+    private volatile int coveredUntil;
+
+    public static AppointmentArchive open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new AppointmentArchive(path, channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private AppointmentArchive(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(Integer.MIN_VALUE).putInt(0).flip();
+            write(header, 0);
+            channel.force(true);
+        }
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Archive larger than 2 GB is not supported");
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException("Not an appointment archive");
+        }
+        int version = header.getInt();
+        if (version != VERSION) throw new IOException("Unsupported archive version " + version);
+        coveredUntil = header.getInt();
+
+        int n = (int) ((channel.size() - HEADER_BYTES) / RECORD_BYTES);
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + (long) n * RECORD_BYTES);
+        // Drop a half-finished append: anything at or after coveredUntil was never committed.
+        int committed = lowerBound(map, n, coveredUntil, Long.MIN_VALUE);
+        if (committed < n || channel.size() != HEADER_BYTES + (long) n * RECORD_BYTES) {
+            channel.truncate(HEADER_BYTES + (long) committed * RECORD_BYTES);
+            channel.force(true);
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + (long) committed * RECORD_BYTES);
+        }
+        records = new Records(map, committed);
+    }
+
+    @Override
+    public int coveredUntil() {
+        return coveredUntil;
+    }
+
+    @Override
+    public int size() {
+        return records.count;
+    }
+
+    @Override
+    public boolean contains(long id, int epochMinute) {
+        Records r = records;
+        int n = r.count;
+        MappedByteBuffer m = r.map;
+        for (int i = lowerBound(m, n, epochMinute, Long.MIN_VALUE); i < n && minute(m, i) == epochMinute; i++) {
+            if (id(m, i) == id) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isBooked(int doctorId, int epochMinute) {
+        Records r = records;
+        int n = r.count;
+        MappedByteBuffer m = r.map;
+        for (int i = lowerBound(m, n, epochMinute, Long.MIN_VALUE); i < n && minute(m, i) == epochMinute; i++) {
+            if (doctor(m, i) == doctorId) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void forEachBetween(int fromMinute, int toMinute, RecordVisitor visitor) {
+        Records r = records;
+        int n = r.count;
+        MappedByteBuffer m = r.map;
+        for (int i = lowerBound(m, n, fromMinute, Long.MIN_VALUE); i < n && minute(m, i) < toMinute; i++) {
+            visitor.visit(id(m, i), patient(m, i), doctor(m, i), minute(m, i));
+        }
+    }
+
+    @Override
+    public synchronized void append(long[] ids, int[] patientIds, int[] doctorIds, int[] epochMinutes, int n, int until) throws IOException {
+        if (until < coveredUntil) throw new IllegalArgumentException("Archive already covers up to " + coveredUntil);
+        int count = records.count;
+        long end = HEADER_BYTES + (long) count * RECORD_BYTES;
+        if (end + (long) n * RECORD_BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Archive larger than 2 GB is not supported");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(1, Math.min(n, 8192)) * RECORD_BYTES);
+        long position = end;
+        for (int i = 0; i < n; i++) {
+            if (epochMinutes[i] < coveredUntil || epochMinutes[i] >= until) {
+                throw new IllegalArgumentException("Record " + ids[i] + " is outside the archive window");
+            }
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                position += write(buffer, position);
+                buffer.clear();
+            }
+            buffer.putLong(ids[i]).putInt(patientIds[i]).putInt(doctorIds[i]).putInt(epochMinutes[i]);
+        }
+        buffer.flip();
+        write(buffer, position);
+        channel.force(false);
+
+        // The commit point: once coveredUntil moves, the new records count.
+        ByteBuffer header = ByteBuffer.allocate(4).putInt(until);
+        header.flip();
+        write(header, COVERED_UNTIL_OFFSET);
+        channel.force(false);
+
+        records = new Records(channel.map(FileChannel.MapMode.READ_ONLY, 0, end + (long) n * RECORD_BYTES), count + n);
+        coveredUntil = until;
+    }
+
+    /**
+     * The first record at or after 'epochMinute', as an index for {@link #get}.
+     */
+    public int indexOf(int epochMinute) {
+        Records r = records;
+        return lowerBound(r.map, r.count, epochMinute, Long.MIN_VALUE);
+    }
+
+    /**
+     * Copies out records 'from' (inclusive) to 'to' (exclusive), in time order.
+     */
+    public void get(int from, int to, long[] ids, int[] patientIds, int[] doctorIds, int[] epochMinutes) {
+        MappedByteBuffer m = records.map;
+        for (int i = from; i < to; i++) {
+            ids[i - from] = id(m, i);
+            patientIds[i - from] = patient(m, i);
+            doctorIds[i - from] = doctor(m, i);
+            epochMinutes[i - from] = minute(m, i);
+        }
+    }
+
+    /**
+     * Removes every record before 'epochMinute', once a TieredArchive has them in a
+     * segment; coveredUntil stays. The rest are copied to a new file that then
+     * replaces this one, so a crash leaves either the old file or the new one.
+     */
+    public synchronized void dropBefore(int epochMinute) throws IOException {
+        Records r = records;
+        int first = lowerBound(r.map, r.count, epochMinute, Long.MIN_VALUE);
+        if (first == 0) return;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel copy = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(coveredUntil).putInt(0).flip();
+            writeFully(copy, header, 0);
+            ByteBuffer rest = r.map.duplicate();
+            rest.position(offset(first)).limit(offset(r.count));
+            writeFully(copy, rest, HEADER_BYTES);
+            copy.force(true);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            copy.close();
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        // Mappings of the old file stay valid after it is closed, so readers holding one finish undisturbed.
+        channel.close();
+        channel = copy;
+        int n = r.count - first;
+        records = new Records(channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES + (long) n * RECORD_BYTES), n);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private int write(ByteBuffer buffer, long position) throws IOException {
+        return writeFully(channel, buffer, position);
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    // First record that sorts at or after (epochMinute, id).
+    private static int lowerBound(MappedByteBuffer m, int n, int epochMinute, long id) {
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int minute = minute(m, mid);
+            if (minute < epochMinute || (minute == epochMinute && id(m, mid) < id)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int offset(int index) {
+        return HEADER_BYTES + index * RECORD_BYTES;
+    }
+
+    private static long id(MappedByteBuffer m, int i) { return m.getLong(offset(i)); }
+    private static int patient(MappedByteBuffer m, int i) { return m.getInt(offset(i) + 8); }
+    private static int doctor(MappedByteBuffer m, int i) { return m.getInt(offset(i) + 12); }
+    private static int minute(MappedByteBuffer m, int i) { return m.getInt(offset(i) + 16); }
+}
@@ -0,0 +1,380 @@
+package com.scheduler.util;
+
+import com.scheduler.model.AppointmentHistory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One time window (a calendar month, for TieredArchive) of archived appointments
+ * in an immutable, compressed file. Written once, then memory-mapped; opening one
+ * reads only its header, and a query inflates only the blocks its range touches.
+ *
+ * Layout: a 40-byte header (int magic "HSEG", int version, int fromMinute,
+ * int untilMinute, int record count, int block count, int patient count,
+ * int doctor count, int dictionary bytes, int CRC32 of everything after the header),
+ * then the dictionaries: the distinct patient ids, then the distinct doctor ids,
+ * each ascending and written as variable-length gaps; then a block index of
+ * (int first minute, int offset, int length, int inflated length) per block; then
+ * the blocks. A block is up to BLOCK_RECORDS records, sorted by (minute, id), each
+ * written as the minutes since the record before it, the change in id (zig-zag),
+ * and the patient's and doctor's positions in the dictionaries, all variable-length,
+ * and the whole block deflated. That comes to some 4 to 6 bytes a record, against
+ * 20 in AppointmentArchive.
+ */
+final class ArchiveSegment {
+
+    static final int MAGIC = 0x48534547; // "HSEG"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 40;
+    static final int INDEX_ENTRY_BYTES = 16;
+    static final int BLOCK_RECORDS = 512;
+
+    private final Path path;
+    private final MappedByteBuffer map;
+    private final int fromMinute;
+    private final int untilMinute;
+    private final int count;
+    private final int blocks;
+    private final int indexOffset;
+    // Read on first use, so opening years of segments reads only their headers.
+    private volatile Dictionaries dictionaries;
+    // contains and isBooked come one slot at a time, often several to a block, so each
+    // thread keeps one decoder for them, and with it the block it decoded last.
+    private static final ThreadLocal<Block> PROBE = ThreadLocal.withInitial(Block::new);
+
+    /**
+     * The dictionaries, or empty ones (and an error already reported) if the file is damaged.
+     */
+    private static final class Dictionaries {
+        final int[] patients;
+        final int[] doctors;
+        final boolean damaged;
+
+        Dictionaries(int[] patients, int[] doctors, boolean damaged) {
+            this.patients = patients;
+            this.doctors = doctors;
+            this.damaged = damaged;
+        }
+    }
+
+    private ArchiveSegment(Path path, MappedByteBuffer map) throws IOException {
+        this.path = path;
+        this.map = map;
+        if (map.capacity() < HEADER_BYTES || map.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not an archive segment");
+        }
+        if (map.getInt(4) != VERSION) throw new IOException("Unsupported archive segment version " + map.getInt(4));
+        fromMinute = map.getInt(8);
+        untilMinute = map.getInt(12);
+        count = map.getInt(16);
+        blocks = map.getInt(20);
+        indexOffset = HEADER_BYTES + map.getInt(32);
+        if (indexOffset + (long) blocks * INDEX_ENTRY_BYTES > map.capacity()) {
+            throw new IOException(path + " is cut short");
+        }
+    }
+
+    static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException(path + " is larger than 2 GB");
+            // The mapping outlives the channel.
+            return new ArchiveSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes records 0 to n - 1, sorted by (minute, id) and all within [fromMinute, untilMinute),
+     * as a new segment at 'path'. Written under a temporary name and then renamed, so
+     * the segment appears whole or not at all.
+     */
+    static void write(Path path, int fromMinute, int untilMinute, long[] ids, int[] patientIds, int[] doctorIds,
+                      int[] minutes, int n) throws IOException {
+        int[] patients = distinct(patientIds, n);
+        int[] doctors = distinct(doctorIds, n);
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        writeGaps(dictionary, patients);
+        writeGaps(dictionary, doctors);
+
+        int blockCount = (n + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        int blocksOffset = HEADER_BYTES + dictionary.size() + blockCount * INDEX_ENTRY_BYTES;
+        ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_BYTES);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        byte[] chunk = new byte[8192];
+        try {
+            for (int b = 0; b < blockCount; b++) {
+                int first = b * BLOCK_RECORDS, end = Math.min(n, first + BLOCK_RECORDS);
+                raw.reset();
+                int lastMinute = minutes[first];
+                long lastId = 0;
+                for (int i = first; i < end; i++) {
+                    if (minutes[i] < fromMinute || minutes[i] >= untilMinute || minutes[i] < lastMinute) {
+                        throw new IllegalArgumentException("Record " + ids[i] + " is out of order or outside the segment");
+                    }
+                    writeVarLong(raw, minutes[i] - lastMinute);
+                    writeVarLong(raw, (ids[i] - lastId) << 1 ^ (ids[i] - lastId) >> 63);
+                    writeVarLong(raw, Arrays.binarySearch(patients, patientIds[i]));
+                    writeVarLong(raw, Arrays.binarySearch(doctors, doctorIds[i]));
+                    lastMinute = minutes[i];
+                    lastId = ids[i];
+                }
+                int offset = blocksOffset + compressed.size();
+                deflater.reset();
+                deflater.setInput(raw.toByteArray());
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(chunk, 0, deflater.deflate(chunk));
+                }
+                index.putInt(minutes[first]).putInt(offset).putInt(blocksOffset + compressed.size() - offset).putInt(raw.size());
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(dictionary.size() + index.capacity() + compressed.size());
+        dictionary.writeTo(body);
+        body.write(index.array());
+        compressed.writeTo(body);
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(fromMinute).putInt(untilMinute).putInt(n).putInt(blockCount)
+                .putInt(patients.length).putInt(doctors.length).putInt(dictionary.size()).putInt((int) crc.getValue());
+        header.flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer data = ByteBuffer.wrap(bodyBytes);
+            long position = 0;
+            while (header.hasRemaining()) position += channel.write(header, position);
+            while (data.hasRemaining()) position += channel.write(data, position);
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    int fromMinute() {
+        return fromMinute;
+    }
+
+    int untilMinute() {
+        return untilMinute;
+    }
+
+    int size() {
+        return count;
+    }
+
+    long bytes() {
+        return map.capacity();
+    }
+
+    boolean contains(long id, int epochMinute) {
+        Block block = PROBE.get();
+        for (int b = firstBlock(epochMinute); b < blocks && blockMinute(b) <= epochMinute; b++) {
+            for (int i = 0, n = block.read(this, b); i < n && block.minutes[i] <= epochMinute; i++) {
+                if (block.minutes[i] == epochMinute && block.ids[i] == id) return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isBooked(int doctorId, int epochMinute) {
+        Block block = PROBE.get();
+        for (int b = firstBlock(epochMinute); b < blocks && blockMinute(b) <= epochMinute; b++) {
+            for (int i = 0, n = block.read(this, b); i < n && block.minutes[i] <= epochMinute; i++) {
+                if (block.minutes[i] == epochMinute && block.doctors[i] == doctorId) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visits records from 'from' (inclusive) to 'to' (exclusive) in time order.
+     */
+    void forEachBetween(int from, int to, AppointmentHistory.RecordVisitor visitor) {
+        if (to <= fromMinute || from >= untilMinute) return;
+        try (Block block = new Block()) {
+            for (int b = firstBlock(from); b < blocks && blockMinute(b) < to; b++) {
+                for (int i = 0, n = block.read(this, b); i < n && block.minutes[i] < to; i++) {
+                    if (block.minutes[i] >= from) {
+                        visitor.visit(block.ids[i], block.patients[i], block.doctors[i], block.minutes[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    // The block that may hold the first record at or after 'epochMinute': the one before
+    // the first block starting at or after it, since that one may run on past the minute.
+    private int firstBlock(int epochMinute) {
+        int lo = 0, hi = blocks;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blockMinute(mid) < epochMinute) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return Math.max(0, lo - 1);
+    }
+
+    private int blockMinute(int block) {
+        return map.getInt(indexOffset + block * INDEX_ENTRY_BYTES);
+    }
+
+    /**
+     * One block's records, decoded; reused from block to block within a query, so a
+     * query sets up one Inflater and one set of arrays however many blocks it reads.
+     * Remembers which block it holds, so reading the same one again costs nothing.
+     */
+    private static final class Block implements AutoCloseable {
+        final long[] ids = new long[BLOCK_RECORDS];
+        final int[] patients = new int[BLOCK_RECORDS];
+        final int[] doctors = new int[BLOCK_RECORDS];
+        final int[] minutes = new int[BLOCK_RECORDS];
+        private final Inflater inflater = new Inflater();
+        private byte[] raw = new byte[0];
+        private ArchiveSegment segment;
+        private int block = -1;
+        private int size;
+
+        // Decodes block 'b' of 's' and returns how many records it holds (none if the file is damaged).
+        int read(ArchiveSegment s, int b) {
+            if (s == segment && b == block) return size;
+            segment = null; // until this block is decoded
+            size = decode(s, b);
+            segment = s;
+            block = b;
+            return size;
+        }
+
+        private int decode(ArchiveSegment s, int b) {
+            Dictionaries d = s.dictionaries();
+            if (d.damaged) return 0;
+            int entry = s.indexOffset + b * INDEX_ENTRY_BYTES;
+            int minute = s.map.getInt(entry);
+            int offset = s.map.getInt(entry + 4);
+            int length = s.map.getInt(entry + 12);
+            if (raw.length < length) raw = new byte[length];
+            ByteBuffer deflated = s.map.duplicate();
+            deflated.position(offset).limit(offset + s.map.getInt(entry + 8));
+            inflater.reset();
+            inflater.setInput(deflated);
+            try {
+                if (inflater.inflate(raw, 0, length) != length) throw new DataFormatException("block " + b + " is short");
+            } catch (DataFormatException e) {
+                System.err.println("Damaged archive segment " + s.path + ": " + e.getMessage());
+                return 0;
+            }
+            int[] position = {0};
+            long id = 0;
+            int n = 0;
+            while (position[0] < length) {
+                minute += (int) readVarLong(raw, position);
+                long zigzag = readVarLong(raw, position);
+                id += zigzag >>> 1 ^ -(zigzag & 1);
+                ids[n] = id;
+                minutes[n] = minute;
+                patients[n] = d.patients[(int) readVarLong(raw, position)];
+                doctors[n] = d.doctors[(int) readVarLong(raw, position)];
+                n++;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+    }
+
+    // Checks the CRC and reads the dictionaries, the first time the segment is used.
+    private Dictionaries dictionaries() {
+        Dictionaries d = dictionaries;
+        if (d != null) return d;
+        synchronized (this) {
+            if (dictionaries != null) return dictionaries;
+            byte[] body = new byte[map.capacity() - HEADER_BYTES];
+            map.slice().position(HEADER_BYTES).get(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != map.getInt(36)) {
+                System.err.println("Damaged archive segment " + path + " (checksum mismatch); its "
+                        + count + " appointments cannot be read");
+                d = new Dictionaries(new int[0], new int[0], true);
+            } else {
+                int[] position = {0};
+                d = new Dictionaries(readGaps(body, position, map.getInt(24)), readGaps(body, position, map.getInt(28)), false);
+            }
+            dictionaries = d;
+            return d;
+        }
+    }
+
+    private static int[] distinct(int[] values, int n) {
+        int[] sorted = Arrays.copyOf(values, n);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (unique == 0 || sorted[i] != sorted[unique - 1]) sorted[unique++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+
+    // Ascending values as the gap from the one before (the first from -1, so every gap is positive).
+    private static void writeGaps(ByteArrayOutputStream out, int[] ascending) {
+        long last = -1;
+        for (int value : ascending) {
+            writeVarLong(out, value - last);
+            last = value;
+        }
+    }
+
+    private static int[] readGaps(byte[] in, int[] position, int n) {
+        int[] values = new int[n];
+        long last = -1;
+        for (int i = 0; i < n; i++) {
+            last += readVarLong(in, position);
+            values[i] = (int) last;
+        }
+        return values;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] in, int[] position) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+    }
+}
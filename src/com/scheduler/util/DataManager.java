@@ -1,44 +1,369 @@
 package com.scheduler.util;
 
+import com.scheduler.metrics.LatencyHistogram;
+import com.scheduler.metrics.Metrics;
 import com.scheduler.model.Hospital;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Manages saving and loading of hospital data.
  * Demonstrates File I/O (Module 3.2).
+ *
+ * Data is kept as a snapshot (hospital.dat) plus a journal of every change made
+ * since (hospital.journal). Each change costs one small journal append; the
+ * snapshot is rewritten in the background once the journal gets large.
+ * Snapshots use the binary HospitalSnapshot format; a hospital.dat written with
+ * Java serialization by an older version is converted on first load, and the
+ * original is kept as hospital.dat.legacy.
+ * Appointments from before today are moved out of the snapshot into the
+ * TieredArchive whenever a snapshot is taken, so startup only reads the upcoming
+ * ones: first into the memory-mapped hospital.archive, and once a month is over,
+ * into its own compressed segment under hospital.segments.
+ *
+ * If the journal could not be opened, a background thread saves a snapshot on its
+ * own instead, once changes stop coming in for a moment (and at least every
+ * AUTOSAVE_MAX_DELAY_SECONDS while they keep coming), so little is lost. With a
+ * journal every change reaches the disk within one group commit (see Journal), so
+ * that thread only compacts. The last
+ * SNAPSHOT_GENERATIONS snapshots are kept as hospital.dat.1 (newest) and up;
+ * if hospital.dat cannot be read, loading falls back to the newest readable one.
  */
 public class DataManager {
 
     private static final String FILENAME = "hospital.dat";
+    private static final Path SNAPSHOT = Paths.get(FILENAME);
+    private static final Path SNAPSHOT_TEMP = Paths.get(FILENAME + ".tmp");
+    private static final Path LEGACY_BACKUP = Paths.get(FILENAME + ".legacy");
+    // Where an unreadable hospital.dat is moved when loading falls back to an older generation.
+    private static final Path CORRUPT_BACKUP = Paths.get(FILENAME + ".corrupt");
+    private static final int SNAPSHOT_GENERATIONS = 3;
+    private static final Path JOURNAL = Paths.get("hospital.journal");
+    // The journal as it was when the last snapshot started; deleted once that snapshot is on disk.
+    private static final Path JOURNAL_ARCHIVE = Paths.get("hospital.journal.1");
+    private static final Path APPOINTMENT_ARCHIVE = Paths.get("hospital.archive");
+    private static final Path ARCHIVE_SEGMENTS = Paths.get("hospital.segments");
+
+    // Rewrite the snapshot once the journal grows past this size.
+    private static final long COMPACT_THRESHOLD_BYTES = 8L * 1024 * 1024;
+    private static final long COMPACT_CHECK_SECONDS = 30;
+    // Autosave once no change has come in for this long, or at the latest this long after the first unsaved one.
+    private static final long AUTOSAVE_QUIET_SECONDS = 2;
+    private static final long AUTOSAVE_MAX_DELAY_SECONDS = 30;
+    private static final long AUTOSAVE_CHECK_MILLIS = 500;
+
+    private static final LatencyHistogram SAVE_TIME = Metrics.timer("persistence.saveData");
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("persistence.loadData");
+
+    private static Journal journal;
+    private static TieredArchive archive;
+    private static ScheduledExecutorService saver;
+    // Hospital.getChangeCount() as of the last snapshot taken.
+    private static long savedChangeCount;
 
     /**
      * Saves the entire Hospital object to a file.
+     * When a journal is open this also compacts it: changes made from here on
+     * go to a fresh journal, and the old one is dropped once the snapshot is written.
      */
-    public static void saveData(Hospital hospital) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILENAME))) {
-            oos.writeObject(hospital);
+    public static synchronized void saveData(Hospital hospital) {
+        long start = SAVE_TIME.start();
+        try {
+            if (journal != null) {
+                journal.rotate(JOURNAL_ARCHIVE);
+            }
+            if (hospital.getHistory() == archive && archive != null) {
+                hospital.archiveAppointmentsBefore(archiveCutoff());
+            }
+            // Read first: anything changed while the snapshot is written counts as unsaved.
+            long changes = hospital.getChangeCount();
+            writeSnapshot(hospital);
+            savedChangeCount = changes;
+            Files.deleteIfExists(JOURNAL_ARCHIVE);
         } catch (IOException e) {
             System.err.println("Error saving data: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            SAVE_TIME.stop(start);
         }
     }
 
     /**
-     * Loads the Hospital object from a file.
+     * Loads the Hospital object from a file and replays the journal on top of it.
      * If no file exists, returns a new Hospital object.
+     * From then on every change to the returned Hospital is journaled.
+     */
+    public static synchronized Hospital loadData() {
+        return loadData(hospital -> { });
+    }
+
+    /**
+     * Same as {@link #loadData()}, handing the loaded Hospital to 'setup' before the
+     * background thread starts, so nothing else is archiving or saving it yet: the
+     * place for settings that must be in force before anything touches it.
+     */
+    public static synchronized Hospital loadData(Consumer<Hospital> setup) {
+        long start = LOAD_TIME.start();
+        boolean legacy = isLegacySnapshot(SNAPSHOT);
+        Hospital hospital = readSnapshot(SNAPSHOT, legacy);
+        boolean recovered = false;
+        if (hospital == null) {
+            legacy = false;
+            hospital = readOlderGeneration();
+            recovered = hospital != null;
+            if (hospital == null) {
+                hospital = new Hospital();
+            }
+        }
+        stopSaver();
+        closeArchive();
+        try {
+            // Attach the archive before replaying, so records already archived are not revived.
+            archive = TieredArchive.open(APPOINTMENT_ARCHIVE, ARCHIVE_SEGMENTS);
+            hospital.setHistory(archive);
+        } catch (IOException e) {
+            System.err.println("Error opening appointment archive, past appointments stay in memory: " + e.getMessage());
+        }
+        try {
+            stopJournal();
+            boolean interrupted = Files.exists(JOURNAL_ARCHIVE);
+            if (interrupted) {
+                // A snapshot did not finish last time; its journal still holds the changes.
+                Journal.replay(JOURNAL_ARCHIVE, hospital);
+            }
+            journal = Journal.open(JOURNAL, hospital);
+            if (legacy) {
+                Files.copy(SNAPSHOT, LEGACY_BACKUP, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (interrupted || legacy || recovered) {
+                writeSnapshot(hospital);
+                Files.deleteIfExists(JOURNAL_ARCHIVE);
+            }
+            hospital.addListener(journal);
+        } catch (IOException e) {
+            System.err.println("Error opening journal, changes will only be saved by autosave and on exit: " + e.getMessage());
+            journal = null;
+        }
+        setup.accept(hospital);
+        savedChangeCount = hospital.getChangeCount();
+        startSaver(hospital);
+        LOAD_TIME.stop(start);
+        return hospital;
+    }
+
+    /**
+     * Makes sure every change is on disk before the program exits.
+     * With a journal this is just a flush; without one it saves a full snapshot.
      */
-    public static Hospital loadData() {
-        File dataFile = new File(FILENAME);
+    public static synchronized void close(Hospital hospital) {
+        stopSaver();
+        if (journal == null) {
+            saveData(hospital);
+        } else {
+            try {
+                stopJournal();
+            } catch (IOException e) {
+                System.err.println("Error flushing journal, saving a snapshot instead: " + e.getMessage());
+                journal = null;
+                saveData(hospital);
+            }
+        }
+        closeArchive();
+    }
+
+    private static boolean isLegacySnapshot(Path path) {
+        try {
+            return Files.exists(path) && !HospitalSnapshot.isSnapshot(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Null if there is no file or it cannot be read.
+     */
+    private static Hospital readSnapshot(Path path, boolean legacy) {
+        File dataFile = path.toFile();
         if (dataFile.exists()) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILENAME))) {
-                return (Hospital) ois.readObject();
+            try {
+                if (!legacy) {
+                    return HospitalSnapshot.read(path);
+                }
+                // Written with Java serialization by an older version.
+                try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)))) {
+                    return (Hospital) ois.readObject();
+                }
             } catch (FileNotFoundException e) {
                 // Should not happen due to dataFile.exists() check, but good practice
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error loading data, creating new file: " + e.getMessage());
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                System.err.println("Error loading " + path + ": " + e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * hospital.dat is missing or unreadable: moves it aside and loads the newest
+     * generation that reads. The journal is still replayed on top, but whatever was
+     * saved only in the lost snapshot is gone. Null if no generation can be read.
+     */
+    private static Hospital readOlderGeneration() {
+        for (int g = 1; g <= SNAPSHOT_GENERATIONS; g++) {
+            Path older = generation(g);
+            // Generations are only ever written by writeSnapshot, but the first may be a converted legacy file.
+            Hospital hospital = readSnapshot(older, isLegacySnapshot(older));
+            if (hospital != null) {
+                System.err.println("Error loading " + FILENAME + ", recovered from " + older
+                        + "; changes saved after it may be lost.");
+                try {
+                    if (Files.exists(SNAPSHOT)) {
+                        Files.move(SNAPSHOT, CORRUPT_BACKUP, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error moving aside " + FILENAME + ": " + e.getMessage());
+                }
+                return hospital;
+            }
+        }
+        if (Files.exists(SNAPSHOT)) {
+            System.err.println("Error loading data, creating new file.");
+        }
+        return null;
+    }
+
+    /**
+     * Writes to a temp file first and moves it into place, so a crash mid-write never
+     * leaves a half-written hospital.dat. The snapshot it replaces becomes hospital.dat.1;
+     * it is linked there before the move, so hospital.dat itself is never missing.
+     */
+    private static void writeSnapshot(Hospital hospital) throws IOException {
+        HospitalSnapshot.write(hospital, SNAPSHOT_TEMP);
+        if (Files.exists(SNAPSHOT)) {
+            Files.deleteIfExists(generation(SNAPSHOT_GENERATIONS));
+            for (int g = SNAPSHOT_GENERATIONS - 1; g >= 1; g--) {
+                if (Files.exists(generation(g))) {
+                    Files.move(generation(g), generation(g + 1), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            try {
+                Files.createLink(generation(1), SNAPSHOT);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(SNAPSHOT, generation(1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(SNAPSHOT_TEMP, SNAPSHOT, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path generation(int g) {
+        return Paths.get(FILENAME + "." + g);
+    }
+
+    private static void startSaver(Hospital hospital) {
+        saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "autosave");
+            t.setDaemon(true);
+            return t;
+        });
+        saver.scheduleWithFixedDelay(new Saver(hospital), 0, AUTOSAVE_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void stopSaver() {
+        if (saver != null) {
+            saver.shutdownNow();
+            saver = null;
+        }
+    }
+
+    // Appointments before today are history.
+    private static LocalDateTime archiveCutoff() {
+        return LocalDate.now().atStartOfDay();
+    }
+
+    private static void stopJournal() throws IOException {
+        if (journal != null) {
+            Journal closing = journal;
+            journal = null;
+            closing.close();
+        }
+    }
+
+    private static void closeArchive() {
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                System.err.println("Error closing appointment archive: " + e.getMessage());
+            }
+            archive = null;
+        }
+    }
+
+    /**
+     * Compacts the journal, or autosaves when there is none, on the "autosave" thread.
+     * Every AUTOSAVE_CHECK_MILLIS it compares the hospital's change count with the last
+     * one it saw, so a burst of changes ends up in a single snapshot.
+     */
+    private static final class Saver implements Runnable {
+
+        private final Hospital hospital;
+        private long lastSeen;
+        private long lastChangeAt = System.nanoTime();
+        // When the oldest unsaved change was first seen; -1 when there is none.
+        private long dirtySince = -1;
+        // Checked straight away, so history from before today is archived soon after startup.
+        private long lastCompactCheck = System.nanoTime() - TimeUnit.SECONDS.toNanos(COMPACT_CHECK_SECONDS);
+
+        Saver(Hospital hospital) {
+            this.hospital = hospital;
+            this.lastSeen = hospital.getChangeCount();
+        }
+
+        @Override
+        public void run() {
+            long now = System.nanoTime();
+            long changes = hospital.getChangeCount();
+            long saved;
+            Journal current;
+            synchronized (DataManager.class) {
+                saved = savedChangeCount;
+                current = journal;
+            }
+            if (changes != lastSeen) {
+                lastSeen = changes;
+                lastChangeAt = now;
+            }
+            if (changes == saved) {
+                dirtySince = -1;
+            } else if (dirtySince < 0) {
+                dirtySince = now;
+            }
+            // A journaled change is already safe; rewriting the snapshot for it would only cost a full save.
+            boolean autosave = current == null && dirtySince >= 0
+                    && (now - lastChangeAt >= TimeUnit.SECONDS.toNanos(AUTOSAVE_QUIET_SECONDS)
+                    || now - dirtySince >= TimeUnit.SECONDS.toNanos(AUTOSAVE_MAX_DELAY_SECONDS));
+            boolean compact = false;
+            if (now - lastCompactCheck >= TimeUnit.SECONDS.toNanos(COMPACT_CHECK_SECONDS)) {
+                lastCompactCheck = now;
+                compact = current != null && (current.size() > COMPACT_THRESHOLD_BYTES
+                        || hospital.hasAppointmentsToArchive(archiveCutoff()));
+            }
+            if (autosave || compact) {
+                synchronized (DataManager.class) {
+                    // Stopped (by close or another load) while waiting for the lock: this hospital is no longer ours to save.
+                    if (Thread.currentThread().isInterrupted()) return;
+                    saveData(hospital);
+                }
+                dirtySince = -1;
             }
         }
-        // If file not found or is corrupt, return a new hospital
-        return new Hospital();
     }
-}
\ No newline at end of file
+}
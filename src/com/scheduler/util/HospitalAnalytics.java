@@ -0,0 +1,397 @@
+package com.scheduler.util;
+
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.HospitalListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.scheduler.util.HospitalReport.SLOTS_PER_DAY;
+import static com.scheduler.util.HospitalReport.SLOT_MINUTES;
+
+/**
+ * Keeps report figures up to date as the Hospital changes, so reading them never
+ * walks the appointments. Each (doctor, day) cell holds its appointment, emergency
+ * and bump counts plus a bitmap of the day's used slots; a report for a range of
+ * days only reads those cells, so its cost depends on doctors and days, not on how
+ * many appointments there are.
+ *
+ * Covers the live schedule: canceled and archived appointments leave the counts.
+ * Past ranges that include the archive are computed on demand by {@link #recompute}.
+ *
+ * Thread-safe. Callbacks arrive under the doctor's schedule lock, and each doctor's
+ * cells have a lock of their own, so bookings for different doctors do not contend here either.
+ */
+public class HospitalAnalytics implements HospitalListener {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    // Below this many appointments a recompute task counts them itself instead of splitting.
+    private static final int RECOMPUTE_CHUNK = 16_384;
+
+    private final Hospital hospital;
+    // Indexed by Doctor.getId(); grown in doctorAdded (under Hospital's doctors lock) and republished as a whole.
+    private volatile DoctorStats[] stats = new DoctorStats[16];
+    private final AtomicInteger emergencies = new AtomicInteger();
+    private final AtomicInteger bumps = new AtomicInteger();
+
+    /**
+     * Counts the hospital's current appointments in parallel and then follows its changes.
+     * Bookings wait while it counts (see Hospital.addListener(HospitalListener, Runnable)),
+     * so nothing that changes meanwhile is missed or counted twice.
+     */
+    public HospitalAnalytics(Hospital hospital) {
+        this.hospital = hospital;
+        hospital.addListener(this, () -> {
+            for (Doctor doctor : hospital.getAllDoctors()) {
+                doctorAdded(doctor);
+            }
+            hospital.getAllAppointments().parallelStream().forEach(this::appointmentScheduled);
+        });
+    }
+
+    // --- O(1) reads ---
+
+    public int getAppointments(Doctor doctor, LocalDate day) {
+        DoctorStats s = statsOf(doctor.getId());
+        synchronized (s) {
+            DayStats d = s.get(day.toEpochDay());
+            return d == null ? 0 : d.appointments;
+        }
+    }
+
+    public int getFreeSlots(Doctor doctor, LocalDate day) {
+        DoctorStats s = statsOf(doctor.getId());
+        synchronized (s) {
+            DayStats d = s.get(day.toEpochDay());
+            return SLOTS_PER_DAY - (d == null ? 0 : d.usedSlots());
+        }
+    }
+
+    /**
+     * Share of all live appointments that are for emergency patients, from 0 to 1.
+     */
+    public double getEmergencyShare() {
+        int total = hospital.getAppointmentCount();
+        return total == 0 ? 0 : (double) emergencies.get() / total;
+    }
+
+    /**
+     * Appointments moved by an emergency since this was created.
+     */
+    public int getBumpCount() { return bumps.get(); }
+
+    /**
+     * Report for one day of the live schedule.
+     */
+    public HospitalReport report(LocalDate day) {
+        return report(day, day.plusDays(1));
+    }
+
+    /**
+     * Report for the days from 'from' (inclusive) to 'to' (exclusive) of the live schedule.
+     * O(doctors x days); the appointments themselves are never read.
+     */
+    public HospitalReport report(LocalDate from, LocalDate to) {
+        int days = dayCount(from, to);
+        Doctor[] doctors = doctorsById();
+        int[][] appointments = new int[doctors.length][days];
+        int[][] usedSlots = new int[doctors.length][days];
+        int emergencyCount = 0, bumpCount = 0;
+        for (int id = 0; id < doctors.length; id++) {
+            if (doctors[id] == null) continue;
+            DoctorStats s = statsOf(id);
+            synchronized (s) {
+                for (int d = 0; d < days; d++) {
+                    DayStats day = s.get(from.toEpochDay() + d);
+                    if (day == null) continue;
+                    appointments[id][d] = day.appointments;
+                    usedSlots[id][d] = day.usedSlots();
+                    emergencyCount += day.emergencies;
+                    bumpCount += day.bumps;
+                }
+            }
+        }
+        return new HospitalReport(from, days, doctors, appointments, usedSlots, emergencyCount, bumpCount);
+    }
+
+    /**
+     * Builds the same report from the appointments themselves, archived ones included,
+     * for ranges the live counts do not cover. The range is split across the common
+     * fork-join pool and the partial counts merged; bumps are not stored, so there are none.
+     */
+    public static HospitalReport recompute(Hospital hospital, LocalDate from, LocalDate to) {
+        int days = dayCount(from, to);
+        Doctor[] doctors = doctorsById(hospital);
+        List<Appointment> range = hospital.getAppointmentsBetween(from.atStartOfDay(), to.atStartOfDay());
+        int chunk = Math.max(RECOMPUTE_CHUNK, range.size() / (4 * ForkJoinPool.getCommonPoolParallelism()) + 1);
+        Tally tally = ForkJoinPool.commonPool().invoke(
+                new RecomputeTask(range, 0, range.size(), chunk, doctors.length, days, from.toEpochDay()));
+
+        int[][] appointments = new int[doctors.length][days];
+        int[][] usedSlots = new int[doctors.length][days];
+        for (int id = 0; id < doctors.length; id++) {
+            for (int d = 0; d < days; d++) {
+                int cell = id * days + d;
+                appointments[id][d] = tally.appointments[cell];
+                usedSlots[id][d] = Long.bitCount(tally.slots[2 * cell]) + Long.bitCount(tally.slots[2 * cell + 1]);
+            }
+        }
+        return new HospitalReport(from, days, doctors, appointments, usedSlots, tally.emergencies, 0);
+    }
+
+    // --- HospitalListener ---
+
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        DoctorStats[] current = stats;
+        int id = doctor.getId();
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, id + 1));
+        }
+        // Legacy duplicate names share an id, and so share one set of counts.
+        if (current[id] == null) current[id] = new DoctorStats();
+        stats = current;
+    }
+
+    @Override
+    public void appointmentScheduled(Appointment appointment) {
+        boolean emergency = appointment.getPatient().isEmergency();
+        count(appointment.getDoctor(), appointment.getEpochMinute(), emergency, 1);
+        if (emergency) emergencies.incrementAndGet();
+    }
+
+    @Override
+    public void appointmentMoved(Appointment appointment, LocalDateTime previousDateTime) {
+        move(appointment, previousDateTime, true);
+        bumps.incrementAndGet();
+    }
+
+    // Moved on request, so not a bump.
+    @Override
+    public void appointmentRescheduled(Appointment appointment, LocalDateTime previousDateTime) {
+        move(appointment, previousDateTime, false);
+    }
+
+    @Override
+    public void appointmentCanceled(Appointment appointment) {
+        boolean emergency = appointment.getPatient().isEmergency();
+        count(appointment.getDoctor(), appointment.getEpochMinute(), emergency, -1);
+        if (emergency) emergencies.decrementAndGet();
+    }
+
+    @Override
+    public void appointmentArchived(Appointment appointment) {
+        appointmentCanceled(appointment);
+    }
+
+    private void move(Appointment appointment, LocalDateTime previousDateTime, boolean bumped) {
+        boolean emergency = appointment.getPatient().isEmergency();
+        int previous = Appointment.toEpochMinute(previousDateTime);
+        DoctorStats s = statsOf(appointment.getDoctor().getId());
+        synchronized (s) {
+            if (bumped) s.day(previous).bumps++;
+            count(s, previous, emergency, -1);
+            count(s, appointment.getEpochMinute(), emergency, 1);
+        }
+    }
+
+    private void count(Doctor doctor, int epochMinute, boolean emergency, int delta) {
+        DoctorStats s = statsOf(doctor.getId());
+        synchronized (s) {
+            count(s, epochMinute, emergency, delta);
+        }
+    }
+
+    // Caller holds s's lock.
+    private static void count(DoctorStats s, int epochMinute, boolean emergency, int delta) {
+        DayStats day = s.day(epochMinute);
+        day.appointments += delta;
+        if (emergency) day.emergencies += delta;
+        int slot = Math.floorMod(epochMinute, MINUTES_PER_DAY) / SLOT_MINUTES;
+        if (delta > 0) day.book(slot); else day.release(slot);
+    }
+
+    private DoctorStats statsOf(int doctorId) {
+        return stats[doctorId];
+    }
+
+    private Doctor[] doctorsById() {
+        return doctorsById(hospital);
+    }
+
+    // The registry by id; a legacy duplicate name takes its first doctor's id, leaving its own index null.
+    private static Doctor[] doctorsById(Hospital hospital) {
+        int n = hospital.getDoctorCount();
+        Doctor[] doctors = new Doctor[n];
+        for (int i = 0; i < n; i++) {
+            Doctor d = hospital.getDoctor(i);
+            if (d.getId() == i) doctors[i] = d;
+        }
+        return doctors;
+    }
+
+    private static int dayCount(LocalDate from, LocalDate to) {
+        long days = to.toEpochDay() - from.toEpochDay();
+        if (days < 0) {
+            throw new IllegalArgumentException("Report range ends before it starts: " + from + " to " + to);
+        }
+        return Math.toIntExact(days);
+    }
+
+    // One doctor's counts, keyed by epoch day in an open-addressing table, so a
+    // lookup neither boxes the key nor allocates. Days are never removed.
+    private static final class DoctorStats {
+        private int[] keys = new int[16];
+        private DayStats[] values = new DayStats[16];
+        private int size;
+
+        DayStats day(int epochMinute) {
+            int key = Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+            int i = slot(keys, values, key);
+            if (values[i] == null) {
+                if (2 * (size + 1) > keys.length) {
+                    grow();
+                    i = slot(keys, values, key);
+                }
+                keys[i] = key;
+                values[i] = new DayStats();
+                size++;
+            }
+            return values[i];
+        }
+
+        // The day's counts, or null if nothing was ever counted on it.
+        DayStats get(long epochDay) {
+            if (epochDay != (int) epochDay) return null;
+            return values[slot(keys, values, (int) epochDay)];
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            DayStats[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new DayStats[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int j = slot(keys, values, oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        // Where 'key' is, or the empty slot it would go in; the table is never more than half full.
+        private static int slot(int[] keys, DayStats[] values, int key) {
+            int mask = keys.length - 1;
+            int h = key * 0x9E3779B9; // consecutive days spread across the table
+            int i = (h ^ h >>> 16) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+
+    private static final class DayStats {
+        int appointments;
+        int emergencies;
+        int bumps;
+        // One bit per slot of the day.
+        long slotsLow, slotsHigh;
+        // Extra appointments per slot beyond the first; only emergencies and bumps stack, so usually never allocated.
+        int[] stacked;
+
+        void book(int slot) {
+            long bit = 1L << slot;
+            boolean used = slot < 64 ? (slotsLow & bit) != 0 : (slotsHigh & bit) != 0;
+            if (!used) {
+                if (slot < 64) slotsLow |= bit; else slotsHigh |= bit;
+            } else {
+                if (stacked == null) stacked = new int[SLOTS_PER_DAY];
+                stacked[slot]++;
+            }
+        }
+
+        void release(int slot) {
+            if (stacked != null && stacked[slot] > 0) {
+                stacked[slot]--;
+            } else if (slot < 64) {
+                slotsLow &= ~(1L << slot);
+            } else {
+                slotsHigh &= ~(1L << slot);
+            }
+        }
+
+        int usedSlots() {
+            return Long.bitCount(slotsLow) + Long.bitCount(slotsHigh);
+        }
+    }
+
+    // Partial counts over part of a recompute range: one cell per (doctor, day), two bitmap words per cell.
+    private static final class Tally {
+        final int[] appointments;
+        final long[] slots;
+        int emergencies;
+
+        Tally(int cells) {
+            appointments = new int[cells];
+            slots = new long[2 * cells];
+        }
+
+        Tally merge(Tally other) {
+            for (int i = 0; i < appointments.length; i++) appointments[i] += other.appointments[i];
+            for (int i = 0; i < slots.length; i++) slots[i] |= other.slots[i];
+            emergencies += other.emergencies;
+            return this;
+        }
+    }
+
+    private static final class RecomputeTask extends RecursiveTask<Tally> {
+        private final List<Appointment> range;
+        private final int from, to, chunk, doctors, days;
+        private final long firstDay;
+
+        RecomputeTask(List<Appointment> range, int from, int to, int chunk, int doctors, int days, long firstDay) {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.doctors = doctors;
+            this.days = days;
+            this.firstDay = firstDay;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from > chunk) {
+                int mid = (from + to) >>> 1;
+                RecomputeTask left = new RecomputeTask(range, from, mid, chunk, doctors, days, firstDay);
+                left.fork();
+                Tally right = new RecomputeTask(range, mid, to, chunk, doctors, days, firstDay).compute();
+                return left.join().merge(right);
+            }
+            Tally tally = new Tally(doctors * days);
+            for (int i = from; i < to; i++) {
+                Appointment a = range.get(i);
+                int minute = a.getEpochMinute();
+                long day = Math.floorDiv(minute, MINUTES_PER_DAY) - firstDay;
+                int doctor = a.getDoctor().getId();
+                // Live appointments can be bumped, or their doctor registered, after the range was read.
+                if (day < 0 || day >= days || doctor >= doctors) continue;
+                int cell = doctor * days + (int) day;
+                int slot = Math.floorMod(minute, MINUTES_PER_DAY) / SLOT_MINUTES;
+                tally.appointments[cell]++;
+                tally.slots[2 * cell + slot / 64] |= 1L << slot;
+                if (a.getPatient().isEmergency()) tally.emergencies++;
+            }
+            return tally;
+        }
+    }
+}
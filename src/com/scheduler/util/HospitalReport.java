@@ -0,0 +1,123 @@
+package com.scheduler.util;
+
+import com.scheduler.model.Doctor;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Operational figures for a range of days, as produced by HospitalAnalytics.
+ * Immutable; all counts are per (doctor, day) cell, indexed by Doctor.getId().
+ *
+ * Utilisation and free slots are measured on the 15-minute grid the booking
+ * dialog offers, around the clock: a doctor has SLOTS_PER_DAY slots a day, a slot
+ * is used if anything is booked in it, and free slots are the rest.
+ */
+public final class HospitalReport {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    private final LocalDate from;
+    private final int days;
+    // Indexed by doctor id; null where no doctor has that id (legacy duplicate names share one).
+    private final Doctor[] doctors;
+    private final int[][] appointments;
+    private final int[][] usedSlots;
+    private final int emergencies;
+    private final int bumps;
+
+    HospitalReport(LocalDate from, int days, Doctor[] doctors, int[][] appointments, int[][] usedSlots,
+                   int emergencies, int bumps) {
+        this.from = from;
+        this.days = days;
+        this.doctors = doctors;
+        this.appointments = appointments;
+        this.usedSlots = usedSlots;
+        this.emergencies = emergencies;
+        this.bumps = bumps;
+    }
+
+    public LocalDate getFrom() { return from; }
+    public int getDays() { return days; }
+
+    public int getAppointments(Doctor doctor, LocalDate day) {
+        int d = dayIndex(day);
+        return d < 0 ? 0 : appointments[doctor.getId()][d];
+    }
+
+    public int getFreeSlots(Doctor doctor, LocalDate day) {
+        int d = dayIndex(day);
+        return d < 0 ? 0 : SLOTS_PER_DAY - usedSlots[doctor.getId()][d];
+    }
+
+    public int getTotalAppointments() {
+        int total = 0;
+        for (int[] row : appointments) {
+            for (int n : row) total += n;
+        }
+        return total;
+    }
+
+    public int getTotalFreeSlots() {
+        int used = 0, doctorCount = 0;
+        for (int id = 0; id < doctors.length; id++) {
+            if (doctors[id] == null) continue;
+            doctorCount++;
+            for (int n : usedSlots[id]) used += n;
+        }
+        return doctorCount * days * SLOTS_PER_DAY - used;
+    }
+
+    public int getEmergencies() { return emergencies; }
+
+    /**
+     * Share of the range's appointments that are for emergency patients, from 0 to 1.
+     */
+    public double getEmergencyShare() {
+        int total = getTotalAppointments();
+        return total == 0 ? 0 : (double) emergencies / total;
+    }
+
+    /**
+     * Appointments moved by an emergency during the range. Bumps are only seen as they
+     * happen, so a report recomputed from stored appointments always has none.
+     */
+    public int getBumps() { return bumps; }
+
+    /**
+     * Used slots over available slots per specialization, from 0 to 1, sorted by name.
+     */
+    public Map<String, Double> getUtilisationBySpecialization() {
+        Map<String, int[]> totals = new TreeMap<>();
+        for (int id = 0; id < doctors.length; id++) {
+            if (doctors[id] == null) continue;
+            int[] t = totals.computeIfAbsent(String.valueOf(doctors[id].getSpecialization()), s -> new int[2]);
+            for (int n : usedSlots[id]) t[0] += n;
+            t[1] += days * SLOTS_PER_DAY;
+        }
+        Map<String, Double> utilisation = new TreeMap<>();
+        totals.forEach((specialization, t) -> utilisation.put(specialization, (double) t[0] / t[1]));
+        return utilisation;
+    }
+
+    private int dayIndex(LocalDate day) {
+        long d = day.toEpochDay() - from.toEpochDay();
+        return d >= 0 && d < days ? (int) d : -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Report for ").append(from);
+        if (days > 1) sb.append(" to ").append(from.plusDays(days - 1));
+        sb.append(":\n- Appointments: ").append(getTotalAppointments())
+                .append("\n- Emergency share: ").append(String.format("%.1f%%", getEmergencyShare() * 100))
+                .append("\n- Emergency bumps: ").append(bumps)
+                .append("\n- Free slots: ").append(getTotalFreeSlots());
+        getUtilisationBySpecialization().forEach((specialization, u) ->
+                sb.append("\n- ").append(specialization).append(" utilisation: ").append(String.format("%.1f%%", u * 100)));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package com.scheduler.util;
+
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of a Hospital, replacing Java serialization for hospital.dat.
+ *
+ * Layout (version 2, all numbers big-endian):
+ * <pre>
+ *   int    magic "HSNP", int version
+ *   int    string count, then per string: int byte length, UTF-8 bytes
+ *   int    patient count, then per patient: int name, int age, int gender, int health issue, byte emergency
+ *   int    doctor count, then per doctor: int name, int specialization, byte available
+ *   int    appointment count, then per appointment: long id, int patient, int doctor, int epoch minute
+ *   long   the next appointment id to hand out
+ *   long   CRC32 of everything before it
+ * </pre>
+ * Strings are stored once and referred to by index; patients and doctors are
+ * stored in registry order, so their position in their section is their
+ * Person.getId(), which is how appointments refer to them. Appointments are
+ * fixed-width records in date/time order. Archived appointments are not part
+ * of the snapshot; they live in the TieredArchive. Their ids are why the next id
+ * is stored rather than worked out from the appointments here. Version 1 (without
+ * it) is still read.
+ */
+public class HospitalSnapshot {
+
+    static final int MAGIC = 0x48534E50; // "HSNP"
+    static final int VERSION = 2;
+
+    static final int APPOINTMENT_BYTES = 8 + 4 + 4 + 4;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    /**
+     * True if the file starts with the snapshot magic number.
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            while (head.hasRemaining() && in.read(head) >= 0) {
+                // keep reading
+            }
+            return head.position() == 4 && head.getInt(0) == MAGIC;
+        }
+    }
+
+    public static void write(Hospital hospital, Path path) throws IOException {
+        List<Patient> patients = hospital.getAllPatients();
+        List<Doctor> doctors = hospital.getAllDoctors();
+        List<Appointment> appointments = new ArrayList<>(hospital.getAllAppointments());
+
+        // Number everything first, so the tables can be written before the records that use them.
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+        for (Patient p : patients) {
+            intern(p.getName(), strings, stringTable);
+            intern(p.getGender(), strings, stringTable);
+            intern(p.getHealthIssue(), strings, stringTable);
+        }
+        for (Doctor d : doctors) {
+            intern(d.getName(), strings, stringTable);
+            intern(d.getSpecialization(), strings, stringTable);
+        }
+
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = new Writer(out);
+            writer.ensure(8).putInt(MAGIC).putInt(VERSION);
+
+            writer.ensure(4).putInt(stringTable.size());
+            for (String s : stringTable) {
+                writer.putBytes(s.getBytes(StandardCharsets.UTF_8));
+            }
+
+            writer.ensure(4).putInt(patients.size());
+            for (Patient p : patients) {
+                writer.ensure(17)
+                        .putInt(strings.get(p.getName()))
+                        .putInt(p.getAge())
+                        .putInt(strings.get(p.getGender()))
+                        .putInt(strings.get(p.getHealthIssue()))
+                        .put((byte) (p.isEmergency() ? 1 : 0));
+            }
+
+            writer.ensure(4).putInt(doctors.size());
+            for (Doctor d : doctors) {
+                writer.ensure(9)
+                        .putInt(strings.get(d.getName()))
+                        .putInt(strings.get(d.getSpecialization()))
+                        .put((byte) (d.isAvailable() ? 1 : 0));
+            }
+
+            writer.ensure(4).putInt(appointments.size());
+            for (Appointment a : appointments) {
+                writer.ensure(APPOINTMENT_BYTES)
+                        .putLong(a.getId())
+                        .putInt(a.getPatient().getId())
+                        .putInt(a.getDoctor().getId())
+                        .putInt(a.getEpochMinute());
+            }
+            writer.ensure(8).putLong(hospital.getNextAppointmentId());
+
+            writer.finish();
+            out.force(true);
+        }
+    }
+
+    public static Hospital read(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < 16) throw new IOException("Snapshot too short");
+            // Read into a direct buffer rather than mapping, so the file is not held open
+            // (on some platforms a mapped file cannot be replaced by the next save).
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            body.limit((int) size - 8);
+            crc.update(body);
+            if (buffer.getLong((int) size - 8) != crc.getValue()) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            if (buffer.getInt() != MAGIC) throw new IOException("Not a hospital snapshot");
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION) throw new IOException("Unsupported snapshot version " + version);
+
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            Hospital hospital = new Hospital();
+            Patient[] patients = new Patient[buffer.getInt()];
+            for (int i = 0; i < patients.length; i++) {
+                Patient p = new Patient(strings[buffer.getInt()], buffer.getInt(), strings[buffer.getInt()],
+                        strings[buffer.getInt()], buffer.get() != 0);
+                // Files converted from Java serialization may repeat a name; those share the first patient.
+                patients[i] = hospital.addPatient(p) ? p : hospital.findPatientByName(p.getName()).orElseThrow();
+            }
+
+            Doctor[] doctors = new Doctor[buffer.getInt()];
+            for (int i = 0; i < doctors.length; i++) {
+                Doctor d = new Doctor(strings[buffer.getInt()], strings[buffer.getInt()]);
+                d.setAvailable(buffer.get() != 0);
+                doctors[i] = hospital.addDoctor(d) ? d : hospital.findDoctorByName(d.getName()).orElseThrow();
+            }
+
+            int appointmentCount = buffer.getInt();
+            for (int i = 0; i < appointmentCount; i++) {
+                long id = buffer.getLong();
+                Patient patient = patients[buffer.getInt()];
+                Doctor doctor = doctors[buffer.getInt()];
+                hospital.restoreAppointment(id, patient, doctor, buffer.getInt());
+            }
+            if (version >= 2) {
+                hospital.restoreNextAppointmentId(buffer.getLong());
+            }
+            return hospital;
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt snapshot", e);
+        }
+    }
+
+    private static void intern(String s, Map<String, Integer> strings, List<String> table) {
+        if (strings.putIfAbsent(s, table.size()) == null) {
+            table.add(s);
+        }
+    }
+
+    /**
+     * Fills one direct buffer and hands it to the channel whenever it runs out of room,
+     * keeping a running CRC of everything written.
+     */
+    private static class Writer {
+        private final FileChannel out;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+
+        Writer(FileChannel out) {
+            this.out = out;
+        }
+
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+            return buffer;
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            ensure(4).putInt(bytes.length);
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                crc.update(bytes);
+                while (large.hasRemaining()) out.write(large);
+            } else {
+                ensure(bytes.length).put(bytes);
+            }
+        }
+
+        void finish() throws IOException {
+            flush();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) out.write(buffer);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) out.write(buffer);
+            buffer.clear();
+        }
+    }
+}
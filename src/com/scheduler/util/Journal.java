@@ -0,0 +1,359 @@
+package com.scheduler.util;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.HospitalListener;
+import com.scheduler.model.Patient;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of every change made to a Hospital, so each change is on disk
+ * moments after it happens instead of only when the window closes.
+ *
+ * Each record is: int body length, int CRC32 of the body, then the body
+ * (a type byte followed by its fields). Appending only copies the record into
+ * a buffer; a background thread writes out and fsyncs whatever has built up
+ * since its last pass, so a burst of changes shares one fsync (group commit).
+ * The change has already been made by then, and its caller is not held up for
+ * the fsync: a crash loses whatever was appended since the last one finished,
+ * usually a few milliseconds' worth. sync() (and so close and rotate) waits for it.
+ * Replay stops at the first torn or corrupt record.
+ */
+public class Journal implements HospitalListener, Closeable {
+
+    static final byte PATIENT_ADDED = 1;
+    static final byte DOCTOR_ADDED = 2;
+    static final byte SCHEDULED = 3;
+    static final byte MOVED = 4;
+    static final byte CANCELED = 5;
+    static final byte AVAILABILITY = 6;
+
+    private static final int HEADER_BYTES = 8;
+
+    private final Path path;
+    private final CRC32 crc = new CRC32();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+    private final DataOutputStream bodyOut = new DataOutputStream(body);
+    private final Thread committer;
+
+    // All guarded by 'this'.
+    private FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(4096);
+    private long appended;
+    private long durable;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Replays the journal at 'path' into the hospital, cuts off any torn tail
+     * left by a crash, and opens it for appending.
+     */
+    public static Journal open(Path path, Hospital hospital) throws IOException {
+        long valid = Files.exists(path) ? replay(path, hospital) : 0;
+        return new Journal(path, valid);
+    }
+
+    private Journal(Path path, long validLength) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        this.appended = validLength;
+        this.durable = validLength;
+        this.committer = new Thread(this::commitLoop, "journal-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Applies every intact record in the file to the hospital.
+     * Records are idempotent, so replaying a file twice gives the same result.
+     *
+     * @return the length of the intact prefix of the file
+     */
+    public static long replay(Path path, Hospital hospital) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) in.size());
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // keep reading
+            }
+        }
+        buffer.flip();
+
+        CRC32 check = new CRC32();
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int expected = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            check.reset();
+            check.update(buffer.array(), buffer.position(), length);
+            if ((int) check.getValue() != expected) {
+                buffer.position(start);
+                break;
+            }
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(buffer.array(), buffer.position(), length));
+            buffer.position(buffer.position() + length);
+            apply(record, hospital);
+        }
+        if (buffer.hasRemaining()) {
+            System.err.println("Journal " + path + ": ignoring " + buffer.remaining() + " bytes of incomplete data at the end.");
+        }
+        return buffer.position();
+    }
+
+    private static void apply(DataInputStream record, Hospital hospital) throws IOException {
+        byte type = record.readByte();
+        switch (type) {
+            case PATIENT_ADDED:
+                hospital.addPatient(new Patient(record.readUTF(), record.readInt(), record.readUTF(), record.readUTF(), record.readBoolean()));
+                break;
+            case DOCTOR_ADDED:
+                hospital.addDoctor(new Doctor(record.readUTF(), record.readUTF()));
+                break;
+            case SCHEDULED:
+            case MOVED: {
+                long id = record.readLong();
+                String patient = record.readUTF();
+                String doctor = record.readUTF();
+                int epochMinute = record.readInt();
+                if (!hospital.restoreAppointment(id, patient, doctor, epochMinute)) {
+                    System.err.println("Journal: skipping appointment " + id + " for unknown patient or doctor.");
+                }
+                break;
+            }
+            case CANCELED:
+                hospital.restoreCancellation(record.readLong());
+                break;
+            case AVAILABILITY: {
+                String doctor = record.readUTF();
+                try {
+                    hospital.setDoctorAvailable(doctor, record.readBoolean());
+                } catch (AppointmentException e) {
+                    System.err.println("Journal: skipping availability of unknown doctor " + doctor + ".");
+                }
+                break;
+            }
+            default:
+                System.err.println("Journal: skipping unknown record type " + type);
+        }
+    }
+
+    // --- HospitalListener: one record per change ---
+
+    @Override
+    public synchronized void patientAdded(Patient patient) {
+        try {
+            bodyOut.writeByte(PATIENT_ADDED);
+            bodyOut.writeUTF(patient.getName());
+            bodyOut.writeInt(patient.getAge());
+            bodyOut.writeUTF(patient.getGender());
+            bodyOut.writeUTF(patient.getHealthIssue());
+            bodyOut.writeBoolean(patient.isEmergency());
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // in-memory stream, cannot happen
+        }
+        append();
+    }
+
+    @Override
+    public synchronized void doctorAdded(Doctor doctor) {
+        try {
+            bodyOut.writeByte(DOCTOR_ADDED);
+            bodyOut.writeUTF(doctor.getName());
+            bodyOut.writeUTF(doctor.getSpecialization());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+    }
+
+    @Override
+    public synchronized void doctorAvailabilityChanged(Doctor doctor) {
+        try {
+            bodyOut.writeByte(AVAILABILITY);
+            bodyOut.writeUTF(doctor.getName());
+            bodyOut.writeBoolean(doctor.isAvailable());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+    }
+
+    @Override
+    public synchronized void appointmentScheduled(Appointment appointment) {
+        writeAppointment(SCHEDULED, appointment);
+    }
+
+    @Override
+    public synchronized void appointmentMoved(Appointment appointment, LocalDateTime previousDateTime) {
+        writeAppointment(MOVED, appointment);
+    }
+
+    @Override
+    public synchronized void appointmentCanceled(Appointment appointment) {
+        try {
+            bodyOut.writeByte(CANCELED);
+            bodyOut.writeLong(appointment.getId());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+    }
+
+    // Scheduled and moved both carry the whole appointment, so replay can re-create it either way.
+    private void writeAppointment(byte type, Appointment appointment) {
+        try {
+            bodyOut.writeByte(type);
+            bodyOut.writeLong(appointment.getId());
+            bodyOut.writeUTF(appointment.getPatient().getName());
+            bodyOut.writeUTF(appointment.getDoctor().getName());
+            bodyOut.writeInt(appointment.getEpochMinute());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        append();
+    }
+
+    // Frames the record built up in 'body' and queues it for the committer. Caller holds 'this'.
+    private void append() {
+        byte[] record = body.toByteArray();
+        body.reset();
+        crc.reset();
+        crc.update(record);
+        int length = record.length;
+        pending.write(length >>> 24);
+        pending.write(length >>> 16);
+        pending.write(length >>> 8);
+        pending.write(length);
+        int sum = (int) crc.getValue();
+        pending.write(sum >>> 24);
+        pending.write(sum >>> 16);
+        pending.write(sum >>> 8);
+        pending.write(sum);
+        pending.write(record, 0, length);
+        appended += HEADER_BYTES + length;
+        notifyAll();
+    }
+
+    private void commitLoop() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            FileChannel target;
+            long end;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.size() == 0) return;
+                batch = pending;
+                pending = new ByteArrayOutputStream(4096);
+                target = channel;
+                end = appended;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+                synchronized (this) {
+                    durable = end;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                System.err.println("Error writing journal: " + e.getMessage());
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk.
+     */
+    public synchronized void sync() throws IOException {
+        long target = appended;
+        while (durable < target && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the journal", e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Current size of the journal in bytes, including records not yet on disk.
+     */
+    public synchronized long size() {
+        return appended;
+    }
+
+    /**
+     * Syncs the journal, then moves it to 'archive' and starts a new, empty one
+     * in its place. Used when taking a snapshot: records made after this call go
+     * to the new file, so the archived one can be deleted once the snapshot is safe.
+     */
+    public synchronized void rotate(Path archive) throws IOException {
+        // Wait until the committer has drained everything; holding the lock afterwards keeps it that way.
+        while (durable < appended && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the journal", e);
+            }
+        }
+        if (failure != null) throw failure;
+        channel.close();
+        Files.move(path, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        appended = 0;
+        durable = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
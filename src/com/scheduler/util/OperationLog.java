@@ -0,0 +1,423 @@
+package com.scheduler.util;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.BookingRequest;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.OperationRecorder;
+import com.scheduler.model.Patient;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Records the calls made to a Hospital (see OperationRecorder) to a file, with the
+ * time of each, so the same traffic can be played back later against a fresh
+ * Hospital (see read and Operation.run). Start it with -Dscheduler.recordTo=file.
+ *
+ * The file is a header (magic, version, wall-clock start in epoch milliseconds,
+ * then the hospital as recording found it: bookable hours, appointment id partition,
+ * patients, doctors, appointments and the next appointment id; see readStart), then
+ * one record per call: a type byte, the microseconds since the previous
+ * record as a variable-length number, then the call's arguments, with names as
+ * UTF strings and times as epoch minutes. A booking takes some 20 to 30 bytes.
+ * Records are buffered in memory and written out in blocks, so recording costs
+ * a lock and a copy per call; close() writes out the rest. A file cut short by
+ * a crash reads up to its last whole record. Version 1 logs (without the starting
+ * hospital) are still read, and replay against an empty one; so are version 2 logs
+ * (without the id partition), which replay with ids from 1 up.
+ */
+public class OperationLog implements OperationRecorder, Closeable {
+
+    static final int MAGIC = 0x48534f50; // "HSOP"
+    static final int VERSION = 3;
+
+    /** The kinds of call, one per OperationRecorder method. */
+    public enum Type {
+        ADD_PATIENT, ADD_DOCTOR, SCHEDULE, SCHEDULE_ALL, CANCEL, CANCEL_BY_ID, RESCHEDULE, REASSIGN
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final DataOutputStream out;
+    private final long startNanos;
+    // Guarded by 'this'.
+    private long lastMicros;
+    private boolean closed;
+
+    /**
+     * Starts a new log at 'path', beginning with 'hospital' as it is now, so a replay
+     * finds the patients, doctors and appointments the recorded calls refer to.
+     */
+    public static OperationLog create(Path path, Hospital hospital) throws IOException {
+        return new OperationLog(path, hospital);
+    }
+
+    // 'hospital' is written as it is now, so nothing should be changing it until the log is its recorder.
+    private OperationLog(Path path, Hospital hospital) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            writeStart(hospital);
+            out.flush();
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+        startNanos = System.nanoTime();
+    }
+
+    // Registry positions stand in for patients and doctors, as in HospitalSnapshot. Each collection is
+    // copied before its count is written, so the count always matches the records that follow it.
+    private void writeStart(Hospital hospital) throws IOException {
+        out.writeInt(hospital.getStartOfDay().toSecondOfDay() / 60);
+        out.writeInt(hospital.getEndOfDay().toSecondOfDay() / 60);
+        out.writeInt(hospital.getIdPartition());
+        out.writeInt(hospital.getIdPartitions());
+        List<Patient> patients = hospital.getAllPatients();
+        writeVarLong(patients.size());
+        for (Patient patient : patients) {
+            writeString(patient.getName());
+            out.writeInt(patient.getAge());
+            writeString(patient.getGender());
+            writeString(patient.getHealthIssue());
+            out.writeBoolean(patient.isEmergency());
+        }
+        List<Doctor> doctors = hospital.getAllDoctors();
+        writeVarLong(doctors.size());
+        for (Doctor doctor : doctors) {
+            writeString(doctor.getName());
+            writeString(doctor.getSpecialization());
+            out.writeBoolean(doctor.isAvailable());
+        }
+        Appointment[] appointments = hospital.getAllAppointments().toArray(new Appointment[0]);
+        writeVarLong(appointments.length);
+        for (Appointment a : appointments) {
+            writeVarLong(a.getId());
+            writeVarLong(a.getPatient().getId());
+            writeVarLong(a.getDoctor().getId());
+            out.writeInt(a.getEpochMinute());
+        }
+        out.writeLong(hospital.getNextAppointmentId());
+    }
+
+    @Override
+    public synchronized void addPatient(Patient patient) {
+        try {
+            begin(Type.ADD_PATIENT);
+            writeString(patient.getName());
+            out.writeInt(patient.getAge());
+            writeString(patient.getGender());
+            writeString(patient.getHealthIssue());
+            out.writeBoolean(patient.isEmergency());
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void addDoctor(Doctor doctor) {
+        try {
+            begin(Type.ADD_DOCTOR);
+            writeString(doctor.getName());
+            writeString(doctor.getSpecialization());
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void scheduleAppointment(String patientName, String doctorName, LocalDateTime dateTime) {
+        try {
+            begin(Type.SCHEDULE);
+            writeString(patientName);
+            writeString(doctorName);
+            out.writeInt(Appointment.toEpochMinute(dateTime));
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void scheduleAll(Collection<BookingRequest> requests, boolean partial) {
+        try {
+            begin(Type.SCHEDULE_ALL);
+            out.writeBoolean(partial);
+            writeVarLong(requests.size());
+            for (BookingRequest r : requests) {
+                writeString(r.getPatientName());
+                writeString(r.getDoctorName());
+                out.writeInt(Appointment.toEpochMinute(r.getDateTime()));
+            }
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void cancelAppointment(String patientName, String doctorName) {
+        try {
+            begin(Type.CANCEL);
+            writeString(patientName);
+            writeString(doctorName);
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void cancelAppointment(long id) {
+        try {
+            begin(Type.CANCEL_BY_ID);
+            writeVarLong(id);
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void rescheduleAppointment(long id, LocalDateTime dateTime) {
+        try {
+            begin(Type.RESCHEDULE);
+            writeVarLong(id);
+            out.writeInt(Appointment.toEpochMinute(dateTime));
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void reassignAppointments(String doctorName, LocalDateTime from, LocalDateTime to) {
+        try {
+            begin(Type.REASSIGN);
+            writeString(doctorName);
+            out.writeInt(Appointment.toEpochMinute(from));
+            out.writeInt(Appointment.toEpochMinute(to));
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        out.close();
+    }
+
+    // Type byte and time since the previous record. Caller holds the lock.
+    private void begin(Type type) throws IOException {
+        if (closed) throw new IOException("Operation log is closed");
+        // Measured from the start, so rounding to microseconds never accumulates.
+        long micros = (System.nanoTime() - startNanos) / 1000;
+        out.writeByte(type.ordinal());
+        writeVarLong(micros - lastMicros);
+        lastMicros = micros;
+    }
+
+    // A missing value (null) is written as empty; for names, Hospital treats both as not found.
+    private void writeString(String value) throws IOException {
+        out.writeUTF(value == null ? "" : value);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    // Recording is a diagnostic; losing it must not take the hospital down with it. Later calls go unrecorded.
+    private void failed(IOException e) {
+        if (!closed) System.err.println("Operation log: recording stopped: " + e.getMessage());
+        closed = true;
+    }
+
+    // --- Reading ---
+
+    /**
+     * One recorded call, ready to be made again.
+     */
+    public static final class Operation {
+        private final Type type;
+        private final long offsetMicros;
+        private final Object[] args;
+
+        Operation(Type type, long offsetMicros, Object... args) {
+            this.type = type;
+            this.offsetMicros = offsetMicros;
+            this.args = args;
+        }
+
+        public Type getType() { return type; }
+
+        /** When the call was made, in microseconds after recording started. */
+        public long getOffsetMicros() { return offsetMicros; }
+
+        /**
+         * Makes the same call on 'hospital'. A registration builds a new Patient or Doctor
+         * each time. Refusals come back as AppointmentException, as they did when recorded.
+         */
+        @SuppressWarnings("unchecked")
+        public Object run(Hospital hospital) throws AppointmentException {
+            switch (type) {
+                case ADD_PATIENT:
+                    return hospital.addPatient(new Patient((String) args[0], (Integer) args[1], (String) args[2],
+                            (String) args[3], (Boolean) args[4]));
+                case ADD_DOCTOR:
+                    return hospital.addDoctor(new Doctor((String) args[0], (String) args[1]));
+                case SCHEDULE:
+                    return hospital.scheduleAppointment((String) args[0], (String) args[1], (LocalDateTime) args[2]);
+                case SCHEDULE_ALL:
+                    return hospital.scheduleAll((List<BookingRequest>) args[1], (Boolean) args[0]);
+                case CANCEL:
+                    return hospital.cancelAppointment((String) args[0], (String) args[1]);
+                case CANCEL_BY_ID:
+                    return hospital.cancelAppointment((Long) args[0]);
+                case RESCHEDULE:
+                    return hospital.rescheduleAppointment((Long) args[0], (LocalDateTime) args[1]);
+                default:
+                    return hospital.reassignAppointments((String) args[0], (LocalDateTime) args[1], (LocalDateTime) args[2]);
+            }
+        }
+
+        /** True for addPatient and addDoctor, which later calls may depend on. */
+        public boolean isRegistration() {
+            return type == Type.ADD_PATIENT || type == Type.ADD_DOCTOR;
+        }
+    }
+
+    /**
+     * Every whole record in the file, in the order they were recorded.
+     */
+    public static List<Operation> read(Path path) throws IOException {
+        List<Operation> operations = new ArrayList<>();
+        try (DataInputStream in = open(path)) {
+            int version = readHeader(in, path);
+            if (version >= 2) readStart(in, new Hospital(), version);
+            long micros = 0;
+            while (true) {
+                int type = in.read();
+                if (type < 0) break;
+                try {
+                    if (type >= TYPES.length) throw new IOException("Corrupt record type " + type);
+                    micros += readVarLong(in);
+                    operations.add(readOperation(TYPES[type], micros, in));
+                } catch (EOFException e) {
+                    // Torn last record: the process died mid-write.
+                    break;
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * A new Hospital as it was when recording started, to replay the records against:
+     * the same hours, id partition, registry, appointments and ids. Empty for a version 1 log.
+     */
+    public static Hospital readStart(Path path) throws IOException {
+        Hospital hospital = new Hospital();
+        try (DataInputStream in = open(path)) {
+            int version = readHeader(in, path);
+            if (version >= 2) readStart(in, hospital, version);
+        }
+        return hospital;
+    }
+
+    private static DataInputStream open(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+    }
+
+    // Magic, version and start time; returns the version.
+    private static int readHeader(DataInputStream in, Path path) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException(path + " is not an operation log");
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported operation log version " + version);
+        in.readLong(); // wall-clock start, for whoever reads the file by hand
+        return version;
+    }
+
+    private static void readStart(DataInputStream in, Hospital hospital, int version) throws IOException {
+        hospital.setStartOfDay(LocalTime.ofSecondOfDay(in.readInt() * 60L));
+        hospital.setEndOfDay(LocalTime.ofSecondOfDay(in.readInt() * 60L));
+        if (version >= 3) {
+            int partition = in.readInt();
+            hospital.setIdPartition(partition, in.readInt());
+        }
+        Patient[] patients = new Patient[Math.toIntExact(readVarLong(in))];
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = new Patient(in.readUTF(), in.readInt(), in.readUTF(), in.readUTF(), in.readBoolean());
+            hospital.addPatient(patients[i]);
+        }
+        Doctor[] doctors = new Doctor[Math.toIntExact(readVarLong(in))];
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = new Doctor(in.readUTF(), in.readUTF());
+            doctors[i].setAvailable(in.readBoolean());
+            hospital.addDoctor(doctors[i]);
+        }
+        for (long n = readVarLong(in); n > 0; n--) {
+            long id = readVarLong(in);
+            Patient patient = patients[Math.toIntExact(readVarLong(in))];
+            Doctor doctor = doctors[Math.toIntExact(readVarLong(in))];
+            hospital.restoreAppointment(id, patient, doctor, in.readInt());
+        }
+        hospital.restoreNextAppointmentId(in.readLong());
+    }
+
+    private static Operation readOperation(Type type, long micros, DataInputStream in) throws IOException {
+        switch (type) {
+            case ADD_PATIENT:
+                return new Operation(type, micros, in.readUTF(), in.readInt(), in.readUTF(), in.readUTF(), in.readBoolean());
+            case ADD_DOCTOR:
+                return new Operation(type, micros, in.readUTF(), in.readUTF());
+            case SCHEDULE:
+                return new Operation(type, micros, in.readUTF(), in.readUTF(), Appointment.fromEpochMinute(in.readInt()));
+            case SCHEDULE_ALL: {
+                boolean partial = in.readBoolean();
+                int n = Math.toIntExact(readVarLong(in));
+                List<BookingRequest> rows = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    rows.add(new BookingRequest(in.readUTF(), in.readUTF(), Appointment.fromEpochMinute(in.readInt())));
+                }
+                return new Operation(type, micros, partial, Collections.unmodifiableList(rows));
+            }
+            case CANCEL:
+                return new Operation(type, micros, in.readUTF(), in.readUTF());
+            case CANCEL_BY_ID:
+                return new Operation(type, micros, readVarLong(in));
+            case RESCHEDULE:
+                return new Operation(type, micros, readVarLong(in), Appointment.fromEpochMinute(in.readInt()));
+            default:
+                return new Operation(type, micros, in.readUTF(), Appointment.fromEpochMinute(in.readInt()),
+                        Appointment.fromEpochMinute(in.readInt()));
+        }
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            if (shift > 56) throw new IOException("Corrupt variable-length number");
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.scheduler.util;
+
+import com.scheduler.model.Appointment;
+import com.scheduler.model.AppointmentHistory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Past appointments in two tiers. Archiving appends to the recent tier, an
+ * AppointmentArchive (hospital.archive), as before; once a calendar month is
+ * entirely archived, the next {@link #settle()} seals it into its own compressed
+ * ArchiveSegment file (hospital.segments/2030-01.seg and so on) and drops it from
+ * the recent tier. Hospital calls settle after releasing the doctors it locked to
+ * archive, so compressing and forcing a month's segment holds up no booking.
+ * So the recent tier holds about a month, and each older month takes some 4 to 6
+ * bytes an appointment on disk and nothing in memory until it is read.
+ *
+ * Queries go to whichever tier holds the minutes asked about: a range spanning
+ * both reads the segments it overlaps and then the recent tier, in time order.
+ *
+ * Sealing writes the segment first (under a temporary name, then renamed) and only
+ * then drops the month from the recent tier, so a crash in between leaves the
+ * month in both; opening drops it from the recent tier again. An archive written
+ * before segments existed is sealed month by month the first time it is opened.
+ */
+public class TieredArchive implements AppointmentHistory, Closeable {
+
+    private static final String SUFFIX = ".seg";
+    private static final DateTimeFormatter SEGMENT_NAME = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    /**
+     * The sealed segments in time order, the minute the last one ends, and how many
+     * appointments they hold; replaced as one when a month is sealed.
+     */
+    private static final class Sealed {
+        final ArchiveSegment[] segments;
+        final int until;
+        final int size;
+
+        Sealed(ArchiveSegment[] segments) {
+            this.segments = segments;
+            this.until = segments.length == 0 ? Integer.MIN_VALUE : segments[segments.length - 1].untilMinute();
+            int total = 0;
+            for (ArchiveSegment s : segments) total += s.size();
+            this.size = total;
+        }
+    }
+
+    private final AppointmentArchive recent;
+    private final Path directory;
+    private volatile Sealed sealed;
+    // Queries hold the read lock, so a month never disappears from the recent tier while one is between the tiers.
+    private final ReadWriteLock tiers = new ReentrantReadWriteLock();
+
+    public static TieredArchive open(Path recentFile, Path segmentDirectory) throws IOException {
+        Files.createDirectories(segmentDirectory);
+        List<ArchiveSegment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(segmentDirectory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX + ".tmp")) {
+                    Files.delete(file); // a seal that did not finish; the recent tier still has the month
+                } else if (name.endsWith(SUFFIX)) {
+                    segments.add(ArchiveSegment.open(file));
+                }
+            }
+        }
+        segments.sort(Comparator.comparingInt(ArchiveSegment::fromMinute));
+        AppointmentArchive recent = AppointmentArchive.open(recentFile);
+        try {
+            TieredArchive archive = new TieredArchive(recent, segmentDirectory, segments.toArray(new ArchiveSegment[0]));
+            archive.sealFinishedMonths();
+            return archive;
+        } catch (IOException e) {
+            recent.close();
+            throw e;
+        }
+    }
+
+    private TieredArchive(AppointmentArchive recent, Path directory, ArchiveSegment[] segments) throws IOException {
+        this.recent = recent;
+        this.directory = directory;
+        this.sealed = new Sealed(segments);
+        int until = sealed.until;
+        if (recent.coveredUntil() < until) {
+            // The recent file was lost or replaced; it must not take appointments older than the segments.
+            recent.append(new long[0], new int[0], new int[0], new int[0], 0, until);
+        }
+        // Left over from a crash between writing a segment and dropping its month from here.
+        recent.dropBefore(until);
+    }
+
+    @Override
+    public int coveredUntil() {
+        return recent.coveredUntil();
+    }
+
+    @Override
+    public int size() {
+        tiers.readLock().lock();
+        try {
+            return sealed.size + recent.size();
+        } finally {
+            tiers.readLock().unlock();
+        }
+    }
+
+    /**
+     * The sealed segments' size on disk, in bytes.
+     */
+    public long sealedBytes() {
+        long bytes = 0;
+        for (ArchiveSegment s : sealed.segments) bytes += s.bytes();
+        return bytes;
+    }
+
+    /**
+     * How many appointments are in sealed segments, as opposed to the recent tier.
+     */
+    public int sealedSize() {
+        return sealed.size;
+    }
+
+    @Override
+    public boolean contains(long id, int epochMinute) {
+        tiers.readLock().lock();
+        try {
+            Sealed s = sealed;
+            if (epochMinute >= s.until) return recent.contains(id, epochMinute);
+            ArchiveSegment segment = segmentAt(s, epochMinute);
+            return segment != null && segment.contains(id, epochMinute);
+        } finally {
+            tiers.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isBooked(int doctorId, int epochMinute) {
+        tiers.readLock().lock();
+        try {
+            Sealed s = sealed;
+            if (epochMinute >= s.until) return recent.isBooked(doctorId, epochMinute);
+            ArchiveSegment segment = segmentAt(s, epochMinute);
+            return segment != null && segment.isBooked(doctorId, epochMinute);
+        } finally {
+            tiers.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachBetween(int fromMinute, int toMinute, RecordVisitor visitor) {
+        tiers.readLock().lock();
+        try {
+            Sealed s = sealed;
+            if (fromMinute < s.until) {
+                for (int i = segmentIndex(s, fromMinute); i < s.segments.length && s.segments[i].fromMinute() < toMinute; i++) {
+                    s.segments[i].forEachBetween(fromMinute, toMinute, visitor);
+                }
+            }
+            if (toMinute > s.until) {
+                recent.forEachBetween(Math.max(fromMinute, s.until), toMinute, visitor);
+            }
+        } finally {
+            tiers.readLock().unlock();
+        }
+    }
+
+    /**
+     * Appends to the recent tier; months this finishes are sealed by the next {@link #settle()}.
+     */
+    @Override
+    public synchronized void append(long[] ids, int[] patientIds, int[] doctorIds, int[] epochMinutes, int count, int until)
+            throws IOException {
+        recent.append(ids, patientIds, doctorIds, epochMinutes, count, until);
+    }
+
+    /**
+     * Seals any month that is now entirely archived.
+     */
+    @Override
+    public void settle() throws IOException {
+        sealFinishedMonths();
+    }
+
+    @Override
+    public void close() throws IOException {
+        recent.close();
+    }
+
+    // Seals the oldest month in the recent tier while the recent tier covers all of it.
+    private synchronized void sealFinishedMonths() throws IOException {
+        while (recent.size() > 0) {
+            long[] ids = new long[1];
+            int[] patientIds = new int[1], doctorIds = new int[1], minutes = new int[1];
+            recent.get(0, 1, ids, patientIds, doctorIds, minutes);
+            LocalDateTime month = Appointment.fromEpochMinute(minutes[0]).toLocalDate().withDayOfMonth(1).atStartOfDay();
+            int from = Appointment.toEpochMinute(month);
+            int until = Appointment.toEpochMinute(month.plusMonths(1));
+            if (until > recent.coveredUntil()) return;
+
+            int n = recent.indexOf(until);
+            ids = new long[n];
+            patientIds = new int[n];
+            doctorIds = new int[n];
+            minutes = new int[n];
+            recent.get(0, n, ids, patientIds, doctorIds, minutes);
+            Path file = directory.resolve(SEGMENT_NAME.format(month) + SUFFIX);
+            ArchiveSegment.write(file, from, until, ids, patientIds, doctorIds, minutes, n);
+            ArchiveSegment segment = ArchiveSegment.open(file);
+
+            tiers.writeLock().lock();
+            try {
+                ArchiveSegment[] segments = Arrays.copyOf(sealed.segments, sealed.segments.length + 1);
+                segments[segments.length - 1] = segment;
+                sealed = new Sealed(segments);
+                recent.dropBefore(until);
+            } finally {
+                tiers.writeLock().unlock();
+            }
+        }
+    }
+
+    private static ArchiveSegment segmentAt(Sealed s, int epochMinute) {
+        int i = segmentIndex(s, epochMinute);
+        if (i < s.segments.length && s.segments[i].fromMinute() <= epochMinute && epochMinute < s.segments[i].untilMinute()) {
+            return s.segments[i];
+        }
+        return null;
+    }
+
+    // The first segment ending after 'epochMinute'.
+    private static int segmentIndex(Sealed s, int epochMinute) {
+        int lo = 0, hi = s.segments.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (s.segments[mid].untilMinute() <= epochMinute) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,116 @@
+package com.scheduler.model;
+
+import com.scheduler.exception.AppointmentException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads booking, canceling, rescheduling and batch-booking a few doctors' slots
+ * at once: afterwards no doctor holds two appointments in one slot, and exactly the
+ * bookings that succeeded (less the cancellations) are held. The hand-run
+ * ConcurrentBookingStress under bench/ does the same at a larger scale.
+ */
+class ConcurrentBookingTest {
+
+    private static final int DOCTORS = 4;
+    private static final int SLOTS = 40;
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS = 3_000;
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    @Test
+    void noDoctorIsDoubleBookedUnderContention() throws InterruptedException {
+        Hospital hospital = new Hospital();
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, "General"));
+        }
+        for (int t = 0; t < THREADS; t++) {
+            hospital.addPatient(new Patient("Patient " + t, 30, "F", "Checkup", false));
+        }
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger canceled = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            String patient = "Patient " + t;
+            Random random = new Random(t);
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS; i++) {
+                        String doctor = "Doctor " + random.nextInt(DOCTORS);
+                        LocalDateTime slot = START.plusMinutes(15L * random.nextInt(SLOTS));
+                        switch (random.nextInt(10)) {
+                            case 0:
+                                if (hospital.cancelAppointment(patient, doctor).startsWith("Successfully")) {
+                                    canceled.incrementAndGet();
+                                }
+                                break;
+                            case 1:
+                                List<Appointment> mine = hospital.findAppointments(patient, null);
+                                if (!mine.isEmpty()) {
+                                    try {
+                                        hospital.rescheduleAppointment(mine.get(0).getId(), slot);
+                                    } catch (AppointmentException expected) {
+                                        // Taken, or canceled by now.
+                                    }
+                                }
+                                break;
+                            case 2:
+                                List<BookingRequest> rows = new ArrayList<>();
+                                for (int r = 0; r < 3; r++) {
+                                    rows.add(new BookingRequest(patient, "Doctor " + random.nextInt(DOCTORS),
+                                            START.plusMinutes(15L * random.nextInt(SLOTS))));
+                                }
+                                for (BookingResult result : hospital.scheduleAll(rows, random.nextBoolean())) {
+                                    if (result.isBooked()) booked.incrementAndGet();
+                                }
+                                break;
+                            default:
+                                try {
+                                    hospital.scheduleAppointment(patient, doctor, slot);
+                                    booked.incrementAndGet();
+                                } catch (AppointmentException expected) {
+                                    // Slot already taken; that is the point of the test.
+                                }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertNull(failure.get(), () -> "worker failed: " + failure.get());
+
+        Set<String> seen = new HashSet<>();
+        int listed = 0;
+        for (Appointment a : hospital.getAllAppointments()) {
+            listed++;
+            assertTrue(seen.add(a.getDoctor().getName() + "@" + a.getAppointmentDateTime()), () -> "double booked: " + a);
+        }
+        int expected = booked.get() - canceled.get();
+        assertEquals(expected, listed);
+        assertEquals(expected, hospital.getAppointmentCount());
+        assertTrue(listed > 0);
+    }
+}
@@ -0,0 +1,112 @@
+package com.scheduler.model;
+
+import com.scheduler.exception.AppointmentException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmergencyBumpTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 4, 1);
+    private static final LocalTime END_OF_DAY = LocalTime.of(18, 0);
+
+    /**
+     * Random bookings, emergencies, reschedules and cancellations under an 18:00 end of day:
+     * no two non-emergencies ever share a slot, nothing lands at or past 18:00, and every
+     * refused emergency left the schedule as it was.
+     */
+    @Test
+    void cascadeKeepsTheScheduleConsistent() {
+        Random random = new Random(16);
+        Hospital hospital = new Hospital();
+        hospital.setEndOfDay(END_OF_DAY);
+        for (int d = 0; d < 3; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, "General"));
+        }
+        for (int p = 0; p < 30; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 30, "F", "Checkup", p % 5 == 0));
+        }
+        int refused = 0, bumped = 0;
+        for (int i = 0; i < 5000; i++) {
+            String patient = "Patient " + random.nextInt(30);
+            String doctor = "Doctor " + random.nextInt(3);
+            // Late in the day, so chains run into the end of day.
+            LocalDateTime slot = DAY.plusDays(random.nextInt(3)).atTime(15, 0).plusMinutes(15L * random.nextInt(12));
+            List<String> before = schedule(hospital);
+            try {
+                int op = random.nextInt(10);
+                if (op < 6) {
+                    if (hospital.scheduleAppointment(patient, doctor, slot).contains("Moved later")) bumped++;
+                } else if (op < 8) {
+                    List<Appointment> theirs = hospital.findAppointments(patient, null);
+                    if (!theirs.isEmpty()) hospital.rescheduleAppointment(theirs.get(0).getId(), slot);
+                } else {
+                    hospital.cancelAppointment(patient, doctor);
+                }
+            } catch (AppointmentException e) {
+                assertEquals(before, schedule(hospital), e.getMessage());
+                if (e.getMessage().contains("too full")) refused++;
+            }
+            assertConsistent(hospital);
+        }
+        assertTrue(refused > 0 && bumped > 0, refused + " refused, " + bumped + " bumped");
+    }
+
+    /**
+     * An emergency rescheduled earlier in its day bumps the appointments in between into
+     * the slot it is leaving, rather than past it.
+     */
+    @Test
+    void reschedulingAnEmergencyFreesItsOwnSlot() throws AppointmentException {
+        Hospital hospital = new Hospital();
+        hospital.setEndOfDay(LocalTime.of(9, 45));
+        hospital.addDoctor(new Doctor("Doctor 0", "General"));
+        hospital.addPatient(new Patient("Patient A", 30, "F", "Checkup", false));
+        hospital.addPatient(new Patient("Patient B", 30, "F", "Checkup", false));
+        hospital.addPatient(new Patient("Patient X", 30, "F", "Bleeding", true));
+        hospital.scheduleAppointment("Patient A", "Doctor 0", DAY.atTime(9, 0));
+        hospital.scheduleAppointment("Patient B", "Doctor 0", DAY.atTime(9, 15));
+        hospital.scheduleAppointment("Patient X", "Doctor 0", DAY.atTime(9, 30));
+
+        long id = hospital.findAppointments("Patient X", null).get(0).getId();
+        hospital.rescheduleAppointment(id, DAY.atTime(9, 0));
+
+        assertEquals(DAY.atTime(9, 0), time(hospital, "Patient X"));
+        assertEquals(DAY.atTime(9, 15), time(hospital, "Patient A"));
+        assertEquals(DAY.atTime(9, 30), time(hospital, "Patient B"));
+    }
+
+    private static LocalDateTime time(Hospital hospital, String patient) {
+        return hospital.findAppointments(patient, null).get(0).getAppointmentDateTime();
+    }
+
+    private static void assertConsistent(Hospital hospital) {
+        Map<String, Appointment> nonEmergencyAt = new HashMap<>();
+        for (Appointment a : hospital.getAllAppointments()) {
+            assertTrue(a.getAppointmentDateTime().toLocalTime().isBefore(END_OF_DAY), () -> "past the end of day: " + a);
+            if (a.getPatient().isEmergency()) continue;
+            String key = a.getDoctor().getName() + "@" + a.getAppointmentDateTime();
+            Appointment other = nonEmergencyAt.put(key, a);
+            assertFalse(other != null, () -> "shared slot: " + a + " and " + other);
+        }
+    }
+
+    private static List<String> schedule(Hospital hospital) {
+        List<String> result = new ArrayList<>();
+        for (Appointment a : hospital.getAllAppointments()) {
+            result.add(a.getId() + "|" + a.getPatient().getName() + "|" + a.getDoctor().getName() + "|" + a.getAppointmentDateTime());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,138 @@
+package com.scheduler.model;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.util.TieredArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * findFreeSlots and findFreeSlotsBySpecialization against a brute-force scan of every
+ * grid slot, after random bookings (some off the grid), emergency bumps, cancellations
+ * and an archive run.
+ */
+class FreeSlotSearchTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2030, 5, 6);
+    private static final int DAYS = 6;
+    private static final int DOCTORS = 5;
+    private static final LocalTime OPEN = LocalTime.of(8, 0);
+    private static final LocalTime CLOSE = LocalTime.of(12, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matchesBruteForce() throws Exception {
+        Random random = new Random(14);
+        Hospital hospital = new Hospital();
+        hospital.setStartOfDay(OPEN);
+        hospital.setEndOfDay(CLOSE);
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, d < 3 ? "General" : "Cardiology"));
+        }
+        for (int p = 0; p < 30; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 30, "F", "Checkup", p % 6 == 0));
+        }
+        for (int i = 0; i < 4000; i++) {
+            String patient = "Patient " + random.nextInt(30);
+            String doctor = "Doctor " + random.nextInt(DOCTORS);
+            try {
+                if (random.nextInt(8) == 0) {
+                    hospital.cancelAppointment(patient, doctor);
+                } else {
+                    // Mostly in hours and on the grid, but not always.
+                    int minutes = random.nextInt(10) == 0 ? random.nextInt(24 * 60) : 8 * 60 + 15 * random.nextInt(16);
+                    hospital.scheduleAppointment(patient, doctor, FIRST.plusDays(random.nextInt(DAYS)).atStartOfDay().plusMinutes(minutes));
+                }
+            } catch (AppointmentException refused) {
+                // Taken, or the emergency's day is full.
+            }
+        }
+        try (TieredArchive archive = TieredArchive.open(dir.resolve("hospital.archive"), dir.resolve("hospital.segments"))) {
+            hospital.setHistory(archive);
+            hospital.archiveAppointmentsBefore(FIRST.plusDays(2).atStartOfDay());
+
+            for (int q = 0; q < 200; q++) {
+                LocalDateTime after = FIRST.minusDays(1).atStartOfDay().plusMinutes(random.nextInt((DAYS + 2) * 24 * 60));
+                int count = 1 + random.nextInt(40);
+                Doctor doctor = hospital.getDoctor(random.nextInt(DOCTORS));
+                assertEquals(bruteForce(hospital, List.of(doctor), after, count),
+                        minutes(hospital.findFreeSlots(doctor.getName(), after, count)), doctor + " after " + after);
+
+                String specialization = random.nextBoolean() ? "general" : "Cardiology";
+                List<Doctor> specialists = new ArrayList<>();
+                for (Doctor d : hospital.getAllDoctors()) {
+                    if (d.getSpecialization().equalsIgnoreCase(specialization)) specialists.add(d);
+                }
+                assertEquals(bruteForce(hospital, specialists, after, count),
+                        minutes(hospital.findFreeSlotsBySpecialization(specialization, after, count)), specialization + " after " + after);
+            }
+        }
+    }
+
+    @Test
+    void noSlotsWhenTheHoursHoldNone() throws AppointmentException {
+        Hospital hospital = new Hospital();
+        hospital.addDoctor(new Doctor("Doctor 0", "General"));
+        hospital.setStartOfDay(LocalTime.of(9, 5));
+        hospital.setEndOfDay(LocalTime.of(9, 10));
+        assertEquals(List.of(), hospital.findFreeSlots("Doctor 0", FIRST.atStartOfDay(), 3));
+    }
+
+    @Test
+    void badCountsAndDatesAreRefused() {
+        Hospital hospital = new Hospital();
+        hospital.addDoctor(new Doctor("Doctor 0", "General"));
+        LocalDateTime after = FIRST.atStartOfDay();
+        assertThrows(IllegalArgumentException.class, () -> hospital.findFreeSlots("Doctor 0", after, 0));
+        assertThrows(IllegalArgumentException.class, () -> hospital.findFreeSlotsBySpecialization("General", after, -1));
+        LocalDateTime farOff = LocalDateTime.of(9999, 1, 1, 9, 0);
+        assertThrows(AppointmentException.class, () -> hospital.findFreeSlots("Doctor 0", farOff, 3));
+        assertThrows(AppointmentException.class, () -> hospital.findFreeSlotsBySpecialization("General", farOff, 3));
+    }
+
+    // "doctor id@epoch minute" for each slot, in order.
+    private static List<String> minutes(List<FreeSlot> slots) {
+        List<String> result = new ArrayList<>();
+        for (FreeSlot slot : slots) result.add(slot.getDoctor().getId() + "@" + slot.getEpochMinute());
+        return result;
+    }
+
+    private static List<String> bruteForce(Hospital hospital, List<Doctor> doctors, LocalDateTime after, int count) {
+        int from = Appointment.toEpochMinute(after);
+        int first = Math.floorDiv(from + 14, 15) * 15;
+        List<int[]> found = new ArrayList<>();
+        for (Doctor doctor : doctors) {
+            Set<Integer> booked = new HashSet<>();
+            for (int d = -2; d < DAYS + 8; d++) {
+                for (Appointment a : hospital.getAppointmentsForDoctor(doctor, FIRST.plusDays(d))) booked.add(a.getEpochMinute());
+            }
+            int mine = 0;
+            for (int minute = first; mine < count; minute += 15) {
+                int ofDay = Math.floorMod(minute, 24 * 60);
+                if (ofDay >= OPEN.toSecondOfDay() / 60 && ofDay < CLOSE.toSecondOfDay() / 60 && !booked.contains(minute)) {
+                    found.add(new int[] {doctor.getId(), minute});
+                    mine++;
+                }
+            }
+        }
+        found.sort(Comparator.<int[]>comparingInt(f -> f[1]).thenComparingInt(f -> f[0]));
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(count, found.size()); i++) result.add(found.get(i)[0] + "@" + found.get(i)[1]);
+        return result;
+    }
+}
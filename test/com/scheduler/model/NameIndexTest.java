@@ -0,0 +1,123 @@
+package com.scheduler.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * NameIndex against a brute-force scan of every word start of every key, over random
+ * queries with and without typos, while names keep being added (so both the short
+ * recent array and the merge into the main one are exercised).
+ */
+class NameIndexTest {
+
+    private static final String[] WORDS = {
+            "ann", "anna", "anne", "annette", "bob", "bobby", "smith", "smyth", "smithers", "john", "jon", "jones",
+            "johnson", "maria", "mario", "marie", "van", "der", "berg", "li", "lee", "leigh", "o'neil", "oneal", "zoe"
+    };
+
+    @Test
+    void matchesBruteForce() {
+        Random random = new Random(20);
+        NameIndex index = new NameIndex();
+        List<String> keys = new ArrayList<>();
+        Set<String> unique = new LinkedHashSet<>();
+        for (int batch = 0; batch < 12; batch++) {
+            // One bulk load past the recent array's limit (counting every word start), then small additions.
+            int size = batch == 0 ? 2500 : 1 + random.nextInt(300);
+            for (int i = 0; i < size; i++) {
+                String key = Person.normalizeName(name(random));
+                if (unique.add(key)) {
+                    keys.add(key);
+                    index.add(key);
+                }
+            }
+            for (int q = 0; q < 35; q++) {
+                String query = query(random, keys.get(random.nextInt(keys.size())));
+                int limit = 1 + random.nextInt(12);
+                assertEquals(bruteForce(keys, query, limit), index.search(query, limit), "query '" + query + "' limit " + limit);
+            }
+        }
+    }
+
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int w = 1 + random.nextInt(3); w > 0; w--) {
+            if (name.length() > 0) name.append(' ');
+            String word = WORDS[random.nextInt(WORDS.length)];
+            name.append(random.nextBoolean() ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            // Rarer names too, so not every query has hundreds of answers.
+            if (random.nextInt(3) == 0) name.append((char) ('a' + random.nextInt(26)));
+        }
+        return name.toString();
+    }
+
+    // A prefix of one of the key's words, possibly with a typo or two.
+    private static String query(Random random, String key) {
+        String[] words = key.split(" ");
+        StringBuilder q = new StringBuilder(words[random.nextInt(words.length)]);
+        if (random.nextInt(4) == 0 && q.length() < key.length()) q = new StringBuilder(key.substring(key.indexOf(q.toString())));
+        q.setLength(1 + random.nextInt(q.length()));
+        for (int typos = random.nextInt(3); typos > 0 && q.length() > 1; typos--) {
+            int at = random.nextInt(q.length() - 1);
+            switch (random.nextInt(4)) {
+                case 0: q.setCharAt(at, (char) ('a' + random.nextInt(26))); break;
+                case 1: q.deleteCharAt(at); break;
+                case 2: q.insert(at, (char) ('a' + random.nextInt(26))); break;
+                default: char c = q.charAt(at); q.setCharAt(at, q.charAt(at + 1)); q.setCharAt(at + 1, c);
+            }
+        }
+        return random.nextInt(5) == 0 ? q.toString().toUpperCase() : q.toString();
+    }
+
+    // Every word start of every key, at its closest distance to the query; closest first, then by entry.
+    private static List<String> bruteForce(List<String> keys, String query, int limit) {
+        String q = Person.normalizeName(query.stripLeading());
+        int maxEdits = q.length() < 3 ? 0 : q.length() < 6 ? 1 : 2;
+        List<Object[]> matches = new ArrayList<>();
+        for (String key : keys) {
+            for (int i = 0; i < key.length(); i++) {
+                if (i > 0 && !(key.charAt(i - 1) == ' ' && key.charAt(i) != ' ')) continue;
+                String word = key.substring(i);
+                int best = prefixDistance(q, word);
+                if (best <= maxEdits) {
+                    String entry = i == 0 ? key : word + '\u0001' + key.substring(0, i);
+                    matches.add(new Object[] {best, entry, key});
+                }
+            }
+        }
+        matches.sort(Comparator.<Object[]>comparingInt(m -> (Integer) m[0]).thenComparing(m -> (String) m[1]));
+        Set<String> found = new LinkedHashSet<>();
+        for (Object[] m : matches) {
+            if (found.size() == limit) break;
+            found.add((String) m[2]);
+        }
+        return new ArrayList<>(found);
+    }
+
+    // The least edit distance, with adjacent swaps (optimal string alignment), from 'a' to any prefix of 'b'.
+    private static int prefixDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= b.length(); j++) best = Math.min(best, d[a.length()][j]);
+        return best;
+    }
+}
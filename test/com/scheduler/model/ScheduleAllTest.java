@@ -0,0 +1,137 @@
+package com.scheduler.model;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.util.HospitalSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * scheduleAll against the same rows booked one at a time, in (doctor, time, row) order,
+ * on a copy of the hospital: over random batches with emergencies, unknown names and an
+ * unavailable doctor, in both modes, the statuses and the final schedule match, and a
+ * failed all-or-nothing batch leaves the hospital as it was without telling any listener.
+ */
+class ScheduleAllTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 2, 4);
+    private static final int DOCTORS = 4;
+    private static final int PATIENTS = 20;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void matchesBookingOneAtATime() throws Exception {
+        Random random = new Random(15);
+        Hospital hospital = new Hospital();
+        hospital.setEndOfDay(LocalTime.of(11, 0));
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, "General"));
+        }
+        hospital.getDoctor(DOCTORS - 1).setAvailable(false);
+        for (int p = 0; p < PATIENTS; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 30, "F", "Checkup", p % 4 == 0));
+        }
+        AtomicInteger events = new AtomicInteger();
+        hospital.addListener(new HospitalListener() {
+            @Override public void appointmentScheduled(Appointment appointment) { events.incrementAndGet(); }
+            @Override public void appointmentMoved(Appointment appointment, LocalDateTime previousDateTime) { events.incrementAndGet(); }
+            @Override public void appointmentCanceled(Appointment appointment) { events.incrementAndGet(); }
+        });
+
+        int rolledBack = 0, applied = 0;
+        for (int round = 0; round < 200; round++) {
+            boolean partial = random.nextBoolean();
+            List<BookingRequest> rows = new ArrayList<>();
+            for (int r = 1 + random.nextInt(6); r > 0; r--) {
+                String patient = random.nextInt(30) == 0 ? "Nobody" : "Patient " + random.nextInt(PATIENTS);
+                String doctor = random.nextInt(30) == 0 ? "Dr. Nobody" : "Doctor " + random.nextInt(DOCTORS);
+                rows.add(new BookingRequest(patient, doctor,
+                        DAY.plusDays(random.nextInt(4)).atTime(9, 0).plusMinutes(15L * random.nextInt(8))));
+            }
+
+            Path file = dir.resolve("copy.dat");
+            HospitalSnapshot.write(hospital, file);
+            Hospital copy = HospitalSnapshot.read(file);
+            copy.setEndOfDay(hospital.getEndOfDay());
+            List<BookingResult.Status> expected = oneAtATime(copy, rows);
+            boolean anyFailed = expected.stream().anyMatch(s -> s != BookingResult.Status.BOOKED);
+
+            List<String> before = schedule(hospital);
+            int eventsBefore = events.get();
+            List<BookingResult> results = hospital.scheduleAll(rows, partial);
+
+            List<BookingResult.Status> statuses = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(rows.get(i), results.get(i).getRequest());
+                statuses.add(results.get(i).getStatus());
+            }
+            if (anyFailed && !partial) {
+                expected.replaceAll(s -> s == BookingResult.Status.BOOKED ? BookingResult.Status.NOT_APPLIED : s);
+                assertEquals(expected, statuses, "round " + round);
+                assertEquals(before, schedule(hospital), "round " + round);
+                assertEquals(eventsBefore, events.get(), "round " + round);
+                rolledBack++;
+            } else {
+                assertEquals(expected, statuses, "round " + round);
+                assertEquals(schedule(copy), schedule(hospital), "round " + round);
+                applied++;
+            }
+        }
+        assertTrue(rolledBack > 0 && applied > 0, rolledBack + " rolled back, " + applied + " applied");
+    }
+
+    // Books the rows one at a time in the order scheduleAll applies them, and reports each row's status in row order.
+    private static List<BookingResult.Status> oneAtATime(Hospital hospital, List<BookingRequest> rows) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) order.add(i);
+        order.sort(Comparator.<Integer>comparingInt(i -> hospital.findDoctorByName(rows.get(i).getDoctorName())
+                        .map(Doctor::getId).orElse(-1))
+                .thenComparing(i -> rows.get(i).getDateTime())
+                .thenComparingInt(i -> i));
+        List<BookingResult.Status> statuses = new ArrayList<>(Collections.nCopies(rows.size(), (BookingResult.Status) null));
+        for (int i : order) {
+            BookingRequest row = rows.get(i);
+            try {
+                hospital.scheduleAppointment(row.getPatientName(), row.getDoctorName(), row.getDateTime());
+                statuses.set(i, BookingResult.Status.BOOKED);
+            } catch (AppointmentException e) {
+                statuses.set(i, status(e.getMessage()));
+            }
+        }
+        return statuses;
+    }
+
+    private static BookingResult.Status status(String message) {
+        if (message.startsWith("Patient not found")) return BookingResult.Status.PATIENT_NOT_FOUND;
+        if (message.startsWith("Doctor not found")) return BookingResult.Status.DOCTOR_NOT_FOUND;
+        if (message.contains("is not available")) return BookingResult.Status.DOCTOR_NOT_AVAILABLE;
+        if (message.contains("already has an appointment")) return BookingResult.Status.CONFLICT;
+        if (message.contains("too full")) return BookingResult.Status.DAY_FULL;
+        throw new AssertionError("Unexpected refusal: " + message);
+    }
+
+    // Who is booked with whom and when, ids aside (a rolled-back batch still uses up ids).
+    private static List<String> schedule(Hospital hospital) {
+        List<String> result = new ArrayList<>();
+        for (Appointment a : hospital.getAllAppointments()) {
+            result.add(a.getPatient().getName() + "|" + a.getDoctor().getName() + "|" + a.getAppointmentDateTime());
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+package com.scheduler.server;
+
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+import com.scheduler.util.OperationLog;
+import com.scheduler.util.TieredArchive;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HospitalServerTest {
+
+    @TempDir
+    Path dir;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Hospital hospital;
+    private OperationLog log;
+    private HospitalServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        hospital = new Hospital();
+        hospital.addPatient(new Patient("Patient A", 30, "F", "Checkup", false));
+        hospital.addDoctor(new Doctor("Doctor A", "General"));
+        // Recording too, since the recorder sees every call before the Hospital checks it.
+        log = OperationLog.create(dir.resolve("ops.log"), hospital);
+        hospital.setRecorder(log);
+        server = new HospitalServer(hospital, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        server.stop(0);
+        log.close();
+    }
+
+    @Test
+    void farFutureDatesAreBadRequests() throws Exception {
+        assertEquals(400, send("POST", "/appointments", "patient=Patient+A&doctor=Doctor+A&dateTime=9999-01-01T09:00"));
+        assertEquals(201, send("POST", "/appointments", "patient=Patient+A&doctor=Doctor+A&dateTime=2030-01-01T09:00"));
+        long id = hospital.findAppointments("Patient A", null).get(0).getId();
+        assertEquals(400, send("PUT", "/appointments?id=" + id + "&dateTime=9999-01-01T09:00", ""));
+        assertEquals(400, send("GET", "/slots?doctor=Doctor+A&after=9999-01-01T09:00", null));
+        assertEquals(400, send("GET", "/slots?specialization=General&after=9999-01-01T09:00", null));
+        assertEquals(400, send("POST", "/reassignments", "doctor=Doctor+A&from=2030-01-01T00:00&to=9999-01-01T00:00"));
+    }
+
+    @Test
+    void slotCountsBelowOneAskForOne() throws Exception {
+        assertEquals(200, send("GET", "/slots?doctor=Doctor+A&after=2030-01-01T09:00&count=-5", null));
+        assertEquals(200, send("GET", "/slots?specialization=General&after=2030-01-01T09:00&count=-5", null));
+        assertEquals(200, send("GET", "/slots?specialization=General&after=2030-01-01T09:00&count=0", null));
+    }
+
+    @Test
+    void refusalsMapToStatusesByReason() throws Exception {
+        assertEquals(404, send("GET", "/slots?doctor=Dr.+Nobody", null));
+        assertEquals(404, send("PUT", "/appointments?id=999&dateTime=2030-01-01T09:00", ""));
+        hospital.findDoctorByName("Doctor A").get().setAvailable(false);
+        assertEquals(409, send("GET", "/slots?doctor=Doctor+A", null));
+    }
+
+    @Test
+    void rangeListingMergesTheArchiveInTimeOrder() throws Exception {
+        LocalDate today = LocalDate.now();
+        hospital.scheduleAppointment("Patient A", "Doctor A", today.minusDays(2).atTime(9, 0));
+        hospital.scheduleAppointment("Patient A", "Doctor A", today.plusDays(1).atTime(9, 0));
+        try (TieredArchive archive = TieredArchive.open(dir.resolve("hospital.archive"), dir.resolve("hospital.segments"))) {
+            hospital.setHistory(archive);
+            assertEquals(1, hospital.archiveAppointmentsBefore(today.atStartOfDay()));
+            // Booked into the past after the archive run, so it stays in memory among the archived ones.
+            hospital.scheduleAppointment("Patient A", "Doctor A", today.minusDays(3).atTime(9, 0));
+
+            String body = get("/appointments?from=" + today.minusDays(7).atStartOfDay() + "&to=" + today.plusDays(7).atStartOfDay());
+            int first = body.indexOf(today.minusDays(3).toString());
+            int second = body.indexOf(today.minusDays(2).toString());
+            int third = body.indexOf(today.plusDays(1).toString());
+            assertTrue(first > 0 && first < second && second < third, body);
+            assertEquals("[]", get("/appointments?from=2040-01-01T00:00&to=2040-01-02T00:00"));
+        }
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path)).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), response.body());
+        return response.body();
+    }
+
+    private int send(String method, String path, String form) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+        if (form == null) {
+            request.GET();
+        } else {
+            request.header("Content-Type", "application/x-www-form-urlencoded")
+                    .method(method, HttpRequest.BodyPublishers.ofString(form));
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
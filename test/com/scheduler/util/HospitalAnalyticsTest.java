@@ -0,0 +1,160 @@
+package com.scheduler.util;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HospitalAnalyticsTest {
+
+    private static final LocalDate FIRST = LocalDate.of(2030, 3, 1);
+    private static final int DAYS = 5;
+    private static final int DOCTORS = 6;
+    private static final int PATIENTS = 40;
+
+    /**
+     * The live counts, after seeding and then bookings, emergency bumps, reschedules and
+     * cancellations, match a recompute from the appointments themselves.
+     */
+    @Test
+    void liveReportMatchesRecompute() {
+        Random random = new Random(13);
+        Hospital hospital = new Hospital();
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, d % 2 == 0 ? "General" : "Cardiology"));
+        }
+        for (int p = 0; p < PATIENTS; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 30, "F", "Checkup", p % 5 == 0));
+        }
+        randomTraffic(hospital, random, 300);
+        HospitalAnalytics analytics = new HospitalAnalytics(hospital);
+        randomTraffic(hospital, random, 1500);
+
+        HospitalReport live = analytics.report(FIRST, FIRST.plusDays(DAYS));
+        HospitalReport recomputed = HospitalAnalytics.recompute(hospital, FIRST, FIRST.plusDays(DAYS));
+        for (Doctor doctor : hospital.getAllDoctors()) {
+            for (int d = 0; d < DAYS; d++) {
+                LocalDate day = FIRST.plusDays(d);
+                assertEquals(recomputed.getAppointments(doctor, day), live.getAppointments(doctor, day), doctor + " " + day);
+                assertEquals(recomputed.getFreeSlots(doctor, day), live.getFreeSlots(doctor, day), doctor + " " + day);
+                assertEquals(recomputed.getAppointments(doctor, day), analytics.getAppointments(doctor, day));
+                assertEquals(recomputed.getFreeSlots(doctor, day), analytics.getFreeSlots(doctor, day));
+            }
+        }
+        assertEquals(recomputed.getTotalAppointments(), hospital.getAppointmentCount());
+        assertEquals(recomputed.getEmergencies(), live.getEmergencies());
+        assertEquals(recomputed.getUtilisationBySpecialization(), live.getUtilisationBySpecialization());
+        assertTrue(analytics.getBumpCount() > 0, "the traffic should include emergency bumps");
+    }
+
+    /**
+     * Created while other threads keep booking, rescheduling and canceling, as happens when
+     * the startup archive run or the server is already going: the counts still match.
+     */
+    @Test
+    void countsStayRightWhenCreatedUnderTraffic() throws Exception {
+        Hospital hospital = new Hospital();
+        for (int d = 0; d < DOCTORS; d++) {
+            hospital.addDoctor(new Doctor("Doctor " + d, d % 2 == 0 ? "General" : "Cardiology"));
+        }
+        for (int p = 0; p < PATIENTS; p++) {
+            hospital.addPatient(new Patient("Patient " + p, 30, "F", "Checkup", p % 5 == 0));
+        }
+        randomTraffic(hospital, new Random(1), 20_000);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            Random random = new Random(100 + t);
+            threads[t] = new Thread(() -> {
+                try {
+                    while (!done.get()) randomTraffic(hospital, random, 100);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads[t].start();
+        }
+        HospitalAnalytics analytics;
+        try {
+            Thread.sleep(20);
+            analytics = new HospitalAnalytics(hospital);
+            Thread.sleep(20);
+        } finally {
+            done.set(true);
+            for (Thread thread : threads) thread.join();
+        }
+        assertNull(failure.get());
+
+        HospitalReport recomputed = HospitalAnalytics.recompute(hospital, FIRST, FIRST.plusDays(DAYS));
+        for (Doctor doctor : hospital.getAllDoctors()) {
+            for (int d = 0; d < DAYS; d++) {
+                LocalDate day = FIRST.plusDays(d);
+                assertEquals(recomputed.getAppointments(doctor, day), analytics.getAppointments(doctor, day), doctor + " " + day);
+                assertEquals(recomputed.getFreeSlots(doctor, day), analytics.getFreeSlots(doctor, day), doctor + " " + day);
+            }
+        }
+        assertEquals(recomputed.getEmergencies(), analytics.report(FIRST, FIRST.plusDays(DAYS)).getEmergencies());
+    }
+
+    @Test
+    void reschedulesAreNotBumps() throws AppointmentException {
+        Hospital hospital = new Hospital();
+        Doctor doctor = new Doctor("Doctor 0", "General");
+        hospital.addDoctor(doctor);
+        hospital.addPatient(new Patient("Patient A", 30, "F", "Checkup", false));
+        hospital.addPatient(new Patient("Patient E", 30, "F", "Bleeding", true));
+        HospitalAnalytics analytics = new HospitalAnalytics(hospital);
+
+        hospital.scheduleAppointment("Patient A", "Doctor 0", FIRST.atTime(9, 0));
+        long id = hospital.findAppointments("Patient A", null).get(0).getId();
+        hospital.rescheduleAppointment(id, FIRST.plusDays(1).atTime(9, 0));
+        assertEquals(0, analytics.getBumpCount());
+        assertEquals(0, analytics.getAppointments(doctor, FIRST));
+        assertEquals(1, analytics.getAppointments(doctor, FIRST.plusDays(1)));
+
+        hospital.scheduleAppointment("Patient E", "Doctor 0", FIRST.plusDays(1).atTime(9, 0));
+        assertEquals(1, analytics.getBumpCount());
+        assertEquals(1, analytics.report(FIRST, FIRST.plusDays(2)).getBumps());
+    }
+
+    private static void randomTraffic(Hospital hospital, Random random, int operations) {
+        for (int i = 0; i < operations; i++) {
+            String patient = "Patient " + random.nextInt(PATIENTS);
+            String doctor = "Doctor " + random.nextInt(DOCTORS);
+            int op = random.nextInt(10);
+            try {
+                if (op < 6) {
+                    hospital.scheduleAppointment(patient, doctor, slot(random));
+                } else if (op < 8) {
+                    hospital.cancelAppointment(patient, doctor);
+                } else {
+                    List<Appointment> theirs = hospital.findAppointments(patient, null);
+                    if (!theirs.isEmpty()) {
+                        hospital.rescheduleAppointment(theirs.get(random.nextInt(theirs.size())).getId(), slot(random));
+                    }
+                }
+            } catch (AppointmentException refused) {
+                // Conflicts and full days are part of the traffic.
+            }
+        }
+    }
+
+    // A busy morning, so emergencies find appointments to bump.
+    private static LocalDateTime slot(Random random) {
+        return FIRST.plusDays(random.nextInt(DAYS)).atTime(9, 0).plusMinutes(15L * random.nextInt(16));
+    }
+}
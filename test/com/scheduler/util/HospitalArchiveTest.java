@@ -0,0 +1,194 @@
+package com.scheduler.util;
+
+import com.scheduler.exception.AppointmentException;
+import com.scheduler.model.Appointment;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Archiving appointments into a TieredArchive and saving the rest in a snapshot,
+ * the way DataManager does, then loading both back.
+ */
+class HospitalArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void archivedIdsAreNotHandedOutAgainAfterAReload() throws Exception {
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        Hospital hospital = hospital();
+        try (TieredArchive archive = open()) {
+            hospital.setHistory(archive);
+            hospital.scheduleAppointment("Patient A", "Doctor A", now.plusWeeks(1));
+            hospital.scheduleAppointment("Patient B", "Doctor A", now.minusDays(1));
+            assertEquals(1, hospital.archiveAppointmentsBefore(now.toLocalDate().atStartOfDay()));
+            HospitalSnapshot.write(hospital, dir.resolve("hospital.dat"));
+        }
+
+        Hospital reloaded = HospitalSnapshot.read(dir.resolve("hospital.dat"));
+        try (TieredArchive archive = open()) {
+            reloaded.setHistory(archive);
+            reloaded.scheduleAppointment("Patient B", "Doctor A", now.plusWeeks(2));
+            Appointment booked = reloaded.findAppointments("Patient B", "Doctor A").get(0);
+            assertEquals(3, booked.getId());
+            // The archived appointment still holds its slot.
+            assertThrows(AppointmentException.class,
+                    () -> reloaded.scheduleAppointment("Patient A", "Doctor A", now.minusDays(1)));
+        }
+    }
+
+    @Test
+    void nothingIsArchivedWithoutAHistoryStore() throws Exception {
+        Hospital hospital = hospital();
+        hospital.scheduleAppointment("Patient A", "Doctor A", LocalDate.now().minusDays(1).atTime(9, 0));
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        assertFalse(hospital.hasAppointmentsToArchive(today));
+        assertEquals(0, hospital.archiveAppointmentsBefore(today));
+        assertEquals(1, hospital.getAppointmentCount());
+    }
+
+    @Test
+    void slotsStayTakenWhileTheyAreArchived() throws Exception {
+        int days = 60;
+        LocalDate first = LocalDate.of(2030, 1, 1);
+        Hospital hospital = hospital();
+        for (int day = 0; day < days; day++) {
+            for (int slot = 0; slot < 8; slot++) {
+                hospital.scheduleAppointment("Patient A", "Doctor A", first.plusDays(day).atTime(9, 0).plusMinutes(15L * slot));
+            }
+        }
+        try (TieredArchive archive = open()) {
+            hospital.setHistory(archive);
+            AtomicInteger doubleBooked = new AtomicInteger();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(1);
+            Thread[] bookers = new Thread[4];
+            for (int t = 0; t < bookers.length; t++) {
+                int offset = t;
+                bookers[t] = new Thread(() -> {
+                    try {
+                        for (int i = offset; done.getCount() > 0; i++) {
+                            // Every one of these slots is taken, in memory or in the archive.
+                            LocalDateTime slot = first.plusDays(i % days).atTime(9, 0).plusMinutes(15L * (i % 8));
+                            try {
+                                hospital.scheduleAppointment("Patient B", "Doctor A", slot);
+                                doubleBooked.incrementAndGet();
+                            } catch (AppointmentException expected) {
+                                // Taken, as it should be.
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                bookers[t].start();
+            }
+            int archived = 0;
+            try {
+                for (int day = 1; day <= days; day++) {
+                    archived += hospital.archiveAppointmentsBefore(first.plusDays(day).atStartOfDay());
+                }
+            } finally {
+                done.countDown();
+                for (Thread booker : bookers) {
+                    booker.join();
+                }
+            }
+            assertNull(failure.get());
+            assertEquals(0, doubleBooked.get());
+            assertEquals(days * 8, archived);
+            assertEquals(0, hospital.getAppointmentCount());
+            // January and February were sealed as each finished, with the bookers still probing them.
+            assertEquals((31 + 28) * 8, archive.sealedSize());
+        }
+    }
+
+    /**
+     * A Java-serialized hospital.dat from an older version may repeat a name. Archived
+     * records refer to people by registry number, so the numbers given on that legacy
+     * load must be the ones the converted snapshot reads back.
+     */
+    @Test
+    void historyNamesTheSamePeopleAfterALegacyFileWithDuplicatesIsConverted() throws Exception {
+        LocalDateTime yesterday = LocalDate.now().minusDays(1).atTime(9, 0);
+        Hospital old = new Hospital();
+        old.addPatient(new Patient("Patient A", 30, "F", "Checkup", false));
+        old.addDoctor(new Doctor("Doctor A", "General"));
+        registry(old, "patients").add(new Patient("PATIENT A", 31, "F", "Fever", false));
+        registry(old, "doctors").add(new Doctor("doctor a", "General"));
+        old.addPatient(new Patient("Patient B", 40, "M", "Checkup", false));
+        old.addDoctor(new Doctor("Doctor B", "Cardiology"));
+        old.scheduleAppointment("Patient B", "Doctor B", yesterday);
+        old.scheduleAppointment("Patient A", "Doctor A", yesterday.plusMinutes(15));
+        Path legacy = dir.resolve("legacy.dat");
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(legacy))) {
+            out.writeObject(old);
+        }
+
+        // As DataManager converts it: load, archive the past, write a snapshot.
+        Hospital loaded;
+        try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(legacy))) {
+            loaded = (Hospital) in.readObject();
+        }
+        assertEquals(2, loaded.getPatientCount());
+        assertEquals(2, loaded.getDoctorCount());
+        try (TieredArchive archive = open()) {
+            loaded.setHistory(archive);
+            assertEquals(2, loaded.archiveAppointmentsBefore(LocalDate.now().atStartOfDay()));
+            HospitalSnapshot.write(loaded, dir.resolve("hospital.dat"));
+        }
+
+        Hospital reloaded = HospitalSnapshot.read(dir.resolve("hospital.dat"));
+        try (TieredArchive archive = open()) {
+            reloaded.setHistory(archive);
+            List<Appointment> history = reloaded.getAppointmentsBetween(yesterday, yesterday.plusHours(1));
+            assertEquals(2, history.size());
+            assertEquals("Patient B", history.get(0).getPatient().getName());
+            assertEquals("Doctor B", history.get(0).getDoctor().getName());
+            assertEquals("Patient A", history.get(1).getPatient().getName());
+            assertEquals("Doctor A", history.get(1).getDoctor().getName());
+        }
+    }
+
+    // The registry list behind a Hospital, to add the duplicate names older versions allowed.
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> registry(Hospital hospital, String field) throws ReflectiveOperationException {
+        Field list = Hospital.class.getDeclaredField(field);
+        list.setAccessible(true);
+        return (List<T>) list.get(hospital);
+    }
+
+    private TieredArchive open() throws IOException {
+        return TieredArchive.open(dir.resolve("hospital.archive"), dir.resolve("hospital.segments"));
+    }
+
+    private static Hospital hospital() {
+        Hospital hospital = new Hospital();
+        hospital.addDoctor(new Doctor("Doctor A", "General"));
+        hospital.addPatient(new Patient("Patient A", 30, "F", "Checkup", false));
+        hospital.addPatient(new Patient("Patient B", 40, "M", "Checkup", false));
+        return hospital;
+    }
+}
@@ -0,0 +1,36 @@
+package com.scheduler.util;
+
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void availabilityChangesSurviveAReplay() throws Exception {
+        Path file = dir.resolve("hospital.journal");
+        Hospital hospital = new Hospital();
+        try (Journal journal = Journal.open(file, hospital)) {
+            hospital.addListener(journal);
+            hospital.addDoctor(new Doctor("Doctor A", "General"));
+            hospital.addDoctor(new Doctor("Doctor B", "Cardiology"));
+            hospital.setDoctorAvailable("Doctor A", false);
+            hospital.setDoctorAvailable("Doctor B", false);
+            hospital.setDoctorAvailable("Doctor B", true);
+        }
+
+        Hospital replayed = new Hospital();
+        Journal.replay(file, replayed);
+        assertFalse(replayed.findDoctorByName("Doctor A").get().isAvailable());
+        assertTrue(replayed.findDoctorByName("Doctor B").get().isAvailable());
+    }
+}
@@ -0,0 +1,111 @@
+package com.scheduler.util;
+
+import com.scheduler.model.Appointment;
+import com.scheduler.model.BookingRequest;
+import com.scheduler.model.Doctor;
+import com.scheduler.model.Hospital;
+import com.scheduler.model.OperationRecorder;
+import com.scheduler.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class OperationLogTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 6, 3);
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Recording started after the hospital was loaded, as Main does: a replay against
+     * readStart finds the loaded patients, doctors and appointments, makes the same
+     * calls without a refusal, and ends with the same schedule and ids.
+     */
+    @Test
+    void replayStartsFromTheLoadedHospital() throws Exception {
+        Hospital hospital = new Hospital();
+        hospital.setStartOfDay(LocalTime.of(8, 0));
+        hospital.setEndOfDay(LocalTime.of(10, 0));
+        hospital.addPatient(new Patient("Patient A", 30, "F", "Checkup", false));
+        hospital.addPatient(new Patient("Patient B", 41, "M", "Fever", false));
+        hospital.addPatient(new Patient("Patient E", 52, "F", "Bleeding", true));
+        hospital.addDoctor(new Doctor("Doctor A", "General"));
+        hospital.addDoctor(new Doctor("Doctor B", "Cardiology"));
+        hospital.getDoctor(1).setAvailable(false);
+        hospital.scheduleAppointment("Patient A", "Doctor A", DAY.atTime(9, 0));
+        hospital.scheduleAppointment("Patient B", "Doctor A", DAY.atTime(9, 45));
+        long rescheduled = hospital.findAppointments("Patient B", null).get(0).getId();
+        hospital.cancelAppointment("Patient A", "Doctor A");
+
+        Path file = dir.resolve("ops.log");
+        try (OperationLog log = OperationLog.create(file, hospital)) {
+            hospital.setRecorder(log);
+            hospital.addPatient(new Patient("Patient C", 23, "M", "Checkup", false));
+            hospital.scheduleAppointment("Patient A", "Doctor A", DAY.atTime(9, 15));
+            hospital.rescheduleAppointment(rescheduled, DAY.atTime(9, 30));
+            hospital.scheduleAll(List.of(new BookingRequest("Patient C", "Doctor A", DAY.atTime(8, 0))), false);
+            // Bumps Patient A and then Patient B along, B into 9:45, the last slot before the recorded end of day.
+            hospital.scheduleAppointment("Patient E", "Doctor A", DAY.atTime(9, 15));
+            hospital.setRecorder(OperationRecorder.NONE);
+        }
+
+        Hospital replay = OperationLog.readStart(file);
+        assertEquals(LocalTime.of(8, 0), replay.getStartOfDay());
+        assertEquals(LocalTime.of(10, 0), replay.getEndOfDay());
+        assertFalse(replay.findDoctorByName("Doctor B").get().isAvailable());
+        for (OperationLog.Operation operation : OperationLog.read(file)) {
+            operation.run(replay);
+        }
+        assertEquals(schedule(hospital), schedule(replay));
+        assertEquals(hospital.getNextAppointmentId(), replay.getNextAppointmentId());
+    }
+
+    /**
+     * A shard hands out every n-th id; the replay must too, or recorded calls that name
+     * an appointment by id reach a different one.
+     */
+    @Test
+    void replayKeepsTheIdPartition() throws Exception {
+        Hospital hospital = new Hospital();
+        hospital.setIdPartition(1, 3);
+        hospital.addPatient(new Patient("Patient A", 30, "F", "Checkup", false));
+        hospital.addDoctor(new Doctor("Doctor A", "General"));
+        hospital.scheduleAppointment("Patient A", "Doctor A", DAY.atTime(9, 0));
+
+        Path file = dir.resolve("ops.log");
+        try (OperationLog log = OperationLog.create(file, hospital)) {
+            hospital.setRecorder(log);
+            hospital.scheduleAppointment("Patient A", "Doctor A", DAY.atTime(10, 0));
+            long second = hospital.findAppointments("Patient A", null).get(1).getId();
+            hospital.rescheduleAppointment(second, DAY.atTime(11, 0));
+            hospital.cancelAppointment(second);
+            hospital.setRecorder(OperationRecorder.NONE);
+        }
+
+        Hospital replay = OperationLog.readStart(file);
+        assertEquals(1, replay.getIdPartition());
+        assertEquals(3, replay.getIdPartitions());
+        for (OperationLog.Operation operation : OperationLog.read(file)) {
+            operation.run(replay);
+        }
+        assertEquals(schedule(hospital), schedule(replay));
+        assertEquals(hospital.getNextAppointmentId(), replay.getNextAppointmentId());
+    }
+
+    private static List<String> schedule(Hospital hospital) {
+        List<String> result = new ArrayList<>();
+        for (Appointment a : hospital.getAllAppointments()) {
+            result.add(a.getId() + "|" + a.getPatient().getName() + "|" + a.getDoctor().getName() + "|" + a.getAppointmentDateTime());
+        }
+        return result;
+    }
+}